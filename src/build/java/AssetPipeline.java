@@ -0,0 +1,259 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态资源构建流水线（构建期执行，见 pom.xml 中 asset-pipeline 的 exec 配置）
+ * <p>
+ * 以 src/main/resources/static 为源，处理已复制到 target/classes/static 的资源：
+ * 1. 为 css / js / 图片生成带内容哈希的文件名（app.js -> app.3f2a9c1b0d.js），原文件保留
+ * 2. 从源目录重新读取 HTML，把其中对这些资源的引用改写为带哈希的文件名（每次构建都从未改写的源文件开始）
+ * 3. 为图片生成缩小尺寸的 JPEG 变体（-320w / -640w），本机有 cwebp 时再生成 WebP 变体
+ * 4. 为文本资源生成 .gz 预压缩文件，本机有 brotli 命令时再生成 .br
+ * 5. 输出 asset-manifest.properties：资源路径 -> 内容哈希，运行时用作强 ETag
+ * <p>
+ * 用法：java AssetPipeline.java &lt;源 static 目录&gt; &lt;输出 static 目录&gt;
+ */
+public class AssetPipeline {
+
+    static final String MANIFEST = "asset-manifest.properties";
+    static final Set<String> FINGERPRINT_TYPES = Set.of("css", "js", "jpg", "jpeg", "png", "gif", "svg", "webp");
+    static final Set<String> IMAGE_TYPES = Set.of("jpg", "jpeg", "png");
+    static final Set<String> COMPRESS_TYPES = Set.of("html", "css", "js", "svg", "json", "txt");
+    static final int[] IMAGE_WIDTHS = {320, 640};
+    // 小于该大小的文本文件压缩收益不明显，不生成预压缩文件
+    static final int COMPRESS_MIN_BYTES = 1024;
+    // 已带哈希的文件名（上次构建的产物），不再重复处理
+    static final Pattern HASHED_NAME = Pattern.compile(".+\\.[0-9a-f]{10}(-\\d+w)?\\.[A-Za-z0-9]+$");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("用法：java AssetPipeline.java <源 static 目录> <输出 static 目录>");
+            System.exit(2);
+        }
+        Path source = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        if (!Files.isDirectory(source) || !Files.isDirectory(output)) {
+            System.out.println("[asset-pipeline] 没有静态资源目录，跳过");
+            return;
+        }
+        new AssetPipeline(source, output).run();
+    }
+
+    private final Path source;
+    private final Path output;
+    private final boolean cwebp = hasCommand("cwebp", "-version");
+    private final boolean brotli = hasCommand("brotli", "--version");
+    // 原始路径（相对 static，/ 分隔）-> 带哈希的路径
+    private final Map<String, String> renamed = new LinkedHashMap<>();
+    // 资源路径 -> 内容哈希（强 ETag）
+    private final Map<String, String> manifest = new TreeMap<>();
+
+    AssetPipeline(Path source, Path output) {
+        this.source = source;
+        this.output = output;
+    }
+
+    void run() throws IOException {
+        for (Path file : listFiles(source)) {
+            String path = relative(source, file);
+            String ext = extension(path);
+            if (!FINGERPRINT_TYPES.contains(ext) || HASHED_NAME.matcher(path).matches()) {
+                continue;
+            }
+            if (path.chars().anyMatch(Character::isWhitespace)) {
+                System.out.println("[asset-pipeline] 文件名含空白字符，不生成哈希文件名：" + path);
+                continue;
+            }
+            fingerprint(path, ext);
+        }
+        for (Path file : listFiles(source)) {
+            String path = relative(source, file);
+            if (extension(path).equals("html")) {
+                Files.writeString(output.resolve(path), rewriteHtml(Files.readString(file, StandardCharsets.UTF_8)),
+                        StandardCharsets.UTF_8);
+            }
+        }
+        for (Path file : listFiles(output)) {
+            String path = relative(output, file);
+            if (path.equals(MANIFEST) || path.endsWith(".gz") || path.endsWith(".br")) {
+                continue;
+            }
+            manifest.putIfAbsent(path, hash(Files.readAllBytes(file)));
+            if (COMPRESS_TYPES.contains(extension(path)) && Files.size(file) >= COMPRESS_MIN_BYTES) {
+                precompress(file, path);
+            }
+        }
+        writeManifest();
+        System.out.printf("[asset-pipeline] 带哈希文件 %d 个，清单 %d 项（brotli=%s，webp=%s）%n",
+                renamed.size(), manifest.size(), brotli, cwebp);
+    }
+
+    /**
+     * 复制出带内容哈希的文件；图片额外生成缩放变体
+     */
+    private void fingerprint(String path, String ext) throws IOException {
+        Path original = output.resolve(path);
+        byte[] content = Files.readAllBytes(original);
+        String hash = hash(content);
+        int dot = path.lastIndexOf('.');
+        String hashedBase = path.substring(0, dot) + "." + hash.substring(0, 10);
+        String hashed = hashedBase + path.substring(dot);
+        Files.write(output.resolve(hashed), content);
+        renamed.put(path, hashed);
+        manifest.put(hashed, hash);
+        if (!IMAGE_TYPES.contains(ext)) {
+            return;
+        }
+        BufferedImage image = ImageIO.read(original.toFile());
+        if (image == null) {
+            return;
+        }
+        for (int width : IMAGE_WIDTHS) {
+            if (image.getWidth() <= width) {
+                continue;
+            }
+            Path variant = output.resolve(hashedBase + "-" + width + "w.jpg");
+            writeJpeg(resize(image, width), variant, 0.82f);
+            webp(variant, output.resolve(hashedBase + "-" + width + "w.webp"));
+        }
+        webp(original, output.resolve(hashedBase + ".webp"));
+    }
+
+    /**
+     * 改写 HTML 中被引号包住的资源引用（href / src 属性以及内联脚本中的字符串常量）
+     */
+    private String rewriteHtml(String html) {
+        for (Map.Entry<String, String> entry : renamed.entrySet()) {
+            for (String prefix : List.of("", "./", "/")) {
+                Pattern reference = Pattern.compile("([\"'])" + Pattern.quote(prefix + entry.getKey()) + "\\1");
+                html = reference.matcher(html)
+                        .replaceAll("$1" + Matcher.quoteReplacement(prefix + entry.getValue()) + "$1");
+            }
+        }
+        return html;
+    }
+
+    private void precompress(Path file, String path) throws IOException {
+        Path gz = output.resolve(path + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            Files.copy(file, out);
+        }
+        manifest.put(path + ".gz", hash(Files.readAllBytes(gz)));
+        if (brotli) {
+            Path br = output.resolve(path + ".br");
+            if (exec("brotli", "-f", "-q", "11", "-o", br.toString(), file.toString())) {
+                manifest.put(path + ".br", hash(Files.readAllBytes(br)));
+            }
+        }
+    }
+
+    private void webp(Path from, Path to) throws IOException {
+        if (cwebp && exec("cwebp", "-quiet", "-q", "80", from.toString(), "-o", to.toString())) {
+            manifest.put(relative(output, to), hash(Files.readAllBytes(to)));
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder sb = new StringBuilder("# 构建期生成：静态资源路径=内容哈希（SHA-256），用作强 ETag\n");
+        manifest.forEach((path, hash) -> sb.append(path.replace(" ", "\\ ")).append('=').append(hash).append('\n'));
+        Files.writeString(output.resolve(MANIFEST), sb.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width) {
+        int height = Math.max(1, Math.round(image.getHeight() * (width / (float) image.getWidth())));
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        Files.deleteIfExists(target);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    private static String relative(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot < 0 ? "" : path.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)).substring(0, 32);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean hasCommand(String... command) {
+        return exec(command);
+    }
+
+    private static boolean exec(String... command) {
+        try {
+            Process process = new ProcessBuilder(new ArrayList<>(List.of(command)))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor(60, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
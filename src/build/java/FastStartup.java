@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * 快速启动构建工具（见 pom.xml 中 fast-startup profile）
+ * <p>
+ * extract：把可执行 war 展开为 application.jar + lib/*.jar（CDS 只能归档普通 jar 中的类，不能归档 war 内嵌 jar 和
+ * WEB-INF/classes 目录；Spring Boot 的 jarmode tools extract 不支持带 WEB-INF/lib-provided 的 war）。
+ * application.jar 的清单中 Main-Class 为应用主类，Class-Path 按 war 中的顺序列出 lib 下全部依赖。
+ * <p>
+ * benchmark：依次以 普通启动 / AOT / AOT + CDS 三种方式各启动若干次（交替进行，减少机器状态的影响），
+ * 统计从进程启动到第一次 GET /product/all 返回 200 的耗时，输出中位数 / 最小 / 最大值。被测应用的输出写入 startup-benchmark.log。
+ * <p>
+ * 用法：
+ * java FastStartup.java extract &lt;war&gt; &lt;输出目录&gt;
+ * java FastStartup.java benchmark &lt;extract 输出目录&gt; &lt;每种方式启动次数&gt; [key=value ...]（作为系统属性传给应用，如数据库地址）
+ */
+public class FastStartup {
+
+    static final String APPLICATION_JAR = "application.jar";
+    static final String ARCHIVE = "application.jsa";
+    static final String LOG = "startup-benchmark.log";
+    static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && "extract".equals(args[0])) {
+            extract(Path.of(args[1]), Path.of(args[2]));
+        } else if (args.length >= 3 && "benchmark".equals(args[0])) {
+            benchmark(Path.of(args[1]), Integer.parseInt(args[2]), Arrays.asList(args).subList(3, args.length));
+        } else {
+            System.err.println("用法：java FastStartup.java extract <war> <输出目录>");
+            System.err.println("      java FastStartup.java benchmark <extract 输出目录> <启动次数> [key=value ...]");
+            System.exit(2);
+        }
+    }
+
+    // ---------------------------------------------------------------- extract
+
+    static void extract(Path war, Path output) throws IOException {
+        deleteRecursively(output);
+        Path lib = Files.createDirectories(output.resolve("lib"));
+        List<String> classPath = new ArrayList<>();
+        try (JarFile archive = new JarFile(war.toFile())) {
+            String mainClass = archive.getManifest().getMainAttributes().getValue("Start-Class");
+            if (mainClass == null) {
+                throw new IllegalStateException(war + " 不是 Spring Boot 可执行 war（清单中没有 Start-Class）");
+            }
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+
+            // 依赖 jar 原样复制到 lib（lib-provided 中的 Tomcat 等也需要，独立运行时由应用自带）
+            for (JarEntry entry : archive.stream().toList()) {
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.endsWith(".jar")
+                        && (name.startsWith("WEB-INF/lib/") || name.startsWith("WEB-INF/lib-provided/"))) {
+                    String fileName = name.substring(name.lastIndexOf('/') + 1);
+                    try (InputStream in = archive.getInputStream(entry)) {
+                        Files.copy(in, lib.resolve(fileName));
+                    }
+                    classPath.add("lib/" + fileName);
+                }
+            }
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, String.join(" ", classPath));
+
+            // 应用自己的类和资源（WEB-INF/classes）打成 application.jar
+            try (OutputStream file = Files.newOutputStream(output.resolve(APPLICATION_JAR));
+                 JarOutputStream jar = new JarOutputStream(file, manifest)) {
+                for (JarEntry entry : archive.stream().toList()) {
+                    String name = entry.getName();
+                    if (!name.startsWith("WEB-INF/classes/") || name.length() == "WEB-INF/classes/".length()) {
+                        continue;
+                    }
+                    jar.putNextEntry(new JarEntry(name.substring("WEB-INF/classes/".length())));
+                    if (!entry.isDirectory()) {
+                        try (InputStream in = archive.getInputStream(entry)) {
+                            in.transferTo(jar);
+                        }
+                    }
+                    jar.closeEntry();
+                }
+            }
+            System.out.printf("[fast-startup] %s -> %s（主类 %s，依赖 %d 个）%n", war.getFileName(), output, mainClass, classPath.size());
+        }
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- benchmark
+
+    /**
+     * 启动方式：名称 -> 额外 JVM 参数
+     */
+    static Map<String, List<String>> modes(Path dir) {
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("普通启动", List.of());
+        modes.put("AOT", List.of("-Dspring.aot.enabled=true"));
+        if (Files.exists(dir.resolve(ARCHIVE))) {
+            modes.put("AOT + CDS", List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + ARCHIVE));
+        } else {
+            System.out.println("[fast-startup] 没有 " + ARCHIVE + "，跳过 AOT + CDS（先执行 mvn -Pfast-startup -DskipTests verify）");
+        }
+        return modes;
+    }
+
+    static void benchmark(Path dir, int runs, List<String> properties) throws Exception {
+        if (!Files.exists(dir.resolve(APPLICATION_JAR))) {
+            throw new IllegalStateException(dir.resolve(APPLICATION_JAR) + " 不存在，先执行 mvn -Pfast-startup -DskipTests verify");
+        }
+        Map<String, List<String>> modes = modes(dir);
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        modes.keySet().forEach(mode -> results.put(mode, new ArrayList<>()));
+        Files.deleteIfExists(dir.resolve(LOG));
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+        for (int run = 1; run <= runs; run++) {
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                long millis = startOnce(dir, client, mode.getValue(), properties);
+                results.get(mode.getKey()).add(millis);
+                System.out.printf("[fast-startup] 第 %d 轮 %6d ms  %s%n", run, millis, mode.getKey());
+            }
+        }
+
+        System.out.printf("%n[fast-startup] 启动到第一次 /product/all 成功（%d 次）%n", runs);
+        for (Map.Entry<String, List<Long>> result : results.entrySet()) {
+            List<Long> sorted = result.getValue().stream().sorted().toList();
+            System.out.printf("  中位数 %6d ms  最小 %6d ms  最大 %6d ms  %s%n",
+                    sorted.get(sorted.size() / 2), sorted.get(0), sorted.get(sorted.size() - 1), result.getKey());
+        }
+    }
+
+    /**
+     * 启动一次应用，返回从启动进程到 /product/all 返回 200 的毫秒数，随后结束进程
+     */
+    static long startOnce(Path dir, HttpClient client, List<String> jvmArgs, List<String> properties) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        for (String property : properties) {
+            command.add("-D" + property);
+        }
+        command.add("-Dserver.port=" + port);
+        command.add("-jar");
+        command.add(APPLICATION_JAR);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/product/all"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(dir.resolve(LOG).toFile()))
+                .start();
+        try {
+            long deadline = start + READY_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("应用启动失败，退出码 " + process.exitValue() + "，见 " + dir.resolve(LOG));
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException e) {
+                    // 端口尚未监听
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(READY_TIMEOUT.toSeconds() + "s 内 /product/all 没有返回 200（数据库是否可用？），见 " + dir.resolve(LOG));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
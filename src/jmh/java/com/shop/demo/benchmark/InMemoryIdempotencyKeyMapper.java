@@ -0,0 +1,48 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.idempotency.IdempotencyKey;
+import com.shop.demo.mapper.IdempotencyKeyMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基准测试用的内存版 IdempotencyKeyMapper（没有事务，不等待未提交的同名键）
+ */
+public class InMemoryIdempotencyKeyMapper implements IdempotencyKeyMapper {
+
+    private final Map<String, String> keys = new ConcurrentHashMap<>();
+
+    @Override
+    public int claim(String key, Long userId) {
+        return keys.putIfAbsent(userId + ":" + key, "") == null ? 1 : 0;
+    }
+
+    @Override
+    public int complete(String key, Long userId, String orderIds) {
+        return keys.replace(userId + ":" + key, orderIds) == null ? 0 : 1;
+    }
+
+    @Override
+    public String selectOrderIds(String key, Long userId) {
+        return keys.get(userId + ":" + key);
+    }
+
+    @Override
+    public int deleteKeys(List<IdempotencyKey> keyList) {
+        int deleted = 0;
+        for (IdempotencyKey key : keyList) {
+            deleted += keys.remove(key.getUserId() + ":" + key.getKey()) == null ? 0 : 1;
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteBefore(LocalDateTime before) {
+        int size = keys.size();
+        keys.clear();
+        return size;
+    }
+}
@@ -0,0 +1,28 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.dto.OrderDetail;
+import com.shop.demo.entity.Order;
+import com.shop.demo.mapper.OrderMapper;
+
+import java.util.List;
+
+/**
+ * 基准测试用的内存版 OrderMapper：订单 ID 已由 OrderIdGenerator 分配，这里不保留订单（避免基准运行期间内存持续增长）
+ */
+public class InMemoryOrderMapper implements OrderMapper {
+
+    @Override
+    public int insertOrder(Order order) {
+        return 1;
+    }
+
+    @Override
+    public int insertOrderBatch(List<Order> orders) {
+        return orders.size();
+    }
+
+    @Override
+    public List<OrderDetail> selectByUserId(Long userId, Long beforeId, int limit) {
+        return List.of();
+    }
+}
@@ -0,0 +1,194 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.entity.Product;
+import com.shop.demo.mapper.ProductMapper;
+import com.shop.demo.stock.StockDelta;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基准测试用的内存版 ProductMapper：语义与 ProductMapper.xml 一致（条件扣减、按 id 升序），
+ * 不访问数据库，只测量业务代码本身的开销
+ */
+public class InMemoryProductMapper implements ProductMapper {
+
+    private final Map<Long, Product> products = new ConcurrentSkipListMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * 生成 count 个商品，库存均为 stock
+     */
+    public InMemoryProductMapper(int count, int stock) {
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setProductName("商品-" + (i + 1));
+            product.setPrice(new BigDecimal("19.90").add(BigDecimal.valueOf(i)));
+            product.setStock(stock);
+            product.setDescription("基准测试商品 " + (i + 1));
+            insertProduct(product);
+        }
+    }
+
+    /**
+     * 把所有商品的库存重置为 stock（每轮迭代前调用，避免库存耗尽改变被测路径）
+     */
+    public void resetStock(int stock) {
+        for (Product product : products.values()) {
+            synchronized (product) {
+                product.setStock(stock);
+            }
+        }
+    }
+
+    @Override
+    public List<Product> selectAll() {
+        List<Product> result = new ArrayList<>(products.size());
+        for (Product product : products.values()) {
+            result.add(copy(product));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Product> selectPage(Long afterId, int limit) {
+        List<Product> result = new ArrayList<>(limit);
+        for (Product product : products.values()) {
+            if (product.getId() > afterId) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(copy(product));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void streamAll(ResultHandler<Product> handler) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long selectCatalogVersion() {
+        long version = 0;
+        for (Product product : products.values()) {
+            version += product.getVersion() + 1;
+        }
+        return version;
+    }
+
+    @Override
+    public Product selectById(Long id) {
+        Product product = products.get(id);
+        return product == null ? null : copy(product);
+    }
+
+    @Override
+    public Product selectByIdForUpdate(Long id) {
+        return selectById(id);
+    }
+
+    @Override
+    public List<Product> selectByIds(List<Long> ids) {
+        List<Product> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = selectById(id);
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Product> selectByIdsForUpdate(List<Long> ids) {
+        return selectByIds(ids);
+    }
+
+    @Override
+    public int updateStock(Long productId, Integer newStock, Integer buyNum) {
+        Product product = products.get(productId);
+        if (product == null) {
+            return 0;
+        }
+        synchronized (product) {
+            if (product.getStock() < buyNum) {
+                return 0;
+            }
+            product.setStock(product.getStock() - buyNum);
+            product.setVersion(product.getVersion() + 1);
+            product.setUpdateTime(LocalDateTime.now());
+            return 1;
+        }
+    }
+
+    @Override
+    public int insertProduct(Product product) {
+        product.setId(ids.incrementAndGet());
+        product.setCreateTime(LocalDateTime.now());
+        product.setVersion(0L);
+        product.setUpdateTime(product.getCreateTime());
+        products.put(product.getId(), copy(product));
+        return 1;
+    }
+
+    @Override
+    public int decrementStockBatch(List<StockDelta> deltas) {
+        int updated = 0;
+        for (StockDelta delta : deltas) {
+            updated += updateStock(delta.getProductId(), null, delta.getNum());
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Long> decrementStockBatchReturningIds(List<StockDelta> deltas) {
+        List<Long> ids = new ArrayList<>(deltas.size());
+        for (StockDelta delta : deltas) {
+            if (updateStock(delta.getProductId(), null, delta.getNum()) > 0) {
+                ids.add(delta.getProductId());
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public int clampStockBatch(List<StockDelta> deltas) {
+        int updated = 0;
+        for (StockDelta delta : deltas) {
+            Product product = products.get(delta.getProductId());
+            if (product == null) {
+                continue;
+            }
+            synchronized (product) {
+                product.setStock(Math.max(product.getStock() - delta.getNum(), 0));
+                product.setVersion(product.getVersion() + 1);
+                product.setUpdateTime(LocalDateTime.now());
+            }
+            updated++;
+        }
+        return updated;
+    }
+
+    private static Product copy(Product source) {
+        Product product = new Product();
+        synchronized (source) {
+            product.setId(source.getId());
+            product.setProductName(source.getProductName());
+            product.setPrice(source.getPrice());
+            product.setStock(source.getStock());
+            product.setDescription(source.getDescription());
+            product.setVersion(source.getVersion());
+            product.setUpdateTime(source.getUpdateTime());
+            product.setCreateTime(source.getCreateTime());
+        }
+        return product;
+    }
+}
@@ -0,0 +1,134 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.dto.OrderDetail;
+import com.shop.demo.entity.Order;
+import com.shop.demo.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口响应 JSON 序列化基准（与 Spring MVC 相同的 Jackson 3 JsonMapper）：
+ * 单个订单（含 id 转字符串、createTime 格式化）、订单详情分页、以及控制器返回的 HashMap 响应包装。
+ * setUp 中校验输出格式（订单 ID 为字符串），确保测量的是接口实际输出的内容
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private JsonMapper jsonMapper;
+    private Order order;
+    private Map<String, Object> orderCreatedResponse;
+    private Map<String, Object> orderPageResponse;
+    private Map<String, Object> productListResponse;
+
+    @Setup
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+        LocalDateTime now = LocalDateTime.now();
+
+        order = new Order();
+        order.setId(1_864_326_559_023_104_001L);
+        order.setUserId(10_001L);
+        order.setProductId(42L);
+        order.setNum(2);
+        order.setTotalPrice(new BigDecimal("39.80"));
+        order.setCreateTime(now);
+
+        // POST /order/add 的成功响应
+        orderCreatedResponse = new HashMap<>();
+        orderCreatedResponse.put("code", 200);
+        orderCreatedResponse.put("msg", "订单创建成功");
+        orderCreatedResponse.put("data", String.valueOf(order.getId()));
+
+        // GET /order/user/{userId} 的一页订单详情
+        List<OrderDetail> details = new ArrayList<>(20);
+        for (int i = 0; i < 20; i++) {
+            OrderDetail detail = new OrderDetail();
+            detail.setId(order.getId() - i);
+            detail.setUserId(order.getUserId());
+            detail.setProductId(42L + i);
+            detail.setNum(1 + i % 3);
+            detail.setTotalPrice(new BigDecimal("19.90").multiply(BigDecimal.valueOf(1 + i % 3)));
+            detail.setCreateTime(now.minusMinutes(i));
+            detail.setProductName("商品-" + (42 + i));
+            detail.setUnitPrice(new BigDecimal("19.90"));
+            details.add(detail);
+        }
+        orderPageResponse = new HashMap<>();
+        orderPageResponse.put("code", 200);
+        orderPageResponse.put("msg", "查询成功");
+        orderPageResponse.put("data", details);
+        orderPageResponse.put("nextCursor", String.valueOf(details.get(details.size() - 1).getId()));
+
+        // GET /product/all 的一页商品
+        List<Product> products = new ArrayList<>(50);
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setId((long) i + 1);
+            product.setProductName("商品-" + (i + 1));
+            product.setPrice(new BigDecimal("19.90").add(BigDecimal.valueOf(i)));
+            product.setStock(1000);
+            product.setDescription("基准测试商品 " + (i + 1));
+            product.setCreateTime(now);
+            products.add(product);
+        }
+        productListResponse = new HashMap<>();
+        productListResponse.put("code", 200);
+        productListResponse.put("msg", "查询成功");
+        productListResponse.put("data", products);
+
+        String id = "\"" + order.getId() + "\"";
+        expectContains(order(), "\"id\":" + id);
+        expectContains(orderCreatedResponse(), "\"data\":" + id);
+        expectContains(orderPageResponse(), "\"id\":" + id);
+    }
+
+    private static void expectContains(byte[] json, String expected) {
+        String text = new String(json, StandardCharsets.UTF_8);
+        if (!text.contains(expected)) {
+            throw new IllegalStateException("序列化结果与接口输出不一致，缺少 " + expected + "：" + text);
+        }
+    }
+
+    @Benchmark
+    public byte[] order() {
+        return jsonMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] orderCreatedResponse() {
+        return jsonMapper.writeValueAsBytes(orderCreatedResponse);
+    }
+
+    @Benchmark
+    public byte[] orderPageResponse() {
+        return jsonMapper.writeValueAsBytes(orderPageResponse);
+    }
+
+    @Benchmark
+    public byte[] productListResponse() {
+        return jsonMapper.writeValueAsBytes(productListResponse);
+    }
+}
@@ -0,0 +1,36 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.dto.FlashSaleTicket;
+import com.shop.demo.entity.Order;
+import com.shop.demo.service.FlashSaleService;
+
+/**
+ * 基准测试用的 FlashSaleService：没有任何商品处于秒杀中
+ */
+public class NoFlashSaleService implements FlashSaleService {
+
+    @Override
+    public int start(Long productId, Integer quantity) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int stop(Long productId) {
+        return 0;
+    }
+
+    @Override
+    public boolean isActive(Long productId) {
+        return false;
+    }
+
+    @Override
+    public FlashSaleTicket submit(Order order) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FlashSaleTicket getTicket(String ticketId) {
+        return null;
+    }
+}
@@ -0,0 +1,127 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.dto.BatchOrderRequest;
+import com.shop.demo.entity.Order;
+import com.shop.demo.id.OrderIdGenerator;
+import com.shop.demo.id.OrderIdProperties;
+import com.shop.demo.jdbc.ReadReplicaProperties;
+import com.shop.demo.jdbc.ReadYourWrites;
+import com.shop.demo.metrics.OrderMetrics;
+import com.shop.demo.metrics.OrderMetricsProperties;
+import com.shop.demo.service.impl.OrderServiceImpl;
+import com.shop.demo.stock.StockBucketProperties;
+import com.shop.demo.stock.StockBuckets;
+import com.shop.demo.stock.StockReservationEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单热点路径基准：单个下单（processSingleOrder）与批量下单（createBatchOrder）
+ * <p>
+ * Mapper 使用内存实现、事件发布为空操作、不开启内存库存引擎，
+ * 测得的是服务层本身的 CPU 与分配开销（数据库往返不在内）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final int PRODUCT_COUNT = 100;
+    private static final int STOCK = Integer.MAX_VALUE / 2;
+
+    // 批量下单中的商品项数
+    @Param({"1", "10", "50"})
+    public int batchSize;
+
+    private InMemoryProductMapper productMapper;
+    private OrderServiceImpl orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productMapper = new InMemoryProductMapper(PRODUCT_COUNT, STOCK);
+        orderService = new OrderServiceImpl(
+                new InMemoryOrderMapper(),
+                productMapper,
+                new InMemoryIdempotencyKeyMapper(),
+                new StaticListableBeanFactory().getBeanProvider(StockReservationEngine.class),
+                event -> {
+                },
+                new NoFlashSaleService(),
+                new OrderMetrics(new SimpleMeterRegistry(), new OrderMetricsProperties()),
+                new ReadYourWrites(new ReadReplicaProperties(), new StaticListableBeanFactory().getBeanProvider(PlatformTransactionManager.class)),
+                // 压测商品均未分桶，分桶 Mapper 不会被调用
+                new StockBuckets(null, productMapper, new StockBucketProperties(),
+                        new StaticListableBeanFactory().getBeanProvider(StockReservationEngine.class), new NoFlashSaleService(), event -> {
+                }),
+                new OrderIdGenerator(new OrderIdProperties()));
+    }
+
+    @Setup(Level.Iteration)
+    public void refillStock() {
+        productMapper.resetStock(STOCK);
+    }
+
+    @Benchmark
+    public Order addOrder() {
+        Order order = newOrder(ThreadLocalRandom.current().nextLong(1, PRODUCT_COUNT + 1));
+        orderService.addOrder(order);
+        return order;
+    }
+
+    /**
+     * 多线程同时抢购同一个商品（对应内存 Mapper 的商品级互斥）
+     */
+    @Benchmark
+    @Threads(4)
+    public Order addOrderSameProduct() {
+        Order order = newOrder(1L);
+        orderService.addOrder(order);
+        return order;
+    }
+
+    @Benchmark
+    public List<Long> createBatchOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<BatchOrderRequest.OrderItemRequest> items = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            BatchOrderRequest.OrderItemRequest item = new BatchOrderRequest.OrderItemRequest();
+            item.setProductId(random.nextLong(1, PRODUCT_COUNT + 1));
+            item.setNum(random.nextInt(1, 4));
+            items.add(item);
+        }
+        BatchOrderRequest request = new BatchOrderRequest();
+        request.setUserId(random.nextLong(1, 10_000));
+        request.setItems(items);
+        return orderService.createBatchOrder(request);
+    }
+
+    private static Order newOrder(long productId) {
+        Order order = new Order();
+        order.setUserId(ThreadLocalRandom.current().nextLong(1, 10_000));
+        order.setProductId(productId);
+        order.setNum(1);
+        return order;
+    }
+}
@@ -0,0 +1,99 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.entity.Product;
+import com.shop.demo.search.ProductSearchIndex;
+import com.shop.demo.search.ProductSearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品搜索耗时分布（SampleTime 输出 p50 / p99）：按品牌 × 品类 × 颜色 × 型号生成 productCount 个商品建索引，
+ * 分别测中文品类词、品牌 + 品类组合、英文前缀、拼写错误查询
+ * 品类词每个命中约 1/40 的商品，是索引中最宽的查询之一
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductSearchBenchmark {
+
+    private static final String[] BRANDS = {
+            "Apple", "Samsung", "Huawei", "Xiaomi", "Lenovo", "Logitech", "Sony", "Philips", "Anker", "Dell",
+            "Canon", "Nikon", "Bose", "Razer", "Asus", "Acer", "Oppo", "Vivo", "Honor", "Midea"};
+    private static final String[] CATEGORIES = {
+            "手机", "平板电脑", "笔记本电脑", "机械键盘", "无线鼠标", "蓝牙耳机", "充电器", "数据线", "移动电源", "显示器",
+            "路由器", "智能手表", "电动牙刷", "吹风机", "电饭煲", "空气净化器", "加湿器", "音箱", "相机", "镜头",
+            "保温杯", "双肩包", "运动鞋", "羽绒服", "牛仔裤", "台灯", "咖啡机", "榨汁机", "剃须刀", "体脂秤",
+            "投影仪", "游戏手柄", "固态硬盘", "内存条", "显卡", "主板", "机箱", "电源", "散热器", "摄像头"};
+    private static final String[] COLORS = {"黑色", "白色", "银色", "蓝色", "红色", "金色", "灰色", "绿色"};
+    private static final String[] QUERY_WORDS = {"keyboard", "wireless", "charger", "monitor", "headphone", "speaker"};
+
+    @Param({"1000000"})
+    public int productCount;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        ProductSearchProperties properties = new ProductSearchProperties();
+        index = new ProductSearchIndex(null, properties, new SimpleMeterRegistry());
+        SplittableRandom random = new SplittableRandom(42);
+        for (long id = 1; id <= productCount; id++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String word = QUERY_WORDS[random.nextInt(QUERY_WORDS.length)];
+            Product product = new Product();
+            product.setId(id);
+            product.setProductName(brand + " " + category + " " + COLORS[random.nextInt(COLORS.length)]
+                    + " " + word + " M" + random.nextInt(10_000));
+            product.setDescription(brand + " 官方正品 " + category + "，支持七天无理由退货，型号 " + id);
+            product.setPrice(BigDecimal.valueOf(random.nextInt(100, 1_000_000), 2));
+            product.setStock(random.nextInt(10) == 0 ? 0 : random.nextInt(1, 500));
+            index.index(product);
+        }
+    }
+
+    @Benchmark
+    public ProductSearchResult cjkCategory() {
+        return index.search(CATEGORIES[ThreadLocalRandom.current().nextInt(CATEGORIES.length)], 1, 20, true);
+    }
+
+    @Benchmark
+    public ProductSearchResult brandAndCategory() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.search(BRANDS[random.nextInt(BRANDS.length)] + " " + CATEGORIES[random.nextInt(CATEGORIES.length)],
+                1, 20, true);
+    }
+
+    @Benchmark
+    public ProductSearchResult latinPrefix() {
+        String brand = BRANDS[ThreadLocalRandom.current().nextInt(BRANDS.length)];
+        return index.search(brand.substring(0, 3) + " m12", 1, 20, true);
+    }
+
+    @Benchmark
+    public ProductSearchResult typo() {
+        // 删掉一个字母的拼写错误 + 具体型号
+        String word = QUERY_WORDS[ThreadLocalRandom.current().nextInt(QUERY_WORDS.length)];
+        return index.search(word.substring(0, 2) + word.substring(3) + " m" + ThreadLocalRandom.current().nextInt(10_000),
+                1, 20, true);
+    }
+}
@@ -0,0 +1,90 @@
+package com.shop.demo.benchmark;
+
+import com.shop.demo.cache.ProductCache;
+import com.shop.demo.cache.ProductCacheProperties;
+import com.shop.demo.dto.CartQuote;
+import com.shop.demo.dto.CartQuoteRequest;
+import com.shop.demo.entity.Product;
+import com.shop.demo.service.impl.ProductServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品读取基准：全量列表、键集分页、按 ID 查询、50 个商品的购物车报价，对比开启 / 关闭商品缓存
+ * （关闭缓存时每次都经过内存 Mapper 复制对象，近似查库后的对象映射开销）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"1000"})
+    public int productCount;
+
+    private ProductServiceImpl productService;
+    private List<CartQuoteRequest.Item> cart;
+
+    @Setup
+    public void setUp() {
+        InMemoryProductMapper productMapper = new InMemoryProductMapper(productCount, 1000);
+        ProductCacheProperties properties = new ProductCacheProperties();
+        properties.setEnabled(cacheEnabled);
+        // 基准运行期间不触发定时重建
+        properties.setTtl(Duration.ofHours(1));
+        properties.setCatalogRefresh(Duration.ofHours(1));
+        ProductCache productCache = new ProductCache(productMapper, properties, new SimpleMeterRegistry());
+        productService = new ProductServiceImpl(productMapper, productCache, event -> {
+        }, JsonMapper.builder().build(), null, null);
+        cart = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            CartQuoteRequest.Item item = new CartQuoteRequest.Item();
+            item.setProductId(ThreadLocalRandom.current().nextLong(1, productCount + 1));
+            item.setNum(1 + i % 3);
+            cart.add(item);
+        }
+    }
+
+    @Benchmark
+    public List<Product> getAllProducts() {
+        return productService.getAllProducts();
+    }
+
+    @Benchmark
+    public List<Product> getProductPage() {
+        long afterId = ThreadLocalRandom.current().nextLong(0, productCount);
+        return productService.getProductPage(afterId, 50);
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return productService.getProductById(ThreadLocalRandom.current().nextLong(1, productCount + 1));
+    }
+
+    @Benchmark
+    public CartQuote quoteCart() {
+        return productService.quoteCart(cart);
+    }
+}
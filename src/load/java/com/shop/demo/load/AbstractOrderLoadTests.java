@@ -0,0 +1,405 @@
+package com.shop.demo.load;
+
+import com.shop.demo.cache.ProductCache;
+import com.shop.demo.entity.Order;
+import com.shop.demo.service.OrderService;
+import com.shop.demo.stock.StockReservationEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 下单并发压测：大量并发请求集中打到少数几个热门商品上（需求量大于库存，必然有请求因库存不足被拒），
+ * 结束后校验
+ * 1. 库存不会变成负数
+ * 2. 每个商品的订单数量之和 = 初始库存 - 剩余库存（没有超卖，也没有扣了库存却没下单）
+ * 3. 数据库中的订单数 = 成功响应的订单数
+ * 并输出每轮的吞吐量和 p50 / p99 / p999 延迟。
+ * <p>
+ * 子类通过 @TestPropertySource 切换下单实现（行锁 / 请求合并 / 内存库存引擎）。
+ * 压力参数：-Dload.requests（默认 2000）、-Dload.concurrency（默认 64）、-Dload.hot-products（默认 3）、-Dload.stock（默认 1000）
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("load")
+@DirtiesContext
+@ExtendWith(LocalPostgres.Lifecycle.class)
+abstract class AbstractOrderLoadTests {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 2000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 64);
+    private static final int HOT_PRODUCTS = Integer.getInteger("load.hot-products", 3);
+    private static final int STOCK = Integer.getInteger("load.stock", 1000);
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        LocalPostgres.register(registry);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ObjectProvider<StockReservationEngine> stockEngine;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private List<Long> hotProductIds;
+
+    /**
+     * 一次请求：路径 + JSON 请求体 + 成功时产生的订单（商品 ID -> 数量，同一商品可能出现多次）
+     */
+    private record LoadRequest(String path, String body, List<long[]> items) {
+    }
+
+    /**
+     * 一轮压测的统计
+     */
+    private static final class LoadStats {
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        // 准入控制拒绝（429 / 503 + Retry-After），不产生订单
+        final AtomicInteger shed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong orders = new AtomicLong();
+        final Map<Long, AtomicLong> soldByProduct = new HashMap<>();
+        final LatencyRecorder latency;
+
+        LoadStats(List<Long> productIds, int requests) {
+            for (Long id : productIds) {
+                soldByProduct.put(id, new AtomicLong());
+            }
+            this.latency = new LatencyRecorder(requests);
+        }
+    }
+
+    @BeforeEach
+    void resetData() {
+        // 上一个测试留在内存库存引擎中的扣减量先回写，避免重建时写到新插入的商品上
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        if (engine != null) {
+            engine.flush();
+        }
+        jdbcTemplate.execute("TRUNCATE \"order\", \"product\", \"product_stock_bucket\", \"order_idempotency_key\", \"order_outbox\" RESTART IDENTITY");
+        hotProductIds = new ArrayList<>(HOT_PRODUCTS);
+        for (int i = 1; i <= HOT_PRODUCTS; i++) {
+            jdbcTemplate.update("INSERT INTO \"product\" (name, price, stock, description) VALUES (?, ?, ?, ?)",
+                    "热门商品-" + i, new BigDecimal("9.90"), STOCK, "压测商品");
+        }
+        hotProductIds.addAll(jdbcTemplate.queryForList("SELECT id FROM \"product\" ORDER BY id", Long.class));
+        productCache.invalidateAll();
+        if (engine != null) {
+            engine.rebuild();
+        }
+    }
+
+    @Test
+    void singleOrdersNeverOversell() throws Exception {
+        LoadStats stats = run("单个下单 /order/add", i -> singleOrder());
+        verify(stats);
+    }
+
+    @Test
+    void batchOrdersNeverOversell() throws Exception {
+        LoadStats stats = run("批量下单 /order/add/batch", i -> batchOrder());
+        verify(stats);
+    }
+
+    @Test
+    void mixedOrdersNeverOversell() throws Exception {
+        LoadStats stats = run("混合下单", i -> i % 2 == 0 ? singleOrder() : batchOrder());
+        verify(stats);
+    }
+
+    @Test
+    void orderMetricsAreExposed() throws Exception {
+        run("单个下单 /order/add（指标）", i -> singleOrder());
+        assertThat(scrapeMetrics()).contains("shop_order_phase_seconds_bucket", "shop_order_batch_size", "shop_sql_duration_seconds_bucket",
+                "shop_order_placed_total", "shop_order_events_lag_seconds_bucket", "shop_admission_limit", "shop_admission_rejected_total");
+
+        // 销售统计由订单事件增量更新，压测商品应出现在排行榜中
+        HttpRequest top = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/admin/analytics/top-products?limit=5"))
+                .GET().build();
+        HttpResponse<String> response = httpClient.send(top, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("\"productId\":" + hotProductIds.get(0));
+    }
+
+    /**
+     * 同一个 Idempotency-Key 的请求并发重复提交：只创建一次订单，所有请求拿到相同的响应
+     */
+    @Test
+    void duplicateSubmissionsCreateOneOrder() throws Exception {
+        int copies = 20;
+        String singleKey = UUID.randomUUID().toString();
+        LoadRequest single = singleOrder();
+        String singleBody = null;
+        for (LoadRequest request : List.of(single, batchOrder())) {
+            String key = request == single ? singleKey : UUID.randomUUID().toString();
+            CountDownLatch startGate = new CountDownLatch(1);
+            List<HttpResponse<String>> responses = Collections.synchronizedList(new ArrayList<>());
+            ExecutorService clients = Executors.newFixedThreadPool(copies);
+            for (int i = 0; i < copies; i++) {
+                clients.execute(() -> {
+                    try {
+                        startGate.await();
+                        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + request.path()))
+                                .header("Content-Type", "application/json")
+                                .header("Idempotency-Key", key)
+                                .POST(HttpRequest.BodyPublishers.ofString(request.body()))
+                                .build();
+                        responses.add(httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString()));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+            startGate.countDown();
+            clients.shutdown();
+            assertThat(clients.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+            assertThat(responses).hasSize(copies);
+            assertThat(responses).allSatisfy(r -> assertThat(r.statusCode()).isEqualTo(200));
+            assertThat(responses.stream().map(HttpResponse::body).distinct()).hasSize(1);
+            if (request == single) {
+                singleBody = responses.get(0).body();
+            } else {
+                assertThat(responses.get(0).body()).containsPattern("\"data\":\\[\"\\d+\"(,\"\\d+\")*]");
+            }
+        }
+        // 模拟重启 / 其他节点（绕过内存缓存）：数据库中的幂等键仍能识别重复提交，返回原订单 ID
+        Long originalId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM \"order\"", Long.class);
+        Long userId = jdbcTemplate.queryForObject("SELECT user_id FROM \"order\" WHERE id = ?", Long.class, originalId);
+        String scopedKey = "add:" + userId + ":" + singleKey;
+        Order replay = new Order();
+        replay.setUserId(userId);
+        replay.setProductId(single.items().get(0)[0]);
+        replay.setNum(1);
+        orderService.addOrder(replay, scopedKey);
+        assertThat(replay.getId()).isEqualTo(originalId);
+        // 响应中的订单 ID 是字符串（超出 JS Number 安全整数范围）
+        assertThat(singleBody).contains("\"data\":\"" + originalId + "\"");
+
+        Long orderCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order\"", Long.class);
+        Long keyCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order_idempotency_key\"", Long.class);
+        // 单个下单 1 个订单 + 批量下单的 2~3 个订单
+        assertThat(orderCount).isBetween(3L, 4L);
+        assertThat(keyCount).isEqualTo(2L);
+
+        // 其他用户使用相同的键：正常下单，拿不到原用户的订单 ID
+        Order otherUser = new Order();
+        otherUser.setUserId(userId + 1);
+        otherUser.setProductId(single.items().get(0)[0]);
+        otherUser.setNum(1);
+        orderService.addOrder(otherUser, scopedKey);
+        assertThat(otherUser.getId()).isNotNull().isNotEqualTo(originalId);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order\"", Long.class)).isEqualTo(orderCount + 1);
+    }
+
+    /**
+     * 条件 GET：商品未变化时 If-None-Match 返回 304，下单改库存后返回新的 ETag
+     */
+    @Test
+    void productEtagsRevalidateAfterOrder() throws Exception {
+        long productId = hotProductIds.get(0);
+        for (String path : List.of("/product/" + productId, "/product/all")) {
+            HttpResponse<String> first = get(path, null);
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+            assertThat(etag).startsWith("W/");
+            assertThat(get(path, etag).statusCode()).isEqualTo(304);
+
+            LoadRequest order = singleOrder();
+            send(new LoadRequest(order.path(),
+                    "{\"userId\":1,\"productId\":" + productId + ",\"num\":1}", order.items()),
+                    new LoadStats(hotProductIds, 1));
+            StockReservationEngine engine = stockEngine.getIfAvailable();
+            if (engine != null) {
+                engine.flush();
+            }
+            HttpResponse<String> changed = get(path, etag);
+            assertThat(changed.statusCode()).as(path).isEqualTo(200);
+            assertThat(changed.headers().firstValue("ETag")).get().isNotEqualTo(etag);
+        }
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    protected List<Long> hotProductIds() {
+        return hotProductIds;
+    }
+
+    /**
+     * 读取 /actuator/prometheus
+     */
+    protected String scrapeMetrics() throws Exception {
+        HttpRequest scrape = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/prometheus")).GET().build();
+        return httpClient.send(scrape, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private LoadRequest singleOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long productId = hotProductIds.get(random.nextInt(hotProductIds.size()));
+        int num = random.nextInt(1, 4);
+        String body = "{\"userId\":" + random.nextLong(1, 10_000) + ",\"productId\":" + productId + ",\"num\":" + num + "}";
+        return new LoadRequest("/order/add", body, List.<long[]>of(new long[]{productId, num}));
+    }
+
+    private LoadRequest batchOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int itemCount = random.nextInt(2, 4);
+        List<long[]> items = new ArrayList<>(itemCount);
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < itemCount; i++) {
+            long productId = hotProductIds.get(random.nextInt(hotProductIds.size()));
+            int num = random.nextInt(1, 4);
+            items.add(new long[]{productId, num});
+            json.add("{\"productId\":" + productId + ",\"num\":" + num + "}");
+        }
+        String body = "{\"userId\":" + random.nextLong(1, 10_000) + ",\"items\":" + json + "}";
+        return new LoadRequest("/order/add/batch", body, items);
+    }
+
+    private LoadStats run(String name, IntFunction<LoadRequest> requestFactory) throws Exception {
+        LoadStats stats = new LoadStats(hotProductIds, REQUESTS);
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                LoadRequest request = requestFactory.apply(i);
+                clients.execute(() -> send(request, stats));
+            }
+        } finally {
+            clients.shutdown();
+            assertThat(clients.awaitTermination(5, TimeUnit.MINUTES)).as("压测超时").isTrue();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        double[] p = stats.latency.percentilesMillis();
+        System.out.printf("%n[%s] %s：请求 %d，并发 %d，成功 %d，库存不足 %d，限流 %d，错误 %d，耗时 %.2fs，吞吐 %.0f req/s，"
+                        + "延迟 p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+                getClass().getSimpleName(), name, REQUESTS, CONCURRENCY, stats.succeeded.get(), stats.rejected.get(),
+                stats.shed.get(), stats.failed.get(), seconds, REQUESTS / seconds, p[0], p[1], p[2], p[3]);
+        return stats;
+    }
+
+    private void send(LoadRequest request, LoadStats stats) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + request.path()))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(request.body()))
+                .build();
+        long start = System.nanoTime();
+        int status;
+        boolean retryAfter = false;
+        try {
+            HttpResponse<Void> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+            status = response.statusCode();
+            retryAfter = response.headers().firstValue("Retry-After").isPresent();
+        } catch (Exception e) {
+            status = -1;
+        }
+        stats.latency.record(System.nanoTime() - start);
+        if (status == 200) {
+            stats.succeeded.incrementAndGet();
+            for (long[] item : request.items()) {
+                stats.soldByProduct.get(item[0]).addAndGet(item[1]);
+                stats.orders.incrementAndGet();
+            }
+        } else if (status == 400) {
+            stats.rejected.incrementAndGet();
+        } else if ((status == 429 || status == 503) && retryAfter) {
+            stats.shed.incrementAndGet();
+        } else {
+            stats.failed.incrementAndGet();
+        }
+    }
+
+    private void verify(LoadStats stats) throws InterruptedException {
+        // 内存库存引擎模式下扣减量异步回写，校验前先回写
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        if (engine != null) {
+            engine.flush();
+        }
+
+        assertThat(stats.failed.get()).as("非 200 / 400 / 准入拒绝的响应数").isZero();
+
+        Map<Long, Long> orderedByProduct = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, SUM(num) AS total FROM \"order\" GROUP BY product_id",
+                rs -> {
+                    orderedByProduct.put(rs.getLong("product_id"), rs.getLong("total"));
+                });
+        Long orderCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order\"", Long.class);
+        assertThat(orderCount).as("订单数 = 成功响应的订单数").isEqualTo(stats.orders.get());
+        // 每个订单在发件箱中有一条事件，转发线程应在短时间内全部取出
+        long deadline = System.currentTimeMillis() + 10_000;
+        Long pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order_outbox\"", Long.class);
+        while (pending > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order_outbox\"", Long.class);
+        }
+        assertThat(pending).as("发件箱中未投递的订单事件数").isZero();
+
+        for (Long productId : hotProductIds) {
+            // 分桶商品的库存 = 商品行 + 各桶
+            Integer stock = jdbcTemplate.queryForObject("SELECT p.stock + COALESCE((SELECT SUM(b.stock) FROM \"product_stock_bucket\" b "
+                    + "WHERE b.product_id = p.id), 0) FROM \"product\" p WHERE p.id = ?", Integer.class, productId);
+            Integer negativeBuckets = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM \"product_stock_bucket\" WHERE product_id = ? AND stock < 0", Integer.class, productId);
+            assertThat(negativeBuckets).as("商品 %d 的库存桶不能为负数", productId).isZero();
+            long ordered = orderedByProduct.getOrDefault(productId, 0L);
+            assertThat(stock).as("商品 %d 库存不能为负数", productId).isNotNegative();
+            assertThat(ordered).as("商品 %d 订单数量之和 = 消耗的库存", productId).isEqualTo((long) STOCK - stock);
+            assertThat(ordered).as("商品 %d 订单数量之和 = 成功响应的数量之和", productId)
+                    .isEqualTo(stats.soldByProduct.get(productId).get());
+            System.out.printf("  商品 %d：初始库存 %d，剩余 %d，订单数量 %d%n", productId, STOCK, stock, ordered);
+        }
+    }
+}
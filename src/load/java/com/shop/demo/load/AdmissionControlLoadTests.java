@@ -0,0 +1,161 @@
+package com.shop.demo.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 下单准入控制（并发上限 4、排队 4 个 / 50ms、延迟阈值 100ms、每用户突发 3 次）
+ * 1. 同一用户连续下单超出突发容量返回 429 + Retry-After
+ * 2. 模拟数据库变慢（另一个事务长时间持有商品行锁）：超出并发上限和队列的下单立即返回 503 + Retry-After，
+ * 不占用请求线程和连接；期间商品查询不受影响；慢请求结束后并发上限下调
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "shop.admission.user-rate=1",
+        "shop.admission.user-burst=3",
+        "shop.admission.initial-limit=4",
+        "shop.admission.min-limit=2",
+        "shop.admission.max-limit=8",
+        "shop.admission.latency-threshold=100ms",
+        "shop.admission.queue-size=4",
+        "shop.admission.queue-timeout=50ms"
+})
+@ActiveProfiles("load")
+@DirtiesContext
+@ExtendWith(LocalPostgres.Lifecycle.class)
+class AdmissionControlLoadTests {
+
+    private static final int CONCURRENCY = 30;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        LocalPostgres.register(registry);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private long productId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE \"order\", \"product\", \"product_stock_bucket\", \"order_idempotency_key\", \"order_outbox\" RESTART IDENTITY");
+        productId = jdbcTemplate.queryForObject(
+                "INSERT INTO \"product\" (name, price, stock) VALUES ('准入测试商品', 10.00, 1000) RETURNING id", Long.class);
+    }
+
+    @Test
+    void userRateLimitReturns429WithRetryAfter() throws Exception {
+        List<HttpResponse<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            responses.add(order(7));
+        }
+        assertThat(responses.subList(0, 3)).allSatisfy(r -> assertThat(r.statusCode()).isEqualTo(200));
+        HttpResponse<String> limited = responses.get(5);
+        assertThat(limited.statusCode()).isEqualTo(429);
+        assertThat(limited.headers().firstValue("Retry-After")).get().satisfies(v -> assertThat(Long.parseLong(v)).isPositive());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order\"", Long.class)).isEqualTo(
+                responses.stream().filter(r -> r.statusCode() == 200).count());
+    }
+
+    @Test
+    void stalledDatabaseShedsOrdersWhileCatalogReadsStayFast() throws Exception {
+        List<HttpResponse<String>> responses = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        try (Connection lockHolder = dataSource.getConnection()) {
+            lockHolder.setAutoCommit(false);
+            try (PreparedStatement lock = lockHolder.prepareStatement("SELECT id FROM \"product\" WHERE id = ? FOR UPDATE")) {
+                lock.setLong(1, productId);
+                lock.executeQuery().close();
+            }
+            CountDownLatch startGate = new CountDownLatch(1);
+            for (int i = 0; i < CONCURRENCY; i++) {
+                long userId = 100 + i;
+                clients.execute(() -> {
+                    try {
+                        startGate.await();
+                        responses.add(order(userId));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+            startGate.countDown();
+            Thread.sleep(500);
+
+            // 下单被行锁卡住期间，商品查询照常返回
+            long start = System.nanoTime();
+            assertThat(get("/product/" + productId).statusCode()).isEqualTo(200);
+            assertThat(get("/product/all").statusCode()).isEqualTo(200);
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+            // 超出并发上限 + 队列的请求已经快速失败
+            assertThat(responses.stream().filter(r -> r.statusCode() == 503).count()).isGreaterThanOrEqualTo(CONCURRENCY - 8);
+            Thread.sleep(500);
+            lockHolder.rollback();
+        } finally {
+            clients.shutdown();
+            assertThat(clients.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        }
+
+        long succeeded = responses.stream().filter(r -> r.statusCode() == 200).count();
+        List<HttpResponse<String>> shed = responses.stream().filter(r -> r.statusCode() == 503).toList();
+        System.out.printf("%n[准入控制] 数据库停顿 1s：%d 个下单请求，成功 %d，503 %d%n", CONCURRENCY, succeeded, shed.size());
+        assertThat(responses).hasSize(CONCURRENCY);
+        assertThat(succeeded + shed.size()).isEqualTo(CONCURRENCY);
+        assertThat(succeeded).isBetween(1L, 4L);
+        assertThat(shed).allSatisfy(r -> assertThat(r.headers().firstValue("Retry-After")).isPresent());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"order\"", Long.class)).isEqualTo(succeeded);
+
+        String metrics = get("/actuator/prometheus").body();
+        assertThat(metrics).contains("shop_admission_rejected_total{reason=\"queue_full\"}",
+                "shop_admission_rejected_total{reason=\"queue_timeout\"}", "shop_admission_queue");
+        // 慢请求（约 1s > 100ms 阈值）结束后并发上限从 4 下调
+        assertThat(metrics).containsPattern("shop_admission_limit\\S* [23]\\.0");
+    }
+
+    private HttpResponse<String> order(long userId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/order/add"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"userId\":" + userId + ",\"productId\":" + productId + ",\"num\":1}"))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
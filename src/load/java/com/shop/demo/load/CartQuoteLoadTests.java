@@ -0,0 +1,130 @@
+package com.shop.demo.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 购物车报价：关闭商品缓存，50 个商品每次都由一条 id = ANY(?) 查询取回
+ * 1. 单价 / 行金额 / 合计与下单金额计算一致，库存不足和不存在的商品单独标记，同一商品多行按合计件数判断库存
+ * 2. 50 个商品的报价整体（含 HTTP）在几毫秒内返回
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "shop.product-cache.enabled=false"
+})
+@ActiveProfiles("load")
+@DirtiesContext
+@ExtendWith(LocalPostgres.Lifecycle.class)
+class CartQuoteLoadTests {
+
+    private static final int CART_SIZE = 50;
+    private static final int REQUESTS = 500;
+    private static final long MISSING_PRODUCT_ID = 9999;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        LocalPostgres.register(registry);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE \"order\", \"product\", \"product_stock_bucket\", \"order_idempotency_key\", \"order_outbox\" RESTART IDENTITY");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= CART_SIZE + 10; i++) {
+            // 第 i 个商品单价 i.25，最后一个购物车商品只剩 1 件
+            rows.add(new Object[]{"报价商品" + i, new BigDecimal(i + ".25"), i == CART_SIZE ? 1 : 100});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO \"product\" (name, price, stock) VALUES (?, ?, ?)", rows);
+    }
+
+    @Test
+    void quotesWholeCartInOneRoundTrip() throws Exception {
+        StringJoiner items = new StringJoiner(",", "{\"items\":[", "]}");
+        for (int i = 1; i <= CART_SIZE; i++) {
+            items.add("{\"productId\":" + i + ",\"num\":2}");
+        }
+        items.add("{\"productId\":" + MISSING_PRODUCT_ID + ",\"num\":1}");
+        String body = items.toString();
+
+        HttpResponse<String> response = quote(body);
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        // 2 × i.25 求和（不含不存在的商品）
+        assertThat(response.body()).contains(
+                "\"productId\":1,\"productName\":\"报价商品1\",\"unitPrice\":1.25,\"num\":2,\"lineTotal\":2.50,\"stock\":100,\"availability\":\"AVAILABLE\"",
+                "\"productId\":" + CART_SIZE + ",\"productName\":\"报价商品" + CART_SIZE + "\",\"unitPrice\":" + CART_SIZE + ".25,\"num\":2,\"lineTotal\":" + (2 * CART_SIZE) + ".50,\"stock\":1,\"availability\":\"INSUFFICIENT_STOCK\"",
+                "\"productId\":" + MISSING_PRODUCT_ID + ",\"productName\":null",
+                "\"availability\":\"NOT_FOUND\"",
+                "\"total\":2575.00",
+                "\"available\":false");
+
+        long[] latencies = new long[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            long start = System.nanoTime();
+            assertThat(quote(body).statusCode()).isEqualTo(200);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        double p50 = latencies[REQUESTS / 2] / 1e6;
+        double p99 = latencies[REQUESTS * 99 / 100] / 1e6;
+        System.out.printf("%n[购物车报价] %d 个商品（不走缓存）%d 次：p50 %.2f ms，p99 %.2f ms%n", CART_SIZE, REQUESTS, p50, p99);
+        assertThat(latencies[REQUESTS / 2]).isLessThan(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    void duplicateLinesAreCheckedAgainstCombinedNum() throws Exception {
+        // 商品 1 库存 100：单行都不超过库存，合计 101 件超过
+        HttpResponse<String> response = quote("{\"items\":[{\"productId\":1,\"num\":60},{\"productId\":1,\"num\":41}]}");
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        assertThat(response.body()).contains(
+                "\"num\":60,\"lineTotal\":75.00,\"stock\":100,\"availability\":\"INSUFFICIENT_STOCK\"",
+                "\"num\":41,\"lineTotal\":51.25,\"stock\":100,\"availability\":\"INSUFFICIENT_STOCK\"",
+                "\"available\":false");
+        assertThat(response.body()).doesNotContain("\"availability\":\"AVAILABLE\"");
+
+        assertThat(quote("{\"items\":[{\"productId\":1,\"num\":60},{\"productId\":1,\"num\":40}]}").body())
+                .contains("\"available\":true");
+    }
+
+    @Test
+    void rejectsInvalidCart() throws Exception {
+        assertThat(quote("{\"items\":[]}").statusCode()).isEqualTo(400);
+        assertThat(quote("{\"items\":[{\"productId\":1,\"num\":0}]}").statusCode()).isEqualTo(400);
+    }
+
+    private HttpResponse<String> quote(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/product/quote"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,10 @@
+package com.shop.demo.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * 开启下单请求合并（group commit）：同一商品的并发单个下单合并为一个事务
+ */
+@TestPropertySource(properties = "shop.order.coalescing.enabled=true")
+class CoalescingOrderLoadTests extends AbstractOrderLoadTests {
+}
@@ -0,0 +1,47 @@
+package com.shop.demo.load;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压测延迟记录：预分配数组，每个请求写入一个槽位（无锁），结束后排序计算分位数
+ */
+final class LatencyRecorder {
+
+    private final long[] nanos;
+    private final AtomicInteger count = new AtomicInteger();
+
+    LatencyRecorder(int capacity) {
+        this.nanos = new long[capacity];
+    }
+
+    void record(long elapsedNanos) {
+        int index = count.getAndIncrement();
+        if (index < nanos.length) {
+            nanos[index] = elapsedNanos;
+        }
+    }
+
+    /**
+     * 计算分位数（毫秒），返回 [p50, p99, p999, max]
+     */
+    double[] percentilesMillis() {
+        int size = Math.min(count.get(), nanos.length);
+        if (size == 0) {
+            return new double[4];
+        }
+        long[] sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+        return new double[]{
+                millis(sorted, 0.50),
+                millis(sorted, 0.99),
+                millis(sorted, 0.999),
+                sorted[size - 1] / 1_000_000.0
+        };
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
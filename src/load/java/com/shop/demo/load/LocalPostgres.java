@@ -0,0 +1,107 @@
+package com.shop.demo.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 压测用的本地 PostgreSQL
+ * <p>
+ * 指定了 -Dshop.test.db.url 时直接使用该库（需为可清空的测试库）；否则启动一个内嵌 PostgreSQL，
+ * 整个测试 JVM 共用一个实例。表结构由 application-load.yml 中的 spring.sql.init 创建。
+ * 读写分离测试另需一个库充当只读副本：-Dshop.test.replica.url 指定，否则再启动一个内嵌实例（两个库之间没有复制）。
+ * <p>
+ * 使用内嵌库的测试类需标注 @ExtendWith(LocalPostgres.Lifecycle.class) 和 @DirtiesContext：
+ * 每个测试类结束时先关闭它的 Spring 上下文，全部测试结束后再关闭内嵌库。
+ * 不用 JVM 关闭钩子，否则数据库会和上下文的关闭钩子同时关闭，连接池在关闭过程中报错并拖慢 fork 退出。
+ */
+public final class LocalPostgres {
+
+    private static EmbeddedPostgres embedded;
+    private static EmbeddedPostgres replica;
+
+    private LocalPostgres() {
+    }
+
+    public static synchronized void register(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("shop.test.db.url");
+        if (url != null && !url.isBlank()) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("shop.test.db.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("shop.test.db.password", ""));
+            return;
+        }
+        if (embedded == null) {
+            embedded = start();
+        }
+        String jdbcUrl = embedded.getJdbcUrl("postgres", "postgres");
+        registry.add("spring.datasource.url", () -> jdbcUrl);
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    /**
+     * 注入只读副本的连接属性（shop.jdbc.replica.*），返回副本的 JDBC 地址（表结构需由调用方创建）
+     */
+    public static synchronized String registerReplica(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("shop.test.replica.url");
+        String username = System.getProperty("shop.test.replica.username", "postgres");
+        String password = System.getProperty("shop.test.replica.password", "");
+        if (url == null || url.isBlank()) {
+            if (replica == null) {
+                replica = start();
+            }
+            url = replica.getJdbcUrl("postgres", "postgres");
+            password = "postgres";
+        }
+        String jdbcUrl = url;
+        String jdbcPassword = password;
+        registry.add("shop.jdbc.replica.enabled", () -> "true");
+        registry.add("shop.jdbc.replica.url", () -> jdbcUrl);
+        registry.add("shop.jdbc.replica.username", () -> username);
+        registry.add("shop.jdbc.replica.password", () -> jdbcPassword);
+        return jdbcUrl;
+    }
+
+    private static EmbeddedPostgres start() {
+        EmbeddedPostgres postgres;
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("内嵌 PostgreSQL 启动失败，可改用 -Dshop.test.db.url 指定本地库", e);
+        }
+        return postgres;
+    }
+
+    private static synchronized void stop() throws IOException {
+        try {
+            if (embedded != null) {
+                embedded.close();
+            }
+        } finally {
+            embedded = null;
+            if (replica != null) {
+                replica.close();
+                replica = null;
+            }
+        }
+    }
+
+    /**
+     * 在 JUnit 根上下文中登记关闭动作：所有测试类（及其 afterAll 中关闭的 Spring 上下文）结束后关闭内嵌库
+     */
+    public static class Lifecycle implements BeforeAllCallback {
+
+        private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(LocalPostgres.class);
+
+        @Override
+        public void beforeAll(ExtensionContext context) {
+            context.getRoot().getStore(NAMESPACE)
+                    .computeIfAbsent(Lifecycle.class, key -> (AutoCloseable) LocalPostgres::stop, AutoCloseable.class);
+        }
+    }
+}
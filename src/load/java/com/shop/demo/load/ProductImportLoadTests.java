@@ -0,0 +1,119 @@
+package com.shop.demo.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 批量导入压测：流式上传 -Dload.import-rows（默认 200000）行 CSV，其中每 1000 行有一行价格非法，
+ * 校验导入 / 拒绝行数与数据库一致，并输出导入速度
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("load")
+@DirtiesContext
+@ExtendWith(LocalPostgres.Lifecycle.class)
+class ProductImportLoadTests {
+
+    private static final int ROWS = Integer.getInteger("load.import-rows", 200_000);
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        LocalPostgres.register(registry);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetData() {
+        jdbcTemplate.execute("TRUNCATE \"order\", \"product\", \"product_stock_bucket\", \"order_idempotency_key\", \"order_outbox\" RESTART IDENTITY");
+    }
+
+    @Test
+    void csvImportStreamsRowsAndReportsRejections() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/product/import?format=csv"))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(ProductImportLoadTests::csv))
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        System.out.printf("%n[批量导入] %d 行：%s%n", ROWS, response.body().replaceAll("\"rejections\":\\[.*]", "\"rejections\":[...]"));
+
+        int invalid = ROWS / 1000;
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).contains("\"imported\":" + (ROWS - invalid), "\"rejected\":" + invalid);
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"product\"", Long.class);
+        assertThat(count).isEqualTo(ROWS - invalid);
+        // 带引号、逗号、换行的描述原样写入
+        String description = jdbcTemplate.queryForObject("SELECT description FROM \"product\" WHERE name = '商品-2'", String.class);
+        assertThat(description).isEqualTo("说明 \"2\",\n第二行");
+
+        // 导入后搜索索引在后台全量重建，所有商品的描述都含“说明”
+        String search = "http://localhost:" + port + "/product/search?inStock=false&q="
+                + URLEncoder.encode("说明", StandardCharsets.UTF_8);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        String body;
+        do {
+            Thread.sleep(200);
+            body = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(search)).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+        } while (!body.contains("\"total\":" + (ROWS - invalid)) && System.nanoTime() < deadline);
+        System.out.printf("[商品搜索] %s%n", body.replaceAll("\"items\":\\[.*]", "\"items\":[...]"));
+        assertThat(body).contains("\"total\":" + (ROWS - invalid));
+    }
+
+    /**
+     * 逐块生成 CSV（模拟大文件上传，不在内存中拼出整个文件）
+     */
+    private static InputStream csv() {
+        return new SequenceInputStream(new Enumeration<>() {
+            private int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < ROWS;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                StringBuilder sb = new StringBuilder();
+                if (next < 0) {
+                    sb.append("name,price,stock,description\n");
+                    next = 0;
+                }
+                for (int end = Math.min(next + 1000, ROWS); next < end; next++) {
+                    int i = next + 1;
+                    String price = i % 1000 == 0 ? "-1" : "19.90";
+                    sb.append("商品-").append(i).append(',').append(price).append(',').append(i % 50)
+                            .append(",\"说明 \"\"").append(i).append("\"\",\n第二行\"\n");
+                }
+                return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+}
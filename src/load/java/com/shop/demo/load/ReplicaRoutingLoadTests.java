@@ -0,0 +1,113 @@
+package com.shop.demo.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 读写分离：主库和副本是两个独立的库（没有复制），同一商品在两边名称不同，以此区分查询实际走了哪个库
+ * 1. 商品详情（只读事务）读副本
+ * 2. 下单写主库；读己之写窗口内该用户的订单查询读主库，窗口过后读副本（副本上没有订单）
+ * 3. 两个连接池的 hikaricp 指标按 pool 标签分开
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "shop.product-cache.enabled=false",
+        "shop.jdbc.replica.read-your-writes-window=300ms"
+})
+@ActiveProfiles("load")
+@DirtiesContext
+@ExtendWith(LocalPostgres.Lifecycle.class)
+class ReplicaRoutingLoadTests {
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        LocalPostgres.register(registry);
+        LocalPostgres.registerReplica(registry);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private long productId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // spring.sql.init 只在主库上建表，副本的表结构在这里创建（HikariCP 的只读连接上执行 DDL，先临时关闭只读）
+        try (Connection connection = replica.getConnection()) {
+            connection.setReadOnly(false);
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/schema.sql"));
+            connection.setReadOnly(true);
+        }
+        JdbcTemplate primaryJdbc = new JdbcTemplate(primary);
+        primaryJdbc.execute("TRUNCATE \"order\", \"product\", \"product_stock_bucket\", \"order_idempotency_key\", \"order_outbox\" RESTART IDENTITY");
+        productId = primaryJdbc.queryForObject(
+                "INSERT INTO \"product\" (name, price, stock) VALUES ('主库商品', 10.00, 100) RETURNING id", Long.class);
+        try (Connection connection = replica.getConnection()) {
+            connection.setReadOnly(false);
+            JdbcTemplate replicaJdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            replicaJdbc.execute("TRUNCATE \"order\", \"product\", \"product_stock_bucket\", \"order_idempotency_key\", \"order_outbox\" RESTART IDENTITY");
+            replicaJdbc.update("INSERT INTO \"product\" (id, name, price, stock) VALUES (?, '副本商品', 10.00, 100)", productId);
+            connection.setReadOnly(true);
+        }
+    }
+
+    @Test
+    void readOnlyQueriesUseReplicaExceptRecentWriters() throws Exception {
+        assertThat(send("GET", "/product/" + productId, null).body()).contains("副本商品").doesNotContain("主库商品");
+
+        long userId = 42;
+        HttpResponse<String> order = send("POST", "/order/add",
+                "{\"userId\":" + userId + ",\"productId\":" + productId + ",\"num\":1}");
+        assertThat(order.statusCode()).as(order.body()).isEqualTo(200);
+
+        // 读己之写窗口内：主库，能看到刚创建的订单
+        assertThat(send("GET", "/order/user/" + userId, null).body()).contains("主库商品");
+        // 窗口过后：副本（副本上没有这笔订单）
+        Thread.sleep(600);
+        assertThat(send("GET", "/order/user/" + userId, null).body()).contains("\"data\":[]");
+
+        HttpResponse<String> metrics = send("GET", "/actuator/prometheus", null);
+        assertThat(metrics.body()).contains("hikaricp_connections_active{pool=\"primary\"}",
+                "hikaricp_connections_active{pool=\"replica\"}");
+    }
+
+    private HttpResponse<String> send(String method, String path, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (json == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,10 @@
+package com.shop.demo.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * 开启内存库存预留引擎：下单无行锁，扣减量异步批量回写数据库
+ */
+@TestPropertySource(properties = "shop.stock.reservation.enabled=true")
+class ReservationOrderLoadTests extends AbstractOrderLoadTests {
+}
@@ -0,0 +1,7 @@
+package com.shop.demo.load;
+
+/**
+ * 默认下单实现：SELECT ... FOR UPDATE 行锁 + updateStock 条件扣减
+ */
+class RowLockOrderLoadTests extends AbstractOrderLoadTests {
+}
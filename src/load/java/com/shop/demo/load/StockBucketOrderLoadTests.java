@@ -0,0 +1,25 @@
+package com.shop.demo.load;
+
+import com.shop.demo.stock.StockBuckets;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * 库存分桶：每个热门商品的库存拆成 -Dload.stock-buckets（默认 8）个桶，单个下单只锁其中一个桶
+ */
+@TestPropertySource(properties = "shop.stock.buckets.enabled=true")
+class StockBucketOrderLoadTests extends AbstractOrderLoadTests {
+
+    private static final int BUCKETS = Integer.getInteger("load.stock-buckets", 8);
+
+    @Autowired
+    private StockBuckets stockBuckets;
+
+    @BeforeEach
+    void splitHotProducts() {
+        for (Long productId : hotProductIds()) {
+            stockBuckets.split(productId, BUCKETS);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.shop.demo.load;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 虚拟线程模式：Tomcat 请求运行在虚拟线程上，JDBC 并发闸门限制同时持有连接的读 / 写线程数
+ */
+@ActiveProfiles("virtual-threads")
+class VirtualThreadOrderLoadTests extends AbstractOrderLoadTests {
+
+    @Test
+    void jdbcGateIsActive() throws Exception {
+        assertThat(scrapeMetrics()).contains("shop_jdbc_gate_wait_seconds_count{kind=\"write\"", "shop_jdbc_gate_wait_seconds_count{kind=\"read\"");
+    }
+}
@@ -3,11 +3,15 @@ package com.shop.demo;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
-@MapperScan("com.shop.demo.mapper") // 确保 Mapper 扫描路径正确
+@MapperScan(basePackages = "com.shop.demo.mapper", sqlSessionTemplateRef = "sqlSessionTemplate") // 显式引用 SqlSessionTemplate（AOT 生成代码不依赖按类型装配）
 @EnableTransactionManagement // 开启事务管理
+@EnableScheduling // 开启定时任务（库存回写等）
+@ConfigurationPropertiesScan // 扫描 @ConfigurationProperties 配置类
 public class ShopDemoApplication {
     public static void main(String[] args) {
         SpringApplication.run(ShopDemoApplication.class, args);
@@ -0,0 +1,112 @@
+package com.shop.demo.admission;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发上限（AIMD）
+ * <p>
+ * 1. 每个请求结束时按耗时调整上限：超过阈值视为过载，上限乘以 backoff（每个阈值周期最多减一次，
+ * 避免同一批慢请求把上限连续压到底）；未超过且并发已用到一半以上时，上限增加 1 / limit（约每轮 + 1）
+ * 2. 超出上限的请求最多排队 queueSize 个、等待 queueTimeout，超时或队列满即拒绝
+ */
+final class AdaptiveLimit {
+
+    /**
+     * 申请名额的结果
+     */
+    enum Outcome {
+        ACQUIRED, QUEUE_FULL, QUEUE_TIMEOUT
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long thresholdNanos;
+    private final double backoffRatio;
+    private final int queueSize;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+    private volatile double limit;
+    private volatile int inflight;
+    private volatile int queued;
+    private long lastDecreaseNanos;
+
+    AdaptiveLimit(AdmissionProperties properties) {
+        this.minLimit = Math.max(1, properties.getMinLimit());
+        this.maxLimit = Math.max(minLimit, properties.getMaxLimit());
+        this.thresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = Math.min(0.99, Math.max(0.1, properties.getBackoffRatio()));
+        this.queueSize = Math.max(0, properties.getQueueSize());
+        this.limit = Math.min(maxLimit, Math.max(minLimit, properties.getInitialLimit()));
+        this.lastDecreaseNanos = System.nanoTime() - thresholdNanos;
+    }
+
+    /**
+     * 取一个并发名额，超出上限时排队等待
+     */
+    Outcome acquire(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inflight < (int) limit) {
+                inflight++;
+                return Outcome.ACQUIRED;
+            }
+            if (queued >= queueSize) {
+                return Outcome.QUEUE_FULL;
+            }
+            queued++;
+            try {
+                long remaining = timeoutNanos;
+                while (inflight >= (int) limit) {
+                    if (remaining <= 0) {
+                        return Outcome.QUEUE_TIMEOUT;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                inflight++;
+                return Outcome.ACQUIRED;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还名额并按本次耗时调整上限
+     *
+     * @param latencyNanos 持有名额的时间（下单事务耗时）
+     */
+    void release(long latencyNanos, long nowNanos) {
+        lock.lock();
+        try {
+            if (latencyNanos > thresholdNanos) {
+                if (nowNanos - lastDecreaseNanos >= thresholdNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = nowNanos;
+                }
+            } else if (inflight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inflight--;
+            if (queued > 0) {
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inflight() {
+        return inflight;
+    }
+
+    int queued() {
+        return queued;
+    }
+}
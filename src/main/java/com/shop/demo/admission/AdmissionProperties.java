@@ -0,0 +1,38 @@
+package com.shop.demo.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 下单准入控制配置（前缀 shop.admission）
+ * <p>
+ * 只作用于下单接口（/order/add、/order/add/batch），商品查询不经过准入控制。
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.admission")
+public class AdmissionProperties {
+    // 是否启用
+    private boolean enabled = true;
+    // 每个用户每秒可下单次数（令牌桶速率），<= 0 不限
+    private double userRate = 5;
+    // 每个用户的突发容量（连续点击 / 重试）
+    private int userBurst = 10;
+    // 同时跟踪的用户数上限（超出按最近最少使用淘汰，被淘汰的用户桶视为满）
+    private long maxTrackedUsers = 100_000;
+    // 全局每秒下单次数，<= 0 不限
+    private double globalRate = 2000;
+    // 全局突发容量
+    private int globalBurst = 4000;
+    // 自适应并发上限：初始值 / 下限 / 上限
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    // 下单耗时超过该值视为过载，并发上限乘以 backoff-ratio；否则满载时每轮加 1
+    private Duration latencyThreshold = Duration.ofMillis(500);
+    private double backoffRatio = 0.9;
+    // 超出并发上限时最多排队的请求数，以及排队的最长时间（超出直接返回 503）
+    private int queueSize = 100;
+    private Duration queueTimeout = Duration.ofMillis(200);
+}
@@ -0,0 +1,146 @@
+package com.shop.demo.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shop.demo.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单准入控制：在下单接口执行前依次检查
+ * <p>
+ * 1. 用户令牌桶：同一用户下单过快返回 429（Retry-After 为下一个令牌的等待时间）
+ * 2. 全局令牌桶：总下单速率超过配置返回 503
+ * 3. 自适应并发上限（{@link AdaptiveLimit}）：按下单耗时调整同时执行的下单数，超出时短暂排队，
+ * 队列满或超时返回 503，避免数据库变慢时所有请求线程和连接都堵在行锁上
+ * 商品查询不经过准入控制，下单被拒绝时仍能正常浏览（商品读取大多命中缓存，不占用数据库连接）。
+ * 被拒绝的请求不执行、不缓存幂等结果，客户端可用同一个 Idempotency-Key 重试。
+ */
+@Component
+public class OrderAdmission {
+
+    /**
+     * 已取得的下单名额，下单结束后关闭一次（记录耗时并归还名额）
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * 拒绝原因（指标标签）
+     */
+    enum Reason {
+        USER_RATE, GLOBAL_RATE, QUEUE_FULL, QUEUE_TIMEOUT;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Permit NOOP = () -> {
+    };
+
+    private final AdmissionProperties properties;
+    private final Cache<Long, TokenBucket> userBuckets;
+    private final TokenBucket globalBucket;
+    private final AdaptiveLimit limit;
+    private final long queueTimeoutNanos;
+    private final long overloadRetryAfterSeconds;
+    private final Map<Reason, Counter> rejections = new EnumMap<>(Reason.class);
+
+    public OrderAdmission(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.userBuckets = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, properties.getMaxTrackedUsers()))
+                // 桶在 burst / rate 秒后必然回满，之后不再需要保留
+                .expireAfterAccess(Duration.ofNanos(fullAfterNanos(properties.getUserRate(), properties.getUserBurst())))
+                .build();
+        this.globalBucket = properties.getGlobalRate() > 0
+                ? new TokenBucket(properties.getGlobalRate(), properties.getGlobalBurst(), System.nanoTime())
+                : null;
+        this.limit = new AdaptiveLimit(properties);
+        this.queueTimeoutNanos = properties.getQueueTimeout().toNanos();
+        this.overloadRetryAfterSeconds = Math.max(1, properties.getLatencyThreshold().toSeconds());
+        Gauge.builder("shop.admission.limit", limit, AdaptiveLimit::limit)
+                .description("下单自适应并发上限")
+                .register(meterRegistry);
+        Gauge.builder("shop.admission.inflight", limit, AdaptiveLimit::inflight)
+                .description("正在执行的下单请求数")
+                .register(meterRegistry);
+        Gauge.builder("shop.admission.queue", limit, AdaptiveLimit::queued)
+                .description("等待并发名额的下单请求数")
+                .register(meterRegistry);
+        for (Reason reason : Reason.values()) {
+            rejections.put(reason, Counter.builder("shop.admission.rejected")
+                    .description("准入控制拒绝的下单请求数")
+                    .tag("reason", reason.tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * 申请一个下单名额
+     *
+     * @param userId 下单用户（为 null 时只检查全局限制）
+     * @throws AdmissionRejectedException 被限流（429）或过载保护拒绝（503）
+     */
+    public Permit admit(Long userId) {
+        if (!properties.isEnabled()) {
+            return NOOP;
+        }
+        long now = System.nanoTime();
+        if (userId != null && properties.getUserRate() > 0) {
+            TokenBucket bucket = userBuckets.get(userId,
+                    id -> new TokenBucket(properties.getUserRate(), properties.getUserBurst(), now));
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                throw reject(Reason.USER_RATE, 429, seconds(waitNanos), "下单过于频繁，请稍后重试");
+            }
+        }
+        if (globalBucket != null) {
+            long waitNanos = globalBucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                throw reject(Reason.GLOBAL_RATE, 503, seconds(waitNanos), "下单人数过多，请稍后重试");
+            }
+        }
+        AdaptiveLimit.Outcome outcome;
+        try {
+            outcome = limit.acquire(queueTimeoutNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = AdaptiveLimit.Outcome.QUEUE_TIMEOUT;
+        }
+        if (outcome != AdaptiveLimit.Outcome.ACQUIRED) {
+            Reason reason = outcome == AdaptiveLimit.Outcome.QUEUE_FULL ? Reason.QUEUE_FULL : Reason.QUEUE_TIMEOUT;
+            throw reject(reason, 503, overloadRetryAfterSeconds, "系统繁忙，请稍后重试");
+        }
+        long start = System.nanoTime();
+        return () -> {
+            long end = System.nanoTime();
+            limit.release(end - start, end);
+        };
+    }
+
+    private AdmissionRejectedException reject(Reason reason, int status, long retryAfterSeconds, String message) {
+        rejections.get(reason).increment();
+        return new AdmissionRejectedException(status, retryAfterSeconds, message);
+    }
+
+    private static long seconds(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static long fullAfterNanos(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0) {
+            return TimeUnit.MINUTES.toNanos(1);
+        }
+        return Math.max(TimeUnit.SECONDS.toNanos(1), (long) (TimeUnit.SECONDS.toNanos(1) * Math.max(1, burst) / ratePerSecond));
+    }
+}
@@ -0,0 +1,48 @@
+package com.shop.demo.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶（GCRA：只保存“理论到达时间”一个值）
+ * <p>
+ * 每个令牌间隔 interval 纳秒，理论到达时间比当前时间超前不超过 burst 个间隔即放行，
+ * 否则拒绝并返回需要等待的时间。被拒绝的请求不消耗令牌。
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond 每秒令牌数
+     * @param burst         突发容量（至少 1）
+     * @param nowNanos      当前时间（桶初始为满）
+     */
+    TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.toleranceNanos = intervalNanos * Math.max(1, burst);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @return 0 表示放行，否则为需要等待的纳秒数
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            // nanoTime 只能比较差值
+            long next = (current - nowNanos > 0 ? current : nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > toleranceNanos) {
+                return ahead - toleranceNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
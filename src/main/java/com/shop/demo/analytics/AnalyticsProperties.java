@@ -0,0 +1,22 @@
+package com.shop.demo.analytics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 销售统计配置（前缀 shop.analytics）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.analytics")
+public class AnalyticsProperties {
+    // 是否统计（关闭后不再计数，也不写检查点）
+    private boolean enabled = true;
+    // 检查点写入 sales_summary 的间隔（毫秒）
+    private long checkpointIntervalMs = 10_000;
+    // 保留的分钟桶数（默认 24 小时）
+    private int minuteBuckets = 1440;
+    // 保留的小时桶数（默认 30 天）
+    private int hourBuckets = 720;
+    // 排行榜最多返回的商品数
+    private int maxTop = 100;
+}
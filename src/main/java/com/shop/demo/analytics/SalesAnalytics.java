@@ -0,0 +1,293 @@
+package com.shop.demo.analytics;
+
+import com.shop.demo.cache.ProductCache;
+import com.shop.demo.dto.ProductSales;
+import com.shop.demo.dto.SalesPoint;
+import com.shop.demo.entity.Product;
+import com.shop.demo.entity.SalesSummary;
+import com.shop.demo.event.OrderCreatedEvent;
+import com.shop.demo.mapper.SalesSummaryMapper;
+import com.shop.demo.outbox.OrderEventListener;
+import com.shop.demo.outbox.RecentOrderIds;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * 销售统计：订阅订单事件总线，增量维护各商品与每分钟 / 每小时的销量、销售额、去重买家数
+ * <p>
+ * 1. 计数用 LongAdder（分段累加，无锁），去重买家用 HyperLogLog，时间序列用环形缓冲（最近 24 小时 / 30 天）
+ * 2. 查询只读内存，不扫描订单表；排行榜遍历商品计数取前 N
+ * 3. 每 checkpoint-interval-ms 把有变化的计数写入 sales_summary（覆盖写），启动时从中恢复
+ * 计数来自 order_outbox 的至少一次投递，按 orderId 丢弃最近处理过的重复事件（见 {@link RecentOrderIds}），
+ * 检查点之间的计数在进程崩溃时丢失，结果是近似值；
+ * 检查点写的是本进程的累计值，只适用于单实例部署。启用前已存在的订单不计入。
+ */
+@Slf4j
+@Component
+public class SalesAnalytics implements OrderEventListener {
+
+    static final String TOTAL = "total";
+    static final String PRODUCT = "product";
+    static final String MINUTE = "minute";
+    static final String HOUR = "hour";
+
+    /**
+     * 排行榜排序字段
+     */
+    public enum Metric {
+        UNITS, REVENUE, BUYERS;
+
+        public static Metric parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("by 只能是 units / revenue / buyers");
+            }
+        }
+    }
+
+    /**
+     * 时间序列粒度
+     */
+    public enum Granularity {
+        MINUTE, HOUR;
+
+        public static Granularity parse(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("granularity 只能是 minute / hour");
+            }
+        }
+    }
+
+    private final SalesSummaryMapper summaryMapper;
+    private final ProductCache productCache;
+    private final AnalyticsProperties properties;
+    private final SalesCounter total = new SalesCounter();
+    private final Map<Long, SalesCounter> products = new ConcurrentHashMap<>();
+    private final TimeRing minutes;
+    private final TimeRing hours;
+    private final RecentOrderIds processed = new RecentOrderIds();
+    // 是否已从 sales_summary 恢复（恢复之前不写检查点，避免覆盖库中的累计值）
+    private volatile boolean restored;
+
+    public SalesAnalytics(SalesSummaryMapper summaryMapper, ProductCache productCache, AnalyticsProperties properties) {
+        this.summaryMapper = summaryMapper;
+        this.productCache = productCache;
+        this.properties = properties;
+        this.minutes = new TimeRing(Math.max(1, properties.getMinuteBuckets()), 60_000L);
+        this.hours = new TimeRing(Math.max(1, properties.getHourBuckets()), 3_600_000L);
+    }
+
+    @Override
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (!properties.isEnabled() || !processed.add(event.orderId())) {
+            return;
+        }
+        int num = event.num() == null ? 0 : event.num();
+        long cents = event.totalPrice() == null ? 0 : event.totalPrice().movePointRight(2).longValue();
+        long millis = event.createTime() == null ? System.currentTimeMillis()
+                : event.createTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        total.add(num, cents, event.userId());
+        products.computeIfAbsent(event.productId(), id -> new SalesCounter()).add(num, cents, event.userId());
+        // 超出保留范围的旧事件（重发的积压事件）只计入累计值
+        TimeRing.Slot minute = minutes.slot(minutes.bucketOf(millis));
+        if (minute != null) {
+            minute.add(num, cents, event.userId());
+        }
+        TimeRing.Slot hour = hours.slot(hours.bucketOf(millis));
+        if (hour != null) {
+            hour.add(num, cents, event.userId());
+        }
+    }
+
+    /**
+     * 累计销量 / 销售额 / 去重买家数
+     */
+    public ProductSales overview() {
+        return new ProductSales(null, null, total.units(), total.revenue(), total.buyers());
+    }
+
+    /**
+     * 按指定字段取前 limit 个商品（不超过 max-top）
+     */
+    public List<ProductSales> topProducts(int limit, Metric metric) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit 必须大于 0");
+        }
+        int size = Math.min(limit, properties.getMaxTop());
+        ToLongFunction<SalesCounter> key = switch (metric) {
+            case UNITS -> SalesCounter::units;
+            case REVENUE -> counter -> counter.revenueCents.sum();
+            case BUYERS -> SalesCounter::buyers;
+        };
+        // 小顶堆保留最大的 size 个
+        record Entry(Long productId, SalesCounter counter, long key) {
+        }
+        PriorityQueue<Entry> heap = new PriorityQueue<>(size + 1, Comparator.comparingLong(Entry::key));
+        products.forEach((productId, counter) -> {
+            long value = key.applyAsLong(counter);
+            if (heap.size() < size) {
+                heap.add(new Entry(productId, counter, value));
+            } else if (value > heap.peek().key()) {
+                heap.poll();
+                heap.add(new Entry(productId, counter, value));
+            }
+        });
+        List<Entry> sorted = new ArrayList<>(heap);
+        sorted.sort(Comparator.comparingLong(Entry::key).reversed());
+        List<ProductSales> result = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            Product product = productCache.get(entry.productId());
+            result.add(new ProductSales(entry.productId(), product == null ? null : product.getProductName(),
+                    entry.counter().units(), entry.counter().revenue(), entry.counter().buyers()));
+        }
+        return result;
+    }
+
+    /**
+     * 最近 points 个时间桶（含当前桶），按时间升序，没有订单的桶为 0
+     */
+    public List<SalesPoint> series(Granularity granularity, int points) {
+        TimeRing ring = granularity == Granularity.MINUTE ? minutes : hours;
+        if (points < 1 || points > ring.size()) {
+            throw new IllegalArgumentException("points 必须在 1 ~ " + ring.size() + " 之间");
+        }
+        long current = ring.bucketOf(System.currentTimeMillis());
+        List<SalesPoint> result = new ArrayList<>(points);
+        for (long bucket = current - points + 1; bucket <= current; bucket++) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket * ring.widthMillis), ZoneId.systemDefault());
+            TimeRing.Slot slot = ring.peek(bucket);
+            result.add(slot == null ? new SalesPoint(time, 0, BigDecimal.ZERO.setScale(2), 0)
+                    : new SalesPoint(time, slot.units(), slot.revenue(), slot.buyers()));
+        }
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOnStartup() {
+        if (properties.isEnabled()) {
+            restore();
+        }
+    }
+
+    /**
+     * 把有变化的计数写入 sales_summary；还未恢复时先恢复（启动时数据库不可用的情况）
+     */
+    @Scheduled(initialDelayString = "${shop.analytics.checkpoint-interval-ms:10000}",
+            fixedDelayString = "${shop.analytics.checkpoint-interval-ms:10000}")
+    public void checkpoint() {
+        if (!properties.isEnabled() || (!restored && !restore())) {
+            return;
+        }
+        List<SalesCounter> written = new ArrayList<>();
+        List<SalesSummary> rows = new ArrayList<>();
+        if (total.takeDirty()) {
+            written.add(total);
+            rows.add(row(TOTAL, 0L, total));
+        }
+        products.forEach((productId, counter) -> {
+            if (counter.takeDirty()) {
+                written.add(counter);
+                rows.add(row(PRODUCT, productId, counter));
+            }
+        });
+        for (TimeRing.Slot slot : minutes.takeDirtySlots()) {
+            written.add(slot);
+            rows.add(row(MINUTE, slot.bucket, slot));
+        }
+        for (TimeRing.Slot slot : hours.takeDirtySlots()) {
+            written.add(slot);
+            rows.add(row(HOUR, slot.bucket, slot));
+        }
+        try {
+            for (int from = 0; from < rows.size(); from += 500) {
+                summaryMapper.upsert(rows.subList(from, Math.min(rows.size(), from + 500)));
+            }
+            long now = System.currentTimeMillis();
+            summaryMapper.deleteBefore(MINUTE, minutes.bucketOf(now) - minutes.size() + 1);
+            summaryMapper.deleteBefore(HOUR, hours.bucketOf(now) - hours.size() + 1);
+            if (!rows.isEmpty()) {
+                log.debug("销售统计检查点：写入 {} 行", rows.size());
+            }
+        } catch (Exception e) {
+            // 下次检查点重写
+            written.forEach(SalesCounter::markDirty);
+            log.warn("销售统计检查点写入失败：{}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void checkpointOnShutdown() {
+        if (restored) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * 从 sales_summary 恢复（与恢复前已收到的计数合并），返回是否成功
+     */
+    synchronized boolean restore() {
+        if (restored) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        List<SalesSummary> rows;
+        try {
+            rows = summaryMapper.selectForRestore(minutes.bucketOf(now) - minutes.size() + 1, hours.bucketOf(now) - hours.size() + 1);
+        } catch (Exception e) {
+            log.warn("销售统计恢复失败，稍后重试：{}", e.getMessage());
+            return false;
+        }
+        for (SalesSummary row : rows) {
+            long units = row.getUnits() == null ? 0 : row.getUnits();
+            long cents = row.getRevenue() == null ? 0 : row.getRevenue().movePointRight(2).longValue();
+            HyperLogLog buyers = HyperLogLog.fromBytes(row.getBuyers());
+            switch (row.getScope()) {
+                case TOTAL -> total.restore(units, cents, buyers);
+                case PRODUCT -> products.computeIfAbsent(row.getBucket(), id -> new SalesCounter()).restore(units, cents, buyers);
+                case MINUTE -> restoreSlot(minutes, row.getBucket(), units, cents, buyers);
+                case HOUR -> restoreSlot(hours, row.getBucket(), units, cents, buyers);
+                default -> log.warn("未知的销售统计维度：{}", row.getScope());
+            }
+        }
+        restored = true;
+        log.info("销售统计已恢复：{} 行，商品数 {}", rows.size(), products.size());
+        return true;
+    }
+
+    private static void restoreSlot(TimeRing ring, long bucket, long units, long cents, HyperLogLog buyers) {
+        TimeRing.Slot slot = ring.slot(bucket);
+        if (slot != null) {
+            slot.restore(units, cents, buyers);
+        }
+    }
+
+    private static SalesSummary row(String scope, Long bucket, SalesCounter counter) {
+        SalesSummary row = new SalesSummary();
+        row.setScope(scope);
+        row.setBucket(bucket);
+        row.setUnits(counter.units());
+        row.setRevenue(counter.revenue());
+        row.setBuyers(counter.buyers.toBytes());
+        return row;
+    }
+}
@@ -0,0 +1,58 @@
+package com.shop.demo.analytics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个统计单元（一个商品或一个时间桶）的销量、销售额（分）和去重买家数，无锁更新
+ */
+class SalesCounter {
+
+    final LongAdder units = new LongAdder();
+    final LongAdder revenueCents = new LongAdder();
+    final HyperLogLog buyers = new HyperLogLog();
+    // 上次检查点之后是否有更新
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    void add(int num, long cents, Long userId) {
+        units.add(num);
+        revenueCents.add(cents);
+        if (userId != null) {
+            buyers.add(userId);
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * 合并检查点中恢复的值（启动时已有的实时计数不会被覆盖）
+     */
+    void restore(long units, long cents, HyperLogLog buyers) {
+        this.units.add(units);
+        this.revenueCents.add(cents);
+        this.buyers.merge(buyers);
+    }
+
+    /**
+     * 取出并清除 dirty 标记：先清标记再读数，读数期间的更新会在下次检查点写入
+     */
+    boolean takeDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    void markDirty() {
+        dirty.set(true);
+    }
+
+    long units() {
+        return units.sum();
+    }
+
+    BigDecimal revenue() {
+        return BigDecimal.valueOf(revenueCents.sum(), 2);
+    }
+
+    long buyers() {
+        return buyers.estimate();
+    }
+}
@@ -0,0 +1,81 @@
+package com.shop.demo.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按时间分桶的环形缓冲：保留最近 size 个桶（桶序号 = 时间 / 桶宽度），旧桶被新桶原地替换
+ */
+class TimeRing {
+
+    /**
+     * 一个时间桶
+     */
+    static final class Slot extends SalesCounter {
+        final long bucket;
+
+        Slot(long bucket) {
+            this.bucket = bucket;
+        }
+
+    }
+
+    final long widthMillis;
+    private final AtomicReferenceArray<Slot> slots;
+
+    TimeRing(int size, long widthMillis) {
+        this.slots = new AtomicReferenceArray<>(size);
+        this.widthMillis = widthMillis;
+    }
+
+    int size() {
+        return slots.length();
+    }
+
+    long bucketOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, widthMillis);
+    }
+
+    /**
+     * 取桶序号对应的桶（不存在时创建）；已超出保留范围的旧时间返回 null
+     */
+    Slot slot(long bucket) {
+        int index = (int) Math.floorMod(bucket, (long) slots.length());
+        while (true) {
+            Slot current = slots.get(index);
+            if (current != null && current.bucket == bucket) {
+                return current;
+            }
+            if (current != null && current.bucket > bucket) {
+                return null;
+            }
+            Slot fresh = new Slot(bucket);
+            if (slots.compareAndSet(index, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * 只读取，不创建
+     */
+    Slot peek(long bucket) {
+        Slot current = slots.get((int) Math.floorMod(bucket, (long) slots.length()));
+        return current != null && current.bucket == bucket ? current : null;
+    }
+
+    /**
+     * 取出上次检查点之后有更新的桶
+     */
+    List<Slot> takeDirtySlots() {
+        List<Slot> dirty = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.takeDirty()) {
+                dirty.add(slot);
+            }
+        }
+        return dirty;
+    }
+}
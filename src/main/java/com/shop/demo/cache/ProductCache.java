@@ -0,0 +1,326 @@
+package com.shop.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shop.demo.dto.ResourceVersion;
+import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
+import com.shop.demo.mapper.ProductMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品读缓存（读穿透）
+ * <p>
+ * 1. 单个商品：Caffeine 缓存，按容量 + 写入后过期淘汰，记录命中/未命中/淘汰统计
+ * 2. 全量商品快照：按 id 排序保存，加载一次后只做增量更新，到达重建间隔才重新执行 selectAll
+ * 下单扣库存、新增商品在事务提交后通过 {@link ProductChangedEvent} 更新或失效缓存。
+ * 3. 全量版本号：用于不分页的 /product/all 的 ETag，命中缓存时不查库
+ */
+@Slf4j
+@Component
+public class ProductCache {
+
+    private static final int RELOAD_BATCH_SIZE = 1000;
+
+    private final ProductMapper productMapper;
+    private final ProductCacheProperties properties;
+    private final Cache<Long, Product> byId;
+    private final Counter catalogReloads;
+    private final ReentrantLock catalogLock = new ReentrantLock();
+    // 快照替换与增量更新互斥：重建期间提交的变更先记下，替换前回查，避免只更新到旧快照而丢失
+    private final ReentrantLock swapLock = new ReentrantLock();
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    // 本实例标识：快照有增量更新时版本号只在本实例内有意义，加上标识避免与其他实例 / 重启前的版本号混淆
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+    private volatile Catalog catalog;
+
+    /**
+     * 全量商品快照：有序 Map 支持增量更新，List 视图按修改次数懒重建
+     * version 为加载时各商品 version + 1 之和（与 ProductMapper.selectCatalogVersion 一致），只由数据库内容决定
+     */
+    private static final class Catalog {
+        final ConcurrentSkipListMap<Long, Product> products = new ConcurrentSkipListMap<>();
+        final AtomicLong modCount = new AtomicLong();
+        final long loadedAtNanos = System.nanoTime();
+        long version;
+        volatile long lastModified = -1;
+        volatile CatalogView view;
+    }
+
+    private record CatalogView(List<Product> products, long modCount) {
+    }
+
+    public ProductCache(ProductMapper productMapper, ProductCacheProperties properties, MeterRegistry meterRegistry) {
+        this.productMapper = productMapper;
+        this.properties = properties;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "product");
+        this.catalogReloads = Counter.builder("shop.product.cache.catalog.reloads")
+                .description("全量商品快照重建次数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 按 ID 查询商品（未命中时查库并缓存，不存在的商品不缓存）
+     * 返回的对象是缓存共享实例，调用方不要修改
+     */
+    public Product get(Long id) {
+        if (!properties.isEnabled()) {
+            return productMapper.selectById(id);
+        }
+        return byId.get(id, productMapper::selectById);
+    }
+
+    /**
+     * 按 ID 批量查询商品，返回 id -> 商品（不存在的商品不在结果中）
+     * 未命中的 ID 合并为一次 selectByIds 回源，不逐个查库
+     */
+    public Map<Long, Product> getByIds(Collection<Long> ids) {
+        if (!properties.isEnabled()) {
+            return index(productMapper.selectByIds(List.copyOf(ids)));
+        }
+        return byId.getAll(ids, missing -> index(productMapper.selectByIds(List.copyOf(missing))));
+    }
+
+    /**
+     * 查询全量商品（按 id 升序的只读列表）
+     */
+    public List<Product> getAll() {
+        if (!properties.isEnabled()) {
+            return Optional.ofNullable(productMapper.selectAll()).orElse(List.of());
+        }
+        Catalog current = currentCatalog();
+        long modCount = current.modCount.get();
+        CatalogView view = current.view;
+        if (view == null || view.modCount() != modCount) {
+            view = new CatalogView(List.copyOf(current.products.values()), modCount);
+            current.view = view;
+        }
+        return view.products();
+    }
+
+    /**
+     * 键集分页：返回 id > afterId 的前 limit 个商品（按 id 升序）
+     * 启用缓存时直接从全量快照的有序 Map 中截取，不查库
+     */
+    public List<Product> getPage(long afterId, int limit) {
+        if (!properties.isEnabled()) {
+            return Optional.ofNullable(productMapper.selectPage(afterId, limit)).orElse(List.of());
+        }
+        List<Product> page = new ArrayList<>(limit);
+        for (Product product : currentCatalog().products.tailMap(afterId, false).values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(product);
+        }
+        return page;
+    }
+
+    /**
+     * 全量商品的版本（ETag / Last-Modified）
+     * 启用缓存时直接取快照的版本号，不查库；未启用时执行一次聚合查询
+     */
+    public ResourceVersion catalogVersion() {
+        if (!properties.isEnabled()) {
+            return ResourceVersion.catalog(String.valueOf(productMapper.selectCatalogVersion()), -1);
+        }
+        Catalog current = currentCatalog();
+        long modCount = current.modCount.get();
+        // 未做过增量更新时版本号由数据库内容决定，多实例 / 重启后一致；否则附加本实例的修改次数
+        String version = modCount == 0
+                ? String.valueOf(current.version)
+                : current.version + "-" + instanceId + "." + modCount;
+        return ResourceVersion.catalog(version, current.lastModified);
+    }
+
+    /**
+     * 事务提交后处理商品变更：
+     * 库存变化时单个商品缓存直接失效（下次读取回源，保证不超过过期时间的陈旧度），快照中就地更新库存；
+     * 新增/整体变更时重新加载该商品
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!properties.isEnabled() || event.productId() == null) {
+            return;
+        }
+        byId.invalidate(event.productId());
+        // 查询在锁外执行
+        Product product = event.isStockChange() ? null : productMapper.selectById(event.productId());
+        swapLock.lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(event.productId());
+            }
+            Catalog current = catalog;
+            if (current == null) {
+                return;
+            }
+            if (event.isStockChange()) {
+                current.products.computeIfPresent(event.productId(),
+                        (id, cached) -> withStock(cached, (cached.getStock() == null ? 0 : cached.getStock()) + event.stockDelta()));
+            } else if (product != null) {
+                current.products.put(product.getId(), product);
+            }
+            current.lastModified = System.currentTimeMillis();
+            current.modCount.incrementAndGet();
+        } finally {
+            swapLock.unlock();
+        }
+    }
+
+    /**
+     * 清空全部缓存（批量导入等场景）
+     */
+    public void invalidateAll() {
+        byId.invalidateAll();
+        catalog = null;
+    }
+
+    public CacheStats stats() {
+        return byId.stats();
+    }
+
+    private Catalog currentCatalog() {
+        Catalog current = catalog;
+        if (current != null && System.nanoTime() - current.loadedAtNanos < properties.getCatalogRefresh().toNanos()) {
+            return current;
+        }
+        if (current != null) {
+            // 已有快照：其他线程正在重建时继续返回旧快照，不排队等待
+            if (!catalogLock.tryLock()) {
+                return current;
+            }
+        } else {
+            catalogLock.lock();
+        }
+        try {
+            Catalog latest = catalog;
+            if (latest != null && latest != current) {
+                // 等锁期间已被其他线程重建
+                return latest;
+            }
+            return rebuildCatalog();
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    /**
+     * 全量重建快照：selectAll 读到行之后、新快照替换之前提交的变更只会更新到旧快照，
+     * 所以重建期间记下变更的商品，替换前回查这些商品写入新快照
+     */
+    private Catalog rebuildCatalog() {
+        swapLock.lock();
+        try {
+            changedDuringRebuild.clear();
+            rebuilding = true;
+        } finally {
+            swapLock.unlock();
+        }
+        try {
+            Catalog fresh = new Catalog();
+            List<Product> products = productMapper.selectAll();
+            if (products != null) {
+                for (Product product : products) {
+                    put(fresh, product);
+                }
+            }
+            swapLock.lock();
+            try {
+                reload(fresh, new ArrayList<>(changedDuringRebuild));
+                catalog = fresh;
+            } finally {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+                swapLock.unlock();
+            }
+            catalogReloads.increment();
+            log.info("全量商品快照已重建，商品数：{}", fresh.products.size());
+            return fresh;
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    /**
+     * 按 ID 回查商品写入快照（版本号按新旧差值调整），已不存在的商品从快照中删除
+     */
+    private void reload(Catalog target, List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH_SIZE, ids.size()));
+            Set<Long> missing = new HashSet<>(batch);
+            for (Product product : Optional.ofNullable(productMapper.selectByIds(batch)).orElse(List.of())) {
+                put(target, product);
+                missing.remove(product.getId());
+            }
+            for (Long id : missing) {
+                Product removed = target.products.remove(id);
+                if (removed != null) {
+                    target.version -= versionOf(removed);
+                }
+            }
+        }
+    }
+
+    private static void put(Catalog target, Product product) {
+        Product previous = target.products.put(product.getId(), product);
+        target.version += versionOf(product) - (previous == null ? 0 : versionOf(previous));
+        if (product.getUpdateTime() != null) {
+            target.lastModified = Math.max(target.lastModified,
+                    product.getUpdateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private static long versionOf(Product product) {
+        return (product.getVersion() == null ? 0 : product.getVersion()) + 1;
+    }
+
+    private static Map<Long, Product> index(List<Product> products) {
+        Map<Long, Product> map = new HashMap<>();
+        if (products != null) {
+            for (Product product : products) {
+                map.put(product.getId(), product);
+            }
+        }
+        return map;
+    }
+
+    private static Product withStock(Product product, int stock) {
+        // 缓存中的实例被多个请求共享，修改前先复制
+        Product copy = new Product();
+        BeanUtils.copyProperties(product, copy);
+        copy.setStock(stock);
+        return copy;
+    }
+}
@@ -0,0 +1,22 @@
+package com.shop.demo.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 商品读缓存配置（前缀 shop.product-cache）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.product-cache")
+public class ProductCacheProperties {
+    // 是否启用商品缓存
+    private boolean enabled = true;
+    // 单个商品缓存的最大条数（超出按 LRU/频率淘汰）
+    private long maximumSize = 10_000;
+    // 单个商品缓存的过期时间，即其他实例修改后本实例价格/库存的最大陈旧时间
+    private Duration ttl = Duration.ofSeconds(10);
+    // 全量商品快照的重建间隔（期间只做增量更新，不再执行 selectAll）
+    private Duration catalogRefresh = Duration.ofSeconds(10);
+}
@@ -0,0 +1,22 @@
+package com.shop.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 秒杀配置（前缀 shop.flash-sale）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.flash-sale")
+public class FlashSaleProperties {
+    // 排队队列容量（满了直接拒绝并归还令牌）
+    private int queueCapacity = 10_000;
+    // 落库工作线程数
+    private int workers = 2;
+    // 每个事务最多落库的订单数
+    private int batchSize = 200;
+    // 终态凭证保留时间（过期后查询返回不存在）
+    private Duration ticketTtl = Duration.ofMinutes(10);
+}
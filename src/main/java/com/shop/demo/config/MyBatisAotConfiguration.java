@@ -0,0 +1,147 @@
+package com.shop.demo.config;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * MyBatis 的 Spring AOT 支持（fast-startup profile 执行 process-aot 时生效，普通启动下这些 Bean 不改变任何行为）
+ * <p>
+ * 1. Mapper 扫描已在构建期完成，生成的代码直接注册每个 MapperFactoryBean：排除 MapperScannerConfigurer，
+ * 避免运行时再次扫描与已注册的同名 Mapper 冲突
+ * 2. 为 MapperFactoryBean 补上带泛型的目标类型（MapperFactoryBean&lt;ProductMapper&gt;）和 Class 类型的构造参数，
+ * 生成代码中按类型注入 Mapper 不需要提前实例化 FactoryBean 来推断类型
+ * 3. 构建期登记运行时提示：Mapper 接口的 JDK 代理和方法参数 / 返回类型、mybatis.type-aliases-package 下的类型别名、
+ * mapper/*.xml 资源（GraalVM 原生镜像需要；JVM 上只记录，不影响运行）
+ * Mapper 通过 sqlSessionTemplateRef 引用 SqlSessionTemplate（见 ShopDemoApplication），生成代码中是显式的 Bean 引用，
+ * 不依赖按类型自动装配属性。
+ */
+@Configuration(proxyBeanMethods = false)
+public class MyBatisAotConfiguration {
+
+    @Bean
+    static MapperAotProcessor mapperAotProcessor() {
+        return new MapperAotProcessor();
+    }
+
+    @Bean
+    static MergedBeanDefinitionPostProcessor mapperFactoryBeanTypePostProcessor() {
+        return new MergedBeanDefinitionPostProcessor() {
+            @Override
+            public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+                if (!beanDefinition.hasBeanClass() || !MapperFactoryBean.class.isAssignableFrom(beanDefinition.getBeanClass())
+                        || !beanDefinition.getResolvableType().hasUnresolvableGenerics()) {
+                    return;
+                }
+                if (beanDefinition.getPropertyValues().get("mapperInterface") instanceof Class<?> mapperInterface) {
+                    // 扫描器以类名字符串作为构造参数，生成代码按参数类型匹配不到 Class，改为 Class 本身
+                    ConstructorArgumentValues constructorArguments = new ConstructorArgumentValues();
+                    constructorArguments.addGenericArgumentValue(mapperInterface);
+                    beanDefinition.setConstructorArgumentValues(constructorArguments);
+                    beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanDefinition.getBeanClass(), mapperInterface));
+                }
+            }
+        };
+    }
+
+    /**
+     * 构建期处理：排除 Mapper 扫描器，登记 Mapper / 类型别名 / XML 的运行时提示
+     */
+    static class MapperAotProcessor implements BeanFactoryInitializationAotProcessor, BeanRegistrationExcludeFilter {
+
+        @Override
+        public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+            return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+        }
+
+        @Override
+        public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+            Set<Class<?>> mappers = new LinkedHashSet<>();
+            for (String beanName : beanFactory.getBeanNamesForType(MapperFactoryBean.class, true, false)) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(beanName.startsWith("&") ? beanName.substring(1) : beanName);
+                if (definition.getPropertyValues().get("mapperInterface") instanceof Class<?> mapperInterface) {
+                    mappers.add(mapperInterface);
+                }
+            }
+            Set<Class<?>> aliases = typeAliases(beanFactory);
+            if (mappers.isEmpty() && aliases.isEmpty()) {
+                return null;
+            }
+            return (generationContext, code) -> {
+                RuntimeHints hints = generationContext.getRuntimeHints();
+                hints.resources().registerPattern("mapper/*.xml");
+                for (Class<?> mapper : mappers) {
+                    hints.proxies().registerJdkProxy(mapper);
+                    hints.reflection().registerType(mapper, MemberCategory.INVOKE_PUBLIC_METHODS);
+                    for (Method method : ReflectionUtils.getDeclaredMethods(mapper)) {
+                        registerBeanType(hints, method.getGenericReturnType());
+                        for (Type parameter : method.getGenericParameterTypes()) {
+                            registerBeanType(hints, parameter);
+                        }
+                    }
+                }
+                for (Class<?> alias : aliases) {
+                    registerBeanType(hints, alias);
+                }
+            };
+        }
+
+        /**
+         * mybatis.type-aliases-package 下的类（构建期扫描，与运行时 MyBatis 注册的别名一致）
+         */
+        private static Set<Class<?>> typeAliases(ConfigurableListableBeanFactory beanFactory) {
+            Set<Class<?>> aliases = new LinkedHashSet<>();
+            String packages = beanFactory.getBean(Environment.class).getProperty("mybatis.type-aliases-package");
+            if (!StringUtils.hasText(packages)) {
+                return aliases;
+            }
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+            scanner.addIncludeFilter(new AssignableTypeFilter(Object.class));
+            scanner.addExcludeFilter((reader, factory) -> reader.getAnnotationMetadata().hasAnnotation(Mapper.class.getName()));
+            for (String basePackage : StringUtils.tokenizeToStringArray(packages, ",; \t\n")) {
+                for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                    aliases.add(ClassUtils.resolveClassName(candidate.getBeanClassName(), beanFactory.getBeanClassLoader()));
+                }
+            }
+            return aliases;
+        }
+
+        private static void registerBeanType(RuntimeHints hints, Type type) {
+            ResolvableType resolvable = ResolvableType.forType(type);
+            for (ResolvableType generic : resolvable.getGenerics()) {
+                registerBeanType(hints, generic.getType());
+            }
+            Class<?> clazz = resolvable.resolve();
+            if (clazz == null || clazz.isPrimitive() || clazz.isArray() || clazz.getName().startsWith("java.")) {
+                return;
+            }
+            hints.reflection().registerType(clazz, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.ACCESS_DECLARED_FIELDS);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.shop.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 下单请求合并（group commit）配置（前缀 shop.order.coalescing）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.order.coalescing")
+public class OrderCoalescingProperties {
+    // 是否启用：启用后 /order/add 对同一商品的并发请求合并到一个事务处理
+    private boolean enabled = false;
+    // 合并窗口：同一商品第一个请求到达后最多等待多久再提交
+    private Duration window = Duration.ofMillis(5);
+    // 单个合并批次的最大请求数（达到即提交，不再等待窗口结束）
+    private int maxBatchSize = 50;
+    // 执行合并事务的线程数
+    private int flushThreads = 8;
+    // 调用方等待结果的超时时间
+    private Duration timeout = Duration.ofSeconds(10);
+}
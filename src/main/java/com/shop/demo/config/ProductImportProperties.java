@@ -0,0 +1,16 @@
+package com.shop.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 商品批量导入配置（前缀 shop.product-import）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.product-import")
+public class ProductImportProperties {
+    // 每次 COPY 写入的行数（每块单独提交，失败只影响本块）
+    private int chunkSize = 5000;
+    // 响应中最多列出的拒绝明细条数（超出只计数）
+    private int maxReportedRejections = 1000;
+}
@@ -0,0 +1,112 @@
+package com.shop.demo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * 静态资源缓存配置
+ * <p>
+ * 构建期的资源流水线（src/build/java/AssetPipeline.java）会生成带内容哈希的文件名、.gz/.br 预压缩文件，
+ * 以及 static/asset-manifest.properties（路径 -> 内容哈希）。这里：
+ * 1. 请求头带 Accept-Encoding 时优先返回预压缩文件（EncodedResourceResolver，响应带 Vary: Accept-Encoding）
+ * 2. 以清单中的内容哈希作为强 ETag（压缩文件有各自的哈希）
+ * 3. 带哈希的文件内容永不变化：Cache-Control 一年 + immutable；HTML 等其他文件 no-cache，每次用 ETag 协商
+ * 没有清单时（IDE 直接运行、未经过 Maven 构建）不生成 ETag，全部按 no-cache 处理。
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    private static final String STATIC_LOCATION = "classpath:/static/";
+    private static final String MANIFEST = "static/asset-manifest.properties";
+    // 与 AssetPipeline 生成的文件名一致：name.<10 位哈希>[-宽度w].ext
+    private static final Pattern FINGERPRINTED = Pattern.compile(".+\\.[0-9a-f]{10}(-\\d+w)?\\.[A-Za-z0-9]+$");
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
+    // 资源路径（相对 static）-> 内容哈希
+    private final Map<String, String> contentHashes = loadManifest();
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // 注册 /** 后 Spring Boot 不再添加默认的静态资源映射
+        registry.addResourceHandler("/**")
+                .addResourceLocations(STATIC_LOCATION)
+                .setEtagGenerator(this::etag)
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StaticCacheControlInterceptor());
+    }
+
+    private String etag(Resource resource) {
+        try {
+            String url = resource.getURL().toString();
+            int index = url.lastIndexOf("/static/");
+            return index < 0 ? null : contentHashes.get(url.substring(index + "/static/".length()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按请求路径设置静态资源的 Cache-Control（只作用于静态资源处理器，不影响接口）
+     */
+    private class StaticCacheControlInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (handler instanceof ResourceHttpRequestHandler) {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                path = path.startsWith("/") ? path.substring(1) : path;
+                // 只有清单里确实存在的带哈希文件才长期缓存，避免把 404 缓存一年
+                boolean immutable = contentHashes.containsKey(path) && FINGERPRINTED.matcher(path).matches();
+                response.setHeader(HttpHeaders.CACHE_CONTROL, (immutable ? IMMUTABLE : REVALIDATE).getHeaderValue());
+            }
+            return true;
+        }
+    }
+
+    private static Map<String, String> loadManifest() {
+        ClassPathResource manifest = new ClassPathResource(MANIFEST);
+        if (!manifest.exists()) {
+            log.info("未找到静态资源清单 {}，静态资源不生成 ETag", MANIFEST);
+            return Map.of();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(manifest.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            log.warn("读取静态资源清单失败，静态资源不生成 ETag", e);
+            return Map.of();
+        }
+        Map<String, String> hashes = new HashMap<>();
+        properties.forEach((path, hash) -> hashes.put((String) path, (String) hash));
+        return Map.copyOf(hashes);
+    }
+}
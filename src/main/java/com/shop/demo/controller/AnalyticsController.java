@@ -0,0 +1,75 @@
+package com.shop.demo.controller;
+
+import com.shop.demo.analytics.SalesAnalytics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 销售统计接口（管理后台）：只读内存中的增量计数，不查询订单表
+ */
+@Slf4j
+@Lazy // 管理接口，不在下单 / 浏览主路径上，第一次请求时才创建
+@RestController
+@RequestMapping("/admin/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final SalesAnalytics salesAnalytics;
+
+    /**
+     * 累计销量 / 销售额 / 去重买家数（GET /admin/analytics/overview）
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<Map<String, Object>> overview() {
+        return handle(salesAnalytics::overview);
+    }
+
+    /**
+     * 商品排行（GET /admin/analytics/top-products?limit=10&by=units），by 为 units / revenue / buyers
+     */
+    @GetMapping("/top-products")
+    public ResponseEntity<Map<String, Object>> topProducts(@RequestParam(defaultValue = "10") int limit,
+                                                           @RequestParam(defaultValue = "units") String by) {
+        return handle(() -> salesAnalytics.topProducts(limit, SalesAnalytics.Metric.parse(by)));
+    }
+
+    /**
+     * 销售时间序列（GET /admin/analytics/series?granularity=minute&points=60），granularity 为 minute / hour
+     */
+    @GetMapping("/series")
+    public ResponseEntity<Map<String, Object>> series(@RequestParam(defaultValue = "minute") String granularity,
+                                                      @RequestParam(defaultValue = "60") int points) {
+        return handle(() -> salesAnalytics.series(SalesAnalytics.Granularity.parse(granularity), points));
+    }
+
+    private ResponseEntity<Map<String, Object>> handle(Supplier<Object> query) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Object data = query.get();
+            response.put("code", 200);
+            response.put("msg", "查询成功");
+            response.put("data", data);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("code", 400);
+            response.put("msg", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("销售统计查询异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.shop.demo.controller;
+
+import com.shop.demo.dto.FlashSaleTicket;
+import com.shop.demo.exception.InsufficientStockException;
+import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.service.FlashSaleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 秒杀接口：开启/结束秒杀、查询排队凭证
+ * 秒杀中的商品仍通过 /order/add 下单，返回 202 + 排队凭证 ID
+ */
+@Slf4j
+@RestController
+@RequestMapping("/flash-sale")
+@RequiredArgsConstructor
+@Validated
+public class FlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+
+    /**
+     * 开启秒杀（POST /flash-sale/{productId}/start?quantity=100，quantity 为空时使用当前库存）
+     */
+    @PostMapping("/{productId}/start")
+    public ResponseEntity<Map<String, Object>> start(@PathVariable Long productId,
+                                                     @RequestParam(required = false) Integer quantity) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int tokens = flashSaleService.start(productId, quantity);
+            response.put("code", 200);
+            response.put("msg", "秒杀已开启");
+            response.put("data", tokens);
+            return ResponseEntity.ok(response);
+        } catch (ProductNotFoundException | InsufficientStockException | IllegalStateException e) {
+            response.put("code", 400);
+            response.put("msg", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("开启秒杀异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 结束秒杀（POST /flash-sale/{productId}/stop），返回作废的剩余令牌数
+     */
+    @PostMapping("/{productId}/stop")
+    public ResponseEntity<Map<String, Object>> stop(@PathVariable Long productId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 200);
+        response.put("msg", "秒杀已结束");
+        response.put("data", flashSaleService.stop(productId));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 查询排队凭证（GET /flash-sale/ticket/{ticketId}），status 为 QUEUED 时继续轮询
+     */
+    @GetMapping("/ticket/{ticketId}")
+    public ResponseEntity<Map<String, Object>> getTicket(@PathVariable String ticketId) {
+        Map<String, Object> response = new HashMap<>();
+        FlashSaleTicket ticket = flashSaleService.getTicket(ticketId);
+        if (ticket == null) {
+            response.put("code", 404);
+            response.put("msg", "排队凭证不存在或已过期");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("code", 200);
+        response.put("msg", "查询成功");
+        response.put("data", ticket);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,15 +1,24 @@
 package com.shop.demo.controller;
 
+import com.shop.demo.admission.OrderAdmission;
 import com.shop.demo.dto.BatchOrderRequest;
+import com.shop.demo.dto.FlashSaleTicket;
+import com.shop.demo.dto.OrderDetail;
 import com.shop.demo.dto.OrderRequest;
 import com.shop.demo.entity.Order;
+import com.shop.demo.exception.AdmissionRejectedException;
 import com.shop.demo.exception.InsufficientStockException;
 import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.exception.ServiceBusyException;
+import com.shop.demo.idempotency.IdempotencyStore;
+import com.shop.demo.service.FlashSaleService;
 import com.shop.demo.service.OrderService;
+import com.shop.demo.service.impl.OrderCoalescer;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -27,13 +36,45 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final FlashSaleService flashSaleService;
+    // 下单请求合并器（shop.order.coalescing.enabled=true 时生效）
+    private final OrderCoalescer orderCoalescer;
+    // 幂等键结果缓存（重复提交等待 / 复用第一次的响应）
+    private final IdempotencyStore idempotencyStore;
+    // 下单准入控制（限流 + 自适应并发上限）
+    private final OrderAdmission orderAdmission;
+
+    // 幂等键请求头：客户端每次下单尝试生成一个，重试 / 重复点击时保持不变
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    // 订单分页默认 / 最大每页条数
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
     /**
      * 接收客户端下单请求时只使用 OrderRequest DTO（避免对服务端生成字段校验）
      * 保留旧接口，兼容旧的调用方式
+     * 商品处于秒杀中时走令牌准入 + 异步落库，返回 202 和排队凭证 ID，客户端轮询 /flash-sale/ticket/{ticketId}
+     * 带 Idempotency-Key 请求头时，同一个键只下单一次，重复请求返回第一次的响应
+     * 准入控制在幂等处理之前：被限流 / 过载拒绝时返回 429 / 503 和 Retry-After，不记录幂等结果
      */
     @PostMapping("/add")
-    public ResponseEntity<Map<String, Object>> addOrder(@Valid @RequestBody OrderRequest orderReq) {
+    public ResponseEntity<Map<String, Object>> addOrder(@Valid @RequestBody OrderRequest orderReq,
+                                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        ResponseEntity<Map<String, Object>> invalid = validateIdempotencyKey(idempotencyKey);
+        if (invalid != null) {
+            return invalid;
+        }
+        String key = scopedKey("add:", orderReq.getUserId(), idempotencyKey);
+        String fingerprint = orderReq.getUserId() + ":" + orderReq.getProductId() + ":" + orderReq.getNum();
+        try (OrderAdmission.Permit ignored = orderAdmission.admit(orderReq.getUserId())) {
+            return idempotencyStore.execute(key, fingerprint, () -> placeOrder(orderReq, key));
+        } catch (AdmissionRejectedException e) {
+            return rejected(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> placeOrder(OrderRequest orderReq, String idempotencyKey) {
         Map<String, Object> response = new HashMap<>();
         try {
             // 把请求 DTO 转为实体，只设置客户端应提供的字段
@@ -43,11 +84,23 @@ public class OrderController {
             order.setNum(orderReq.getNum());
             // totalPrice / createTime / id 等由 Service / DB 填充
 
-            int result = orderService.addOrder(order);
+            if (flashSaleService.isActive(order.getProductId())) {
+                FlashSaleTicket ticket = flashSaleService.submit(order);
+                response.put("code", 202);
+                response.put("msg", "排队中，请查询排队结果");
+                response.put("data", ticket.getTicketId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            }
+
+            // 开启请求合并时，同一商品的并发请求在一个事务内批量处理
+            int result = orderCoalescer.isEnabled()
+                    ? orderCoalescer.placeOrder(order, idempotencyKey)
+                    : orderService.addOrder(order, idempotencyKey);
             if (result > 0) {
                 response.put("code", 200);
                 response.put("msg", "订单创建成功");
-                response.put("data", order.getId());
+                // 订单 ID 按字符串返回，避免前端 Long 精度丢失（与 Order.id 的序列化方式一致）
+                response.put("data", String.valueOf(order.getId()));
                 return ResponseEntity.ok(response);
             }
         } catch (ProductNotFoundException | InsufficientStockException e) {
@@ -55,6 +108,10 @@ public class OrderController {
             response.put("code", 400);
             response.put("msg", e.getMessage());
             return ResponseEntity.badRequest().body(response);
+        } catch (ServiceBusyException e) {
+            response.put("code", 503);
+            response.put("msg", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         } catch (Exception e) {
             log.error("创建订单接口异常", e);
             response.put("code", 500);
@@ -69,36 +126,73 @@ public class OrderController {
     /**
      * [新增] 批量下单接口
      * 配合前端的新逻辑，一次性提交所有商品
+     * 带 Idempotency-Key 请求头时，同一个键只下单一次，重复请求返回第一次的响应
+     * 准入控制同 /order/add（一次批量下单计一次）
      */
     @PostMapping("/add/batch")
-    public ResponseEntity<Map<String, Object>> addOrderBatch(@Valid @RequestBody BatchOrderRequest batchReq) {
+    public ResponseEntity<Map<String, Object>> addOrderBatch(@Valid @RequestBody BatchOrderRequest batchReq,
+                                                             @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        ResponseEntity<Map<String, Object>> invalid = validateIdempotencyKey(idempotencyKey);
+        if (invalid != null) {
+            return invalid;
+        }
+        String key = scopedKey("batch:", batchReq.getUserId(), idempotencyKey);
+        StringBuilder fingerprint = new StringBuilder().append(batchReq.getUserId());
+        for (BatchOrderRequest.OrderItemRequest item : batchReq.getItems()) {
+            fingerprint.append(':').append(item.getProductId()).append('x').append(item.getNum());
+        }
+        try (OrderAdmission.Permit ignored = orderAdmission.admit(batchReq.getUserId())) {
+            return idempotencyStore.execute(key, fingerprint.toString(), () -> placeBatchOrder(batchReq, key));
+        } catch (AdmissionRejectedException e) {
+            return rejected(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> placeBatchOrder(BatchOrderRequest batchReq, String idempotencyKey) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Long> orderIds = orderService.createBatchOrder(batchReq);
+            List<Long> orderIds = orderService.createBatchOrder(batchReq, idempotencyKey);
 
             response.put("code", 200);
             response.put("msg", "批量下单成功");
-            response.put("data", orderIds);
+            response.put("data", orderIds.stream().map(String::valueOf).toList());
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            // 捕获 Service 层抛出的所有异常（包括库存不足等 RuntimeException）
-            log.error("批量下单异常", e);
+        } catch (ProductNotFoundException | InsufficientStockException | IllegalArgumentException e) {
+            // 业务 / 参数错误：直接返回异常信息（例如：商品XXX库存不足），重复提交得到同样的结果
             response.put("code", 400);
-            // 这里直接返回异常信息（例如：商品XXX库存不足）
             response.put("msg", "下单失败：" + e.getMessage());
             return ResponseEntity.badRequest().body(response);
+        } catch (ServiceBusyException e) {
+            // 繁忙 / 基础设施错误返回 5xx：幂等结果不缓存，客户端可用同一个键重试
+            response.put("code", 503);
+            response.put("msg", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            log.error("批量下单接口异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 
+    /**
+     * 分页查询用户订单（按创建时间倒序，含商品名称与单价）
+     * beforeId 传上一页响应中的 nextCursor，nextCursor 为 null 表示没有更多订单
+     */
     @GetMapping("/user/{userId}")
     public ResponseEntity<Map<String, Object>> getOrdersByUserId(
-            @PathVariable @Min(value = 1, message = "用户ID必须大于0") Long userId) {
+            @PathVariable @Min(value = 1, message = "用户ID必须大于0") Long userId,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(required = false) Integer limit) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<Order> orders = orderService.getOrdersByUserId(userId);
+            int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            List<OrderDetail> orders = orderService.getOrdersByUserId(userId, beforeId, pageSize);
             response.put("code", 200);
             response.put("msg", "查询成功");
             response.put("data", orders);
+            // 订单 ID 按字符串返回，避免前端 Long 精度丢失（与 Order.id 的序列化方式一致）
+            response.put("nextCursor", orders.size() == pageSize ? String.valueOf(orders.get(orders.size() - 1).getId()) : null);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             log.error("查询用户订单接口异常", e);
@@ -108,6 +202,36 @@ public class OrderController {
         }
     }
 
+    /**
+     * 准入控制拒绝：429（用户下单过快）/ 503（过载），带 Retry-After 秒数
+     */
+    private ResponseEntity<Map<String, Object>> rejected(AdmissionRejectedException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", e.getStatus());
+        response.put("msg", e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> validateIdempotencyKey(String idempotencyKey) {
+        String error = idempotencyKey == null ? null : idempotencyStore.validate(idempotencyKey);
+        if (error == null) {
+            return null;
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", 400);
+        response.put("msg", error);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * 幂等键加上接口前缀和用户 ID（两个下单接口、不同用户的键互不影响）；未启用幂等时返回 null
+     */
+    private String scopedKey(String prefix, Long userId, String idempotencyKey) {
+        return idempotencyKey == null || !idempotencyStore.isEnabled() ? null : prefix + userId + ":" + idempotencyKey;
+    }
+
     @ExceptionHandler(jakarta.validation.ConstraintViolationException.class)
     public ResponseEntity<Map<String, Object>> handleConstraintViolationException(jakarta.validation.ConstraintViolationException e) {
         Map<String, Object> response = new HashMap<>();
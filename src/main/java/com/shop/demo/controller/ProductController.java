@@ -1,14 +1,26 @@
 package com.shop.demo.controller;
 
+import com.shop.demo.dto.CartQuote;
+import com.shop.demo.dto.CartQuoteRequest;
+import com.shop.demo.dto.ProductImportResult;
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.dto.ResourceVersion;
 import com.shop.demo.entity.Product;
+import com.shop.demo.exception.ServiceBusyException;
 import com.shop.demo.service.ProductService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,18 +37,51 @@ public class ProductController {
 
     private final ProductService productService; // 注入商品服务
 
+    // 分页查询默认 / 最大每页条数
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    // 搜索关键词最大长度
+    private static final int MAX_QUERY_LENGTH = 100;
+
     /**
      * 查询所有商品（GET请求：/product/all）
+     * 传入 afterId 或 limit 时按键集分页返回（按 id 升序），响应中 nextCursor 为下一页的 afterId，为 null 表示没有下一页；
+     * 都不传时保持原行为，返回全部商品
+     * 支持条件 GET：全量版本未变化时返回 304，不查询也不序列化商品列表；
+     * 分页请求的 ETag 只由本页商品生成，先查出本页（按主键范围扫描）再比较，不对全表做聚合
      */
     @GetMapping("/all")
-    public ResponseEntity<Map<String, Object>> getAllProducts() {
+    public ResponseEntity<Map<String, Object>> getAllProducts(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
         Map<String, Object> response = new HashMap<>();
         try {
+            if (afterId != null || limit != null) {
+                int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+                List<Product> page = productService.getProductPage(afterId, pageSize);
+                ResourceVersion version = ResourceVersion.page(page);
+                if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+                    // 已设置 304 状态和 ETag 响应头，不再序列化本页
+                    return null;
+                }
+                response.put("code", 200);
+                response.put("msg", "查询成功");
+                response.put("data", page);
+                // 取满一页才可能还有下一页
+                response.put("nextCursor", page.size() == pageSize ? page.get(page.size() - 1).getId() : null);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+            }
+            ResourceVersion version = productService.getCatalogVersion();
+            if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+                // 已设置 304 状态和 ETag 响应头，不再生成响应体
+                return null;
+            }
             List<Product> products = productService.getAllProducts();
             response.put("code", 200);
             response.put("msg", "查询成功");
             response.put("data", products);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
         } catch (Exception e) {
             log.error("查询所有商品异常", e);
             response.put("code", 500);
@@ -45,19 +90,129 @@ public class ProductController {
         }
     }
 
+    /**
+     * 搜索商品（GET请求：/product/search?q=关键词&page=1&size=20&inStock=true）
+     * 按名称 / 描述匹配（中文按相邻两字、英文按单词，支持前缀和单字符拼写错误），相关度降序分页返回；
+     * 默认只返回有库存的商品，inStock=false 时包含售罄商品
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean inStock) {
+        Map<String, Object> response = new HashMap<>();
+        if (q == null || q.isBlank() || q.length() > MAX_QUERY_LENGTH) {
+            response.put("code", 400);
+            response.put("msg", "搜索关键词不能为空且不超过 " + MAX_QUERY_LENGTH + " 个字符");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            ProductSearchResult result = productService.searchProducts(q, page, size, inStock);
+            response.put("code", 200);
+            response.put("msg", "查询成功");
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (ServiceBusyException e) {
+            response.put("code", 503);
+            response.put("msg", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            log.error("搜索商品异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 购物车报价（POST请求：/product/quote，请求体 {"items": [{"productId": 1, "num": 2}]}）
+     * 一次返回购物车中每个商品的当前单价、行金额、库存与可购买状态以及合计，
+     * 购物车 / 结算页不再使用本地保存的旧价格，也不必逐个查询商品
+     */
+    @PostMapping("/quote")
+    public ResponseEntity<Map<String, Object>> quoteCart(@Valid @RequestBody CartQuoteRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CartQuote quote = productService.quoteCart(request.getItems());
+            response.put("code", 200);
+            response.put("msg", "查询成功");
+            response.put("data", quote);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("code", 400);
+            response.put("msg", "报价失败：" + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("购物车报价异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 流式导出全部商品（GET请求：/product/export?format=ndjson|json）
+     * 数据库游标逐行读取并直接写入响应流，内存占用不随商品数量增长
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> productService.exportProducts(out, ndjson);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * 批量导入商品（POST请求：/product/import?format=csv|ndjson，请求体为文件内容）
+     * 请求体边读边写入数据库，不整体缓存；未传 format 时按 Content-Type 判断（含 ndjson / json 为 NDJSON，否则 CSV）
+     * 响应包含读取 / 导入 / 拒绝行数、逐行拒绝原因和导入速度
+     */
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importProducts(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            InputStream body) {
+        Map<String, Object> response = new HashMap<>();
+        boolean ndjson = format != null
+                ? "ndjson".equalsIgnoreCase(format)
+                : contentType != null && contentType.toLowerCase().contains("json");
+        try {
+            ProductImportResult result = productService.importProducts(body, ndjson);
+            response.put("code", 200);
+            response.put("msg", "导入完成：成功 " + result.getImported() + " 行，拒绝 " + result.getRejected() + " 行");
+            response.put("data", result);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("批量导入商品异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     /**
      * 根据ID查询商品（GET请求：/product/{id}）
+     * 支持条件 GET：商品版本号未变化时返回 304（命中商品缓存时不查库）
      */
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> getProductById(
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            WebRequest webRequest) {
         Map<String, Object> response = new HashMap<>();
         try {
             Product product = productService.getProductById(id);
             if (product != null) {
+                ResourceVersion version = ResourceVersion.of(product);
+                if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+                    return null;
+                }
                 response.put("code", 200);
                 response.put("msg", "查询成功");
                 response.put("data", product);
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
             } else {
                 response.put("code", 404);
                 response.put("msg", "商品不存在");
@@ -0,0 +1,81 @@
+package com.shop.demo.controller;
+
+import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.stock.StockBuckets;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 库存分桶管理接口：查看 / 拆分 / 重新均衡 / 合并热门商品的库存桶
+ */
+@Slf4j
+@Lazy // 管理接口，不在下单 / 浏览主路径上，第一次请求时才创建
+@RestController
+@RequestMapping("/product/{productId}/stock-buckets")
+@RequiredArgsConstructor
+@Validated
+public class StockBucketController {
+
+    private final StockBuckets stockBuckets;
+
+    /**
+     * 查看各桶库存（GET /product/{productId}/stock-buckets），未分桶时为空列表
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> list(@PathVariable Long productId) {
+        return handle("查询成功", () -> stockBuckets.list(productId));
+    }
+
+    /**
+     * 拆分库存（POST /product/{productId}/stock-buckets?buckets=8），已分桶的商品按新桶数重新拆分
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> split(@PathVariable Long productId, @RequestParam int buckets) {
+        return handle("库存已分桶", () -> stockBuckets.split(productId, buckets));
+    }
+
+    /**
+     * 各桶库存重新平均分配（POST /product/{productId}/stock-buckets/rebalance）
+     */
+    @PostMapping("/rebalance")
+    public ResponseEntity<Map<String, Object>> rebalance(@PathVariable Long productId) {
+        return handle("库存桶已重新均衡", () -> stockBuckets.rebalance(productId));
+    }
+
+    /**
+     * 合并回商品行（DELETE /product/{productId}/stock-buckets），返回合并后的库存
+     */
+    @DeleteMapping
+    public ResponseEntity<Map<String, Object>> merge(@PathVariable Long productId) {
+        return handle("库存分桶已合并", () -> stockBuckets.merge(productId));
+    }
+
+    private ResponseEntity<Map<String, Object>> handle(String msg, Supplier<Object> action) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Object data = action.get();
+            response.put("code", 200);
+            response.put("msg", msg);
+            response.put("data", data);
+            return ResponseEntity.ok(response);
+        } catch (ProductNotFoundException | IllegalArgumentException | IllegalStateException e) {
+            response.put("code", 400);
+            response.put("msg", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("库存分桶操作异常", e);
+            response.put("code", 500);
+            response.put("msg", "服务器内部错误");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+}
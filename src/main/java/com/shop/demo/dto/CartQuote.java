@@ -0,0 +1,40 @@
+package com.shop.demo.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 购物车报价：按当前价格和库存计算的每行金额与合计（顺序与请求一致）
+ */
+@Data
+public class CartQuote {
+
+    /**
+     * 商品可购买状态
+     */
+    public enum Availability {
+        AVAILABLE, INSUFFICIENT_STOCK, NOT_FOUND
+    }
+
+    /**
+     * 报价行（商品不存在时名称、价格、库存、金额为 null）
+     *
+     * @param productId    商品 ID
+     * @param productName  商品名称
+     * @param unitPrice    当前单价
+     * @param num          购买数量
+     * @param lineTotal    行金额（与下单时订单金额的计算方式一致）
+     * @param stock        当前库存
+     * @param availability 是否可按该数量购买
+     */
+    public record Line(Long productId, String productName, BigDecimal unitPrice, int num,
+                       BigDecimal lineTotal, Integer stock, Availability availability) {
+    }
+
+    private List<Line> items = new ArrayList<>();
+    private BigDecimal total = BigDecimal.ZERO; // 所有存在商品的行金额之和
+    private boolean available = true;           // 全部商品都可按数量购买（批量下单才会成功）
+}
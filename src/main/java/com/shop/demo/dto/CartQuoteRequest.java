@@ -0,0 +1,32 @@
+package com.shop.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 购物车报价请求：购物车中的全部商品和数量
+ */
+@Data
+public class CartQuoteRequest {
+
+    @NotEmpty(message = "商品列表不能为空")
+    @Size(max = 200, message = "一次最多报价 200 个商品")
+    @Valid
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        @NotNull(message = "商品 ID 不能为空")
+        private Long productId;
+
+        @NotNull(message = "购买数量不能为空")
+        @Min(value = 1, message = "购买数量必须大于 0")
+        private Integer num;
+    }
+}
@@ -0,0 +1,49 @@
+package com.shop.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import tools.jackson.databind.annotation.JsonSerialize;
+import tools.jackson.databind.ser.std.ToStringSerializer;
+
+import java.time.LocalDateTime;
+
+/**
+ * 秒杀排队凭证：下单请求拿到库存令牌后进入队列，客户端凭 ticketId 轮询订单落库结果
+ */
+@Data
+public class FlashSaleTicket {
+
+    public static final String QUEUED = "QUEUED";     // 排队中，订单尚未落库
+    public static final String SUCCESS = "SUCCESS";   // 订单已落库
+    public static final String FAILED = "FAILED";     // 落库失败（库存令牌已归还）
+
+    private String ticketId;
+    private Long userId;
+    private Long productId;
+    private Integer num;
+    private volatile String status;
+    // 订单 ID 按字符串输出（与 Order.id 一致），避免前端精度丢失
+    @JsonSerialize(using = ToStringSerializer.class)
+    private volatile Long orderId;
+    private volatile String reason;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+    private LocalDateTime createTime;
+
+    // 进入终态的时间（毫秒），用于过期清理
+    @JsonIgnore
+    private volatile long finishedAt;
+
+    public void succeed(Long orderId) {
+        this.orderId = orderId;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = SUCCESS;
+    }
+
+    public void fail(String reason) {
+        this.reason = reason;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = FAILED;
+    }
+}
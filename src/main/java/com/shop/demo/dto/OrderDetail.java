@@ -0,0 +1,19 @@
+package com.shop.demo.dto;
+
+import com.shop.demo.entity.Order;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单详情 DTO：订单字段 + 数据库端关联出的商品名称与单价（前端无需再查询商品列表）
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class OrderDetail extends Order {
+    private String productName;     // 商品名称（关联 "product".name）
+    private BigDecimal unitPrice;   // 商品当前单价（关联 "product".price）
+}
@@ -0,0 +1,30 @@
+package com.shop.demo.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品批量导入结果
+ */
+@Data
+public class ProductImportResult {
+
+    /**
+     * 被拒绝的一行
+     *
+     * @param line   行号（CSV / NDJSON 的物理行号，从 1 开始，含表头）
+     * @param reason 拒绝原因
+     */
+    public record Rejection(long line, String reason) {
+    }
+
+    private long total;          // 读取的数据行数
+    private long imported;       // 成功写入的行数
+    private long rejected;       // 被拒绝的行数（校验失败 + 写入失败）
+    private long elapsedMillis;  // 耗时（毫秒）
+    private double rowsPerSecond; // 写入速度（成功行数 / 秒）
+    private boolean truncated;   // 拒绝明细是否因条数上限被截断
+    private List<Rejection> rejections = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package com.shop.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品销售统计（排行榜的一行）
+ *
+ * @param productId   商品 ID
+ * @param productName 商品名称（商品已删除时为 null）
+ * @param units       销量
+ * @param revenue     销售额
+ * @param buyers      去重买家数（估算值，误差约 3%）
+ */
+public record ProductSales(Long productId, String productName, long units, BigDecimal revenue, long buyers) {
+}
@@ -0,0 +1,32 @@
+package com.shop.demo.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品搜索结果（按相关度降序，相同相关度按商品 ID 升序）
+ */
+@Data
+public class ProductSearchResult {
+
+    /**
+     * 命中的商品
+     *
+     * @param id          商品 ID
+     * @param productName 商品名称
+     * @param price       价格
+     * @param stock       库存（索引内随下单增量维护）
+     * @param score       相关度（名称命中高于描述，完整词 > 前缀 > 模糊）
+     */
+    public record Hit(Long id, String productName, BigDecimal price, Integer stock, double score) {
+    }
+
+    private long total;       // 满足条件的商品总数
+    private int page;         // 页码（从 1 开始）
+    private int size;         // 每页条数
+    private long tookMicros;  // 查询耗时（微秒）
+    private List<Hit> items = new ArrayList<>();
+}
@@ -0,0 +1,50 @@
+package com.shop.demo.dto;
+
+import com.shop.demo.entity.Product;
+
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 接口响应的版本信息，用于条件 GET（If-None-Match / If-Modified-Since）
+ *
+ * @param etag         弱 ETag（W/"..."）：表示内容语义相同，不保证字节完全一致
+ * @param lastModified 最后修改时间（毫秒），未知时为 -1
+ */
+public record ResourceVersion(String etag, long lastModified) {
+
+    /**
+     * 单个商品：由商品的版本号生成（每次改库存 version + 1）
+     */
+    public static ResourceVersion of(Product product) {
+        long version = product.getVersion() == null ? 0 : product.getVersion();
+        long lastModified = product.getUpdateTime() == null ? -1
+                : product.getUpdateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new ResourceVersion("W/\"p" + product.getId() + "-" + version + "\"", lastModified);
+    }
+
+    /**
+     * 键集分页的一页商品：只由本页的商品生成（首尾 id、条数、各商品版本号之和），不依赖全量版本号
+     */
+    public static ResourceVersion page(List<Product> products) {
+        long versions = 0;
+        long lastModified = -1;
+        for (Product product : products) {
+            versions += (product.getVersion() == null ? 0 : product.getVersion()) + 1;
+            if (product.getUpdateTime() != null) {
+                lastModified = Math.max(lastModified,
+                        product.getUpdateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        String range = products.isEmpty() ? "0"
+                : products.get(0).getId() + "-" + products.get(products.size() - 1).getId();
+        return new ResourceVersion("W/\"g" + range + "-" + products.size() + "-" + versions + "\"", lastModified);
+    }
+
+    /**
+     * 全量商品：由全量版本号生成
+     */
+    public static ResourceVersion catalog(String version, long lastModified) {
+        return new ResourceVersion("W/\"c" + version + "\"", lastModified);
+    }
+}
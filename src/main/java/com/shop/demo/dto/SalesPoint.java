@@ -0,0 +1,18 @@
+package com.shop.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 销售时间序列中的一个点（一分钟或一小时）
+ *
+ * @param time    时间桶的起始时间
+ * @param units   销量
+ * @param revenue 销售额
+ * @param buyers  去重买家数（估算值）
+ */
+public record SalesPoint(@JsonFormat(pattern = "yyyy-MM-dd HH:mm", timezone = "GMT+8") LocalDateTime time,
+                         long units, BigDecimal revenue, long buyers) {
+}
@@ -1,12 +1,12 @@
 package com.shop.demo.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.ToString;
+import tools.jackson.databind.annotation.JsonSerialize;
+import tools.jackson.databind.ser.std.ToStringSerializer;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -19,7 +19,8 @@ public class Order implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
-    // 使用 ToStringSerializer 防止前端 Long 类型精度丢失
+    // 订单 ID（Snowflake 格式，约 2^57）超出 JS Number 的安全整数范围，按字符串输出防止前端精度丢失
+    // Spring MVC 使用 Jackson 3，必须用 tools.jackson 包下的注解，com.fasterxml 的 databind 注解不生效
     @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
@@ -12,4 +12,14 @@ public class Product {
     private Integer stock;          // 商品库存（对应表中stock）
     private String description;     // 商品描述（对应表中description）
     private LocalDateTime createTime; // 创建时间（对应表中create_time）
-}
\ No newline at end of file
+    private Long version;           // 版本号（对应表中version，每次改库存 + 1，用于 ETag）
+    private LocalDateTime updateTime; // 最后修改时间（对应表中update_time，用于 Last-Modified）
+    private Integer stockBuckets;   // 库存分桶数（对应表中stock_buckets，0 为未分桶；分桶后 stock 为各桶之和）
+
+    /**
+     * 按当前单价计算 num 件的金额（下单与购物车报价共用，保证两处金额一致）
+     */
+    public BigDecimal lineTotal(int num) {
+        return price.multiply(BigDecimal.valueOf(num));
+    }
+}
@@ -0,0 +1,16 @@
+package com.shop.demo.entity;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class SalesSummary {
+    private String scope;             // 统计维度：total / product / minute / hour
+    private Long bucket;              // 商品ID，或分钟 / 小时序号（Unix 时间 / 桶宽度），total 为 0
+    private Long units;               // 销量
+    private BigDecimal revenue;       // 销售额
+    private byte[] buyers;            // 去重买家（HyperLogLog 寄存器）
+    private LocalDateTime updateTime; // 最后写入时间
+}
@@ -0,0 +1,14 @@
+package com.shop.demo.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class StockBucket {
+    private Long productId;         // 商品ID（对应表中product_id）
+    private Integer bucket;         // 桶编号（0 ~ 分桶数-1）
+    private Integer stock;          // 本桶库存
+    private Long version;           // 版本号（每次改库存 + 1，计入商品的版本号）
+    private LocalDateTime updateTime; // 最后修改时间
+}
@@ -0,0 +1,13 @@
+package com.shop.demo.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单创建事件（经 order_outbox 表由 OrderOutboxRelay 投递到 OrderEventBus）
+ * <p>
+ * 订单事务提交后异步投递，至少一次：同一订单可能重复收到，订阅方按 orderId 去重或保证处理幂等。
+ */
+public record OrderCreatedEvent(Long orderId, Long userId, Long productId, Integer num, BigDecimal totalPrice,
+                                LocalDateTime createTime) {
+}
@@ -0,0 +1,24 @@
+package com.shop.demo.event;
+
+/**
+ * 商品变更事件（应用内 Spring 事件）
+ * <p>
+ * 在事务内发布，监听方使用 @TransactionalEventListener 在事务提交后处理，回滚则不会收到。
+ *
+ * @param productId  商品 ID
+ * @param stockDelta 库存变化量（下单扣减为负数）；为 null 表示商品新增或整体变更，需要重新加载
+ */
+public record ProductChangedEvent(Long productId, Integer stockDelta) {
+
+    public static ProductChangedEvent stockChanged(Long productId, int stockDelta) {
+        return new ProductChangedEvent(productId, stockDelta);
+    }
+
+    public static ProductChangedEvent saved(Long productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isStockChange() {
+        return stockDelta != null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.shop.demo.exception;
+
+import lombok.Getter;
+
+/**
+ * 准入控制拒绝异常（限流 429 / 过载 503，客户端按 Retry-After 秒数后重试）
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    // 响应状态码（429 或 503）
+    private final int status;
+    // 建议的重试等待秒数（Retry-After 响应头）
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(int status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,10 @@
+package com.shop.demo.exception;
+
+/**
+ * 系统繁忙异常（排队已满 / 过载保护，客户端稍后重试）
+ */
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
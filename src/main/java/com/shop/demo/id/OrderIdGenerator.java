@@ -0,0 +1,81 @@
+package com.shop.demo.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单 ID 生成器（Snowflake 格式，64 位，按时间递增）
+ * <p>
+ * 位布局：1 位符号（恒为 0） | 41 位毫秒时间戳（相对 epoch，约 69 年） | 10 位节点号 | 12 位序号（每毫秒 4096 个）
+ * 1. 无锁：上次的 (时间戳, 序号) 合成一个 long 放在 AtomicLong 中，CAS 更新
+ * 2. 同一毫秒内序号用完时自旋等到下一毫秒（单节点上限每秒约 409 万个）
+ * 3. 时钟回拨：沿用上次的时间戳继续递增序号（用完则等时钟追上），回拨超过 shop.order.id.max-clock-backward 时抛出 IllegalStateException
+ * 在插入前分配 ID，订单 INSERT 不再需要 RETURNING 回填，事务提交前就能拿到订单 ID
+ */
+@Slf4j
+@Component
+public class OrderIdGenerator {
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeBits;
+    private final long epochMillis;
+    private final long maxBackwardMillis;
+    private final LongSupplier clock;
+    // 上次分配的 (时间戳 << SEQUENCE_BITS) | 序号
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public OrderIdGenerator(OrderIdProperties properties) {
+        this(properties, System::currentTimeMillis);
+    }
+
+    OrderIdGenerator(OrderIdProperties properties, LongSupplier clock) {
+        if (properties.getNodeId() < 0 || properties.getNodeId() > MAX_NODE_ID) {
+            throw new IllegalArgumentException("shop.order.id.node-id 必须在 0 ~ " + MAX_NODE_ID + " 之间");
+        }
+        this.nodeBits = (long) properties.getNodeId() << SEQUENCE_BITS;
+        this.epochMillis = properties.getEpoch().toEpochMilli();
+        this.maxBackwardMillis = properties.getMaxClockBackward().toMillis();
+        this.clock = clock;
+        log.info("订单 ID 生成器：节点号={}", properties.getNodeId());
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long last = current >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - epochMillis;
+            long next;
+            if (now > last) {
+                next = now << SEQUENCE_BITS;
+            } else if (last - now > maxBackwardMillis) {
+                throw new IllegalStateException("时钟回拨 " + (last - now) + "ms，超过 shop.order.id.max-clock-backward，拒绝生成订单 ID");
+            } else if ((current & SEQUENCE_MASK) == SEQUENCE_MASK) {
+                // 本毫秒的序号已用完（或时钟回拨期间用完）：等时钟走到下一毫秒
+                Thread.onSpinWait();
+                continue;
+            } else {
+                // 同一毫秒或时钟回拨：沿用上次的时间戳，序号加一
+                next = current + 1;
+            }
+            if (state.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * ID 中的时间戳（Unix 毫秒）
+     */
+    public long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + epochMillis;
+    }
+}
@@ -0,0 +1,21 @@
+package com.shop.demo.id;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 订单 ID 生成配置（前缀 shop.order.id）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.order.id")
+public class OrderIdProperties {
+    // 节点号（0 ~ 1023），多实例部署时每个实例必须不同
+    private int nodeId = 0;
+    // 时间戳起点，上线后不能再修改（否则可能生成重复 ID）
+    private Instant epoch = Instant.parse("2025-01-01T00:00:00Z");
+    // 允许的时钟回拨：回拨期间沿用上次的时间戳继续递增序号，超过该值拒绝生成 ID
+    private Duration maxClockBackward = Duration.ofSeconds(5);
+}
@@ -0,0 +1,16 @@
+package com.shop.demo.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户的幂等键（幂等键按用户唯一，不同用户可使用相同的键），用于批量释放幂等键
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+    private Long userId;
+    private String key;
+}
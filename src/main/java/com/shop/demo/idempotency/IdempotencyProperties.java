@@ -0,0 +1,26 @@
+package com.shop.demo.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 下单幂等配置（前缀 shop.idempotency）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.idempotency")
+public class IdempotencyProperties {
+    // 是否启用：关闭后忽略 Idempotency-Key 请求头
+    private boolean enabled = true;
+    // 内存结果缓存的分段数（每段一把锁）
+    private int stripes = 64;
+    // 内存中保留请求结果的时间（期间重复请求直接返回缓存结果，不访问数据库）
+    private Duration ttl = Duration.ofMinutes(10);
+    // 重复请求等待第一个请求结果的最长时间
+    private Duration waitTimeout = Duration.ofSeconds(15);
+    // 数据库中幂等键的保留时间（跨重启 / 跨节点去重的时间窗口）
+    private Duration retention = Duration.ofHours(24);
+    // 幂等键最大长度
+    private int maxKeyLength = 100;
+}
@@ -0,0 +1,210 @@
+package com.shop.demo.idempotency;
+
+import com.shop.demo.mapper.IdempotencyKeyMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 下单幂等结果缓存（内存，分段加锁）
+ * <p>
+ * 同一个幂等键第一次到达时执行下单并缓存响应；并发到达的重复请求等待第一个请求的结果，不会再次加锁扣库存；
+ * 之后 ttl 内的重复请求直接返回缓存的响应。5xx 响应不缓存，允许客户端用同一个键重试。
+ * 键按接口和用户区分（见 OrderController.scopedKey），不同用户使用相同的键互不影响。
+ * 内存缓存只在本实例有效，跨重启 / 跨节点由数据库表 order_idempotency_key 的 (user_id, idem_key) 唯一索引兜底（见 OrderServiceImpl）。
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private final IdempotencyProperties properties;
+    private final IdempotencyKeyMapper idempotencyKeyMapper;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter waited;
+
+    private static final class Entry {
+        // 请求内容摘要：同一个键用于不同请求时拒绝
+        final String fingerprint;
+        final CompletableFuture<ResponseEntity<Map<String, Object>>> result = new CompletableFuture<>();
+        volatile long expiresAtNanos = Long.MAX_VALUE;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, Entry> entries = new HashMap<>();
+    }
+
+    public IdempotencyStore(IdempotencyProperties properties, IdempotencyKeyMapper idempotencyKeyMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.idempotencyKeyMapper = idempotencyKeyMapper;
+        int size = Integer.highestOneBit(Math.max(1, properties.getStripes() - 1) << 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = size - 1;
+        this.executed = counter(meterRegistry, "executed");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.waited = counter(meterRegistry, "waited");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 校验幂等键格式，不合法时返回错误信息
+     */
+    public String validate(String key) {
+        if (key.isBlank() || key.length() > properties.getMaxKeyLength()) {
+            return "Idempotency-Key 长度必须为 1~" + properties.getMaxKeyLength();
+        }
+        return null;
+    }
+
+    /**
+     * 按幂等键执行一次 action（key 为 null 或未启用时直接执行）
+     *
+     * @param key         幂等键（调用方应带上接口前缀，不同接口的键互不影响）
+     * @param fingerprint 请求内容摘要
+     */
+    public ResponseEntity<Map<String, Object>> execute(String key, String fingerprint,
+                                                       Supplier<ResponseEntity<Map<String, Object>>> action) {
+        if (key == null || !properties.isEnabled()) {
+            return action.get();
+        }
+        Stripe stripe = stripeOf(key);
+        Entry entry;
+        boolean owner = false;
+        stripe.lock.lock();
+        try {
+            entry = stripe.entries.get(key);
+            if (entry == null || entry.expiresAtNanos - System.nanoTime() < 0) {
+                entry = new Entry(fingerprint);
+                stripe.entries.put(key, entry);
+                owner = true;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        if (!owner) {
+            return await(entry, fingerprint);
+        }
+        executed.increment();
+        ResponseEntity<Map<String, Object>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            remove(stripe, key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            // 失败结果不缓存：等待中的重复请求拿到同样的失败，之后可用同一个键重试
+            remove(stripe, key, entry);
+        } else {
+            entry.expiresAtNanos = System.nanoTime() + properties.getTtl().toNanos();
+        }
+        entry.result.complete(response);
+        return response;
+    }
+
+    /**
+     * 清理过期的内存结果
+     */
+    @Scheduled(initialDelay = 60_000, fixedDelay = 60_000)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.entries.values().removeIf(e -> e.result.isDone() && e.expiresAtNanos - now < 0);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 清理数据库中超过保留期的幂等键
+     */
+    @Scheduled(initialDelay = 3_600_000, fixedDelay = 3_600_000)
+    public void purgeExpiredKeys() {
+        int deleted = idempotencyKeyMapper.deleteBefore(LocalDateTime.now().minus(properties.getRetention()));
+        log.info("已清理过期幂等键：{} 条", deleted);
+    }
+
+    private ResponseEntity<Map<String, Object>> await(Entry entry, String fingerprint) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            return error(HttpStatus.UNPROCESSABLE_CONTENT, "Idempotency-Key 已用于其他请求");
+        }
+        if (entry.result.isDone()) {
+            replayed.increment();
+        } else {
+            waited.increment();
+        }
+        try {
+            return entry.result.get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            return error(HttpStatus.CONFLICT, "相同的请求正在处理中，请稍后查询订单");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.CONFLICT, "相同的请求正在处理中，请稍后查询订单");
+        }
+    }
+
+    private static void remove(Stripe stripe, String key, Entry entry) {
+        stripe.lock.lock();
+        try {
+            stripe.entries.remove(key, entry);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String msg) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", status.value());
+        response.put("msg", msg);
+        return ResponseEntity.status(status).body(response);
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome) {
+        return Counter.builder("shop.idempotency.requests")
+                .description("带幂等键的下单请求：executed 首次执行 / waited 等待并发的首个请求 / replayed 返回缓存结果")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Stripe stripeOf(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & stripeMask];
+    }
+}
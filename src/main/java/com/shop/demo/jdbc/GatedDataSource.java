@@ -0,0 +1,169 @@
+package com.shop.demo.jdbc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带并发闸门的数据源：获取连接前先拿读 / 写名额（公平信号量），连接关闭时归还
+ * <p>
+ * 读写按当前事务判断：非只读事务为写，只读事务和无事务查询为读。
+ * 事务开始时还不知道是否只读，所以外层需要包一层 LazyConnectionDataSourceProxy，
+ * 把真正获取连接推迟到第一条 SQL 执行时（见 {@link JdbcGateConfiguration}）。
+ */
+public class GatedDataSource extends DelegatingDataSource {
+
+    /**
+     * 名额类型
+     */
+    enum Kind {
+        READ, WRITE;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final JdbcGateProperties properties;
+    private final Semaphore readPermits;
+    private final Semaphore writePermits;
+    private final Timer readWait;
+    private final Timer writeWait;
+    private final Counter readTimeouts;
+    private final Counter writeTimeouts;
+
+    /**
+     * @param pool 连接池名称（数据源 Bean 名），作为指标的 pool 标签区分多个数据源（如读写分离的主库 / 副本）
+     */
+    public GatedDataSource(DataSource target, JdbcGateProperties properties, MeterRegistry registry, String pool) {
+        super(target);
+        this.properties = properties;
+        this.readPermits = new Semaphore(Math.max(1, properties.getReadPermits()), true);
+        this.writePermits = new Semaphore(Math.max(1, properties.getWritePermits()), true);
+        this.readWait = waitTimer(registry, Kind.READ, pool);
+        this.writeWait = waitTimer(registry, Kind.WRITE, pool);
+        this.readTimeouts = timeoutCounter(registry, Kind.READ, pool);
+        this.writeTimeouts = timeoutCounter(registry, Kind.WRITE, pool);
+        gauges(registry, Kind.READ, readPermits, properties.getReadPermits(), pool);
+        gauges(registry, Kind.WRITE, writePermits, properties.getWritePermits(), pool);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Kind kind = currentKind();
+        Semaphore permits = acquire(kind);
+        try {
+            return gated(obtainTargetDataSource().getConnection(), permits);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Kind kind = currentKind();
+        Semaphore permits = acquire(kind);
+        try {
+            return gated(obtainTargetDataSource().getConnection(username, password), permits);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    static Kind currentKind() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? Kind.WRITE : Kind.READ;
+    }
+
+    private Semaphore acquire(Kind kind) throws SQLException {
+        Semaphore permits = kind == Kind.WRITE ? writePermits : readPermits;
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(properties.getAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接名额时被中断", e);
+        }
+        (kind == Kind.WRITE ? writeWait : readWait).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            (kind == Kind.WRITE ? writeTimeouts : readTimeouts).increment();
+            throw new SQLTransientConnectionException("数据库繁忙：等待" + (kind == Kind.WRITE ? "写" : "读") + "连接名额超时（"
+                    + properties.getAcquireTimeout().toMillis() + "ms）");
+        }
+        return permits;
+    }
+
+    /**
+     * 包装连接：close() 时归还名额（只归还一次）
+     */
+    private static Connection gated(Connection connection, Semaphore permits) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(GatedDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    if ("unwrap".equals(method.getName()) && ((Class<?>) args[0]).isInstance(connection)) {
+                        return connection;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static Timer waitTimer(MeterRegistry registry, Kind kind, String pool) {
+        return Timer.builder("shop.jdbc.gate.wait")
+                .description("获取数据库连接前等待闸门名额的时间")
+                .tag("kind", kind.tag)
+                .tag("pool", pool)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter timeoutCounter(MeterRegistry registry, Kind kind, String pool) {
+        return Counter.builder("shop.jdbc.gate.timeouts")
+                .description("等待闸门名额超时次数")
+                .tag("kind", kind.tag)
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    private static void gauges(MeterRegistry registry, Kind kind, Semaphore permits, int total, String pool) {
+        Gauge.builder("shop.jdbc.gate.active", permits, p -> Math.max(1, total) - p.availablePermits())
+                .description("当前持有连接名额的线程数")
+                .tag("kind", kind.tag)
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("shop.jdbc.gate.waiting", permits, Semaphore::getQueueLength)
+                .description("正在等待连接名额的线程数")
+                .tag("kind", kind.tag)
+                .tag("pool", pool)
+                .register(registry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.shop.demo.jdbc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 启用 JDBC 并发闸门：把容器中的 DataSource 包装为
+ * LazyConnectionDataSourceProxy -> GatedDataSource -> 原连接池
+ * <p>
+ * 延迟获取连接保证闸门能看到事务的只读标记，也让没有执行 SQL 的事务（如命中缓存）完全不占用名额。
+ * 启用读写分离时路由数据源本身就是 LazyConnectionDataSourceProxy，不再包装，主库 / 副本连接池各自包装一套名额。
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "shop.jdbc.gate", name = "enabled", havingValue = "true")
+public class JdbcGateConfiguration {
+
+    @Bean
+    static BeanPostProcessor jdbcGateDataSourcePostProcessor(ObjectProvider<JdbcGateProperties> properties,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof LazyConnectionDataSourceProxy) {
+                    return bean;
+                }
+                JdbcGateProperties gate = properties.getObject();
+                MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+                log.info("JDBC 并发闸门已启用（{}）：读名额={}，写名额={}，等待超时={}", beanName,
+                        gate.getReadPermits(), gate.getWritePermits(), gate.getAcquireTimeout());
+                return new LazyConnectionDataSourceProxy(new GatedDataSource(dataSource, gate, registry, beanName));
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.shop.demo.jdbc;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * JDBC 并发闸门配置（前缀 shop.jdbc.gate）
+ * <p>
+ * 虚拟线程模式下请求线程数不再受 Tomcat 线程池限制，闸门限制同时持有数据库连接的线程数，
+ * 读、写分别计数：写事务等待行锁时占满写名额，读请求仍有自己的名额。
+ * read-permits + write-permits 应不大于连接池大小（Hikari 默认 10）。
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.jdbc.gate")
+public class JdbcGateProperties {
+    // 是否启用（virtual-threads profile 中默认开启）
+    private boolean enabled = false;
+    // 读请求（只读事务 / 无事务查询）可同时持有的连接数
+    private int readPermits = 4;
+    // 写事务可同时持有的连接数
+    private int writePermits = 6;
+    // 等待名额的超时时间，超时抛出连接获取失败
+    private Duration acquireTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,64 @@
+package com.shop.demo.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * 读写分离：主库 + 只读副本两个连接池，对外暴露一个按事务只读标记路由的数据源
+ * <p>
+ * dataSource（@Primary，MyBatis / 事务管理器 / JdbcTemplate 使用）是 LazyConnectionDataSourceProxy：
+ * 事务开始时不取连接，等第一条 SQL 执行时已知道事务是否只读，只读事务从 replicaDataSource 取连接，
+ * 其余（写事务、无事务的语句）从 primaryDataSource 取连接。
+ * 两个连接池分别命名为 primary / replica，hikaricp.* 指标按 pool 标签区分；启用 JDBC 闸门时两个池各有一套名额。
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "shop.jdbc.replica", name = "enabled", havingValue = "true")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("shop.jdbc.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties primary, ReadReplicaProperties replica) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setDriverClassName(primary.determineDriverClassName());
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setReadOnly(true);
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReadReplicaProperties properties) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(replica);
+        // 显式给出连接默认值，避免启动时为探测默认值去连接数据库（与 Postgres / Hikari 默认一致）
+        routing.setDefaultAutoCommit(true);
+        routing.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        log.info("读写分离已启用：只读事务使用副本 {}，读己之写窗口 {}", properties.getUrl(), properties.getReadYourWritesWindow());
+        return routing;
+    }
+}
@@ -0,0 +1,27 @@
+package com.shop.demo.jdbc;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 只读副本配置（前缀 shop.jdbc.replica）
+ * <p>
+ * 启用后只读事务（@Transactional(readOnly = true)）在副本连接池上执行，其余在主库（spring.datasource）上执行。
+ * 副本连接池参数写在 shop.jdbc.replica.hikari 下（与 spring.datasource.hikari 相同的属性名）。
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.jdbc.replica")
+public class ReadReplicaProperties {
+    // 是否启用读写分离
+    private boolean enabled = false;
+    // 副本连接地址（驱动与主库相同）
+    private String url;
+    private String username;
+    private String password;
+    // 读己之写：用户下单后这段时间内，该用户的订单查询走主库（应大于副本复制延迟）
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    // 读己之写最多跟踪的用户数（超出按最近最少使用淘汰）
+    private long readYourWritesMaxUsers = 100_000;
+}
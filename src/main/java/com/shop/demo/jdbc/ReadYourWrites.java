@@ -0,0 +1,55 @@
+package com.shop.demo.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 读己之写：用户刚下过单时，他的订单查询走主库，避免因副本复制延迟看不到自己刚创建的订单
+ * <p>
+ * 只记录本实例内的写入；未启用读写分离时所有查询本来就在主库上，这里不做任何处理。
+ */
+@Component
+public class ReadYourWrites {
+
+    private final ReadReplicaProperties properties;
+    private final Cache<Long, Boolean> recentWriters;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ReadYourWrites(ReadReplicaProperties properties, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.properties = properties;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(properties.getReadYourWritesMaxUsers())
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .build();
+        PlatformTransactionManager manager = properties.isEnabled() ? transactionManager.getIfAvailable() : null;
+        this.readOnlyTransaction = manager == null ? null : new TransactionTemplate(manager);
+        if (readOnlyTransaction != null) {
+            readOnlyTransaction.setReadOnly(true);
+        }
+    }
+
+    /**
+     * 记录用户刚写入了数据（下单）
+     */
+    public void recordWrite(Long userId) {
+        if (readOnlyTransaction != null && userId != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 以用户视角执行查询：读己之写窗口内在主库执行，否则在只读事务（副本）中执行
+     */
+    public <T> T read(Long userId, Supplier<T> query) {
+        if (readOnlyTransaction == null || (userId != null && recentWriters.getIfPresent(userId) != null)) {
+            return query.get();
+        }
+        return readOnlyTransaction.execute(status -> query.get());
+    }
+}
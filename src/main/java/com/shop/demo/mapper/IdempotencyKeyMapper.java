@@ -0,0 +1,22 @@
+package com.shop.demo.mapper;
+
+import com.shop.demo.idempotency.IdempotencyKey;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface IdempotencyKeyMapper {
+    // 占用用户的幂等键（INSERT ... ON CONFLICT DO NOTHING），返回 1 表示首次提交，0 表示该用户重复提交
+    int claim(@Param("key") String key, @Param("userId") Long userId);
+    // 记录幂等键对应的订单 ID（逗号分隔）
+    int complete(@Param("key") String key, @Param("userId") Long userId, @Param("orderIds") String orderIds);
+    // 查询用户幂等键对应的订单 ID，未完成时为 null
+    String selectOrderIds(@Param("key") String key, @Param("userId") Long userId);
+    // 释放幂等键（合并下单中未成功的请求，允许用同一个键重试）
+    int deleteKeys(@Param("keys") List<IdempotencyKey> keys);
+    // 清理超过保留期的幂等键
+    int deleteBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,46 @@
+package com.shop.demo.mapper;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 把 List&lt;Long&gt; 作为一个 bigint[] 参数绑定（用于 id = ANY(#{ids})）
+ * 不论列表多长 SQL 文本都相同，服务端预编译语句可以复用，不像 IN (?, ?, ...) 每种长度一条 SQL
+ */
+public class LongListArrayTypeHandler extends BaseTypeHandler<List<Long>> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, List<Long> parameter, JdbcType jdbcType) throws SQLException {
+        ps.setArray(i, ps.getConnection().createArrayOf("bigint", parameter.toArray()));
+    }
+
+    @Override
+    public List<Long> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toList(rs.getArray(columnName));
+    }
+
+    @Override
+    public List<Long> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toList(rs.getArray(columnIndex));
+    }
+
+    @Override
+    public List<Long> getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toList(cs.getArray(columnIndex));
+    }
+
+    private static List<Long> toList(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        return Arrays.stream((Object[]) array.getArray()).map(value -> ((Number) value).longValue()).toList();
+    }
+}
@@ -1,13 +1,19 @@
 package com.shop.demo.mapper;
 
+import com.shop.demo.dto.OrderDetail;
 import com.shop.demo.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import java.util.List;
 
 @Mapper
 public interface OrderMapper {
-    // 新增订单
+    // 新增订单（订单 ID 已由 OrderIdGenerator 在插入前分配）
     int insertOrder(Order order);
-    // 根据用户ID查询订单
-    List<Order> selectByUserId(Long userId);
+    // 批量新增订单（一条多行 INSERT；订单 ID 已由 OrderIdGenerator 在插入前分配，不回填）
+    int insertOrderBatch(List<Order> orders);
+    // 根据用户ID分页查询订单（按创建时间倒序，beforeId 为上一页最后一个订单 ID，关联商品名称与单价）
+    List<OrderDetail> selectByUserId(@Param("userId") Long userId,
+                                     @Param("beforeId") Long beforeId,
+                                     @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.shop.demo.mapper;
+
+import com.shop.demo.event.OrderCreatedEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface OrderOutboxMapper {
+    // 取出最早的 limit 条未取出或取出超时的事件，标记为 claimId 批次（跳过其他转发线程正在处理的行）
+    List<OrderCreatedEvent> claim(@Param("claimId") String claimId, @Param("limit") int limit,
+                                  @Param("claimTimeoutMillis") long claimTimeoutMillis);
+    // 删除 claimId 批次中已分发的事件
+    int deleteClaimed(@Param("claimId") String claimId);
+    // 未投递的事件数
+    long countPending();
+}
@@ -1,16 +1,28 @@
 package com.shop.demo.mapper;
 
 import com.shop.demo.entity.Product;
+import com.shop.demo.stock.StockDelta;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import java.util.List;
 
 @Mapper
 public interface ProductMapper {
     List<Product> selectAll();
+    // 键集分页：按 id 升序返回 id > afterId 的前 limit 条
+    List<Product> selectPage(@Param("afterId") Long afterId, @Param("limit") int limit);
+    // 流式读取全部商品（游标 + fetchSize，逐行回调，不在内存中物化整表）
+    void streamAll(ResultHandler<Product> handler);
+    // 全量商品版本号（SUM(version + 1)，任何商品变更都会增大）
+    long selectCatalogVersion();
     Product selectById(Long id);
     // 新增带悲观锁的查询方法（用于并发控制）
     Product selectByIdForUpdate(@Param("id") Long id);
+    // 按 ID 批量查询商品
+    List<Product> selectByIds(@Param("ids") List<Long> ids);
+    // 按 ID 升序批量加悲观锁（加锁顺序固定，避免并发批量下单死锁）
+    List<Product> selectByIdsForUpdate(@Param("ids") List<Long> ids);
     // 调整库存更新方法参数（增加购买数量用于条件判断）
     int updateStock(
             @Param("productId") Long productId,
@@ -19,4 +31,11 @@ public interface ProductMapper {
     );
 
     int insertProduct(Product product);
+
+    // 批量扣减库存（一条 UPDATE ... FROM (VALUES ...)，每行都校验 stock >= num），返回实际更新行数
+    int decrementStockBatch(@Param("deltas") List<StockDelta> deltas);
+    // 同上，返回实际扣减成功的商品 ID
+    List<Long> decrementStockBatchReturningIds(@Param("deltas") List<StockDelta> deltas);
+    // 批量扣减库存，库存不足时扣到 0（不校验 stock >= num），返回实际更新行数
+    int clampStockBatch(@Param("deltas") List<StockDelta> deltas);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.shop.demo.mapper;
+
+import com.shop.demo.entity.SalesSummary;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface SalesSummaryMapper {
+    // 写入检查点（按 (scope, bucket) 覆盖）
+    int upsert(@Param("rows") List<SalesSummary> rows);
+    // 启动时恢复：全部 total / product 行，以及不早于指定序号的 minute / hour 行
+    List<SalesSummary> selectForRestore(@Param("minuteFrom") long minuteFrom, @Param("hourFrom") long hourFrom);
+    // 清理超出保留范围的时间桶
+    int deleteBefore(@Param("scope") String scope, @Param("bucket") long bucket);
+}
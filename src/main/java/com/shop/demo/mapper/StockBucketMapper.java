@@ -0,0 +1,27 @@
+package com.shop.demo.mapper;
+
+import com.shop.demo.entity.StockBucket;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface StockBucketMapper {
+    // 从任意一个未被锁住且库存充足的桶扣减（FOR UPDATE SKIP LOCKED，从 preferred 号桶开始找），返回桶编号，没有可用的桶返回 null
+    Integer takeFromFreeBucket(@Param("productId") Long productId, @Param("num") int num, @Param("preferred") int preferred);
+    // 从指定的桶扣减（桶被锁住时等待），返回更新行数
+    int takeFromBucket(@Param("productId") Long productId, @Param("bucket") int bucket, @Param("num") int num);
+    // 按桶编号升序锁住商品的全部桶
+    List<StockBucket> selectForUpdate(@Param("productId") Long productId);
+    List<StockBucket> selectByProductId(@Param("productId") Long productId);
+    // 批量设置各桶库存（一条 UPDATE ... FROM (VALUES ...)），版本号 + 1
+    int updateStocks(@Param("productId") Long productId, @Param("buckets") List<StockBucket> buckets);
+    int insertBuckets(@Param("buckets") List<StockBucket> buckets);
+    int deleteByProductId(@Param("productId") Long productId);
+    // 商品行自身的库存（不含分桶）
+    Integer selectProductStock(@Param("productId") Long productId);
+    // 更新商品行的库存与分桶数；versionDelta 为删除的桶的版本号之和，并入商品版本号保证版本号不回退
+    int updateProduct(@Param("productId") Long productId, @Param("stock") int stock,
+                      @Param("stockBuckets") int stockBuckets, @Param("versionDelta") long versionDelta);
+}
@@ -0,0 +1,171 @@
+package com.shop.demo.metrics;
+
+import com.shop.demo.event.OrderCreatedEvent;
+import com.shop.demo.outbox.OrderEventListener;
+import com.shop.demo.outbox.RecentOrderIds;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单业务指标（Micrometer，经 /actuator/metrics 与 /actuator/prometheus 暴露）
+ * <p>
+ * 1. shop.order.phase：下单各阶段耗时（lock 加锁查询 / check 库存校验 / update 扣库存 / insert 插入订单），按 endpoint 区分，带直方图
+ * 2. shop.order.failures：下单失败次数，按 reason（insufficient_stock / not_found / conflict）、endpoint、product 区分
+ * 3. shop.order.batch.size / shop.order.batch.products：一次请求（或合并批次）中的订单数 / 商品种类数
+ * 4. shop.order.placed：已创建的订单数，按 product 区分（订阅订单事件总线，在下单事务之外计数，按 orderId 丢弃重复投递）
+ * product 标签的取值数量有上限，超出的商品统一记为 other。
+ */
+@Component
+public class OrderMetrics implements OrderEventListener {
+
+    public static final String OTHER_PRODUCT = "other";
+
+    /**
+     * 下单入口
+     */
+    public enum Endpoint {
+        // /order/add（未合并）
+        SINGLE,
+        // /order/add/batch
+        BATCH,
+        // /order/add 请求合并后的批次
+        COALESCED,
+        // 秒杀
+        FLASH_SALE;
+
+        final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * 下单阶段
+     */
+    public enum Phase {
+        LOCK, CHECK, UPDATE, INSERT;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 失败原因
+     */
+    public enum Failure {
+        INSUFFICIENT_STOCK, NOT_FOUND, CONFLICT;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private record FailureKey(Failure failure, Endpoint endpoint, String product) {
+    }
+
+    private final MeterRegistry registry;
+    private final OrderMetricsProperties properties;
+    private final Map<Endpoint, Map<Phase, Timer>> phaseTimers = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, DistributionSummary> batchSizes = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, DistributionSummary> batchProducts = new EnumMap<>(Endpoint.class);
+    private final Map<FailureKey, Counter> failureCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> placedCounters = new ConcurrentHashMap<>();
+    // 已分配独立 product 标签的商品
+    private final Set<Long> taggedProducts = ConcurrentHashMap.newKeySet();
+    // 已计数的订单（事件至少投递一次）
+    private final RecentOrderIds placedOrders = new RecentOrderIds();
+
+    public OrderMetrics(MeterRegistry registry, OrderMetricsProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+            for (Phase phase : Phase.values()) {
+                timers.put(phase, Timer.builder("shop.order.phase")
+                        .description("下单各阶段耗时（lock 为加锁查询，包含行锁等待）")
+                        .tag("endpoint", endpoint.tag)
+                        .tag("phase", phase.tag)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(100_000))
+                        .maximumExpectedValue(Duration.ofSeconds(10))
+                        .register(registry));
+            }
+            phaseTimers.put(endpoint, timers);
+            batchSizes.put(endpoint, DistributionSummary.builder("shop.order.batch.size")
+                    .description("一次下单请求（或合并批次）包含的订单数")
+                    .tag("endpoint", endpoint.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(registry));
+            batchProducts.put(endpoint, DistributionSummary.builder("shop.order.batch.products")
+                    .description("一次下单请求（或合并批次）涉及的商品种类数")
+                    .tag("endpoint", endpoint.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1000.0)
+                    .register(registry));
+        }
+    }
+
+    /**
+     * 记录一个阶段的耗时（startNanos 为 System.nanoTime() 起点），返回当前时间作为下一阶段的起点
+     */
+    public long phase(Endpoint endpoint, Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        phaseTimers.get(endpoint).get(phase).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void failure(Endpoint endpoint, Failure failure, Long productId) {
+        FailureKey key = new FailureKey(failure, endpoint, productTag(productId));
+        failureCounters.computeIfAbsent(key, k -> Counter.builder("shop.order.failures")
+                        .description("下单失败次数（库存不足 / 商品不存在 / 并发冲突）")
+                        .tag("reason", k.failure().tag)
+                        .tag("endpoint", k.endpoint().tag)
+                        .tag("product", k.product())
+                        .register(registry))
+                .increment();
+    }
+
+    @Override
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (!placedOrders.add(event.orderId())) {
+            return;
+        }
+        placedCounters.computeIfAbsent(productTag(event.productId()), product -> Counter.builder("shop.order.placed")
+                        .description("已创建的订单数")
+                        .tag("product", product)
+                        .register(registry))
+                .increment();
+    }
+
+    public void batch(Endpoint endpoint, int orders, int products) {
+        batchSizes.get(endpoint).record(orders);
+        batchProducts.get(endpoint).record(products);
+    }
+
+    /**
+     * 商品标签：配置的热门商品和最先出现的 maxProductTags 个商品使用商品 ID，其余记为 other
+     */
+    String productTag(Long productId) {
+        if (productId == null) {
+            return OTHER_PRODUCT;
+        }
+        if (properties.getHotProducts().contains(productId) || taggedProducts.contains(productId)) {
+            return String.valueOf(productId);
+        }
+        synchronized (taggedProducts) {
+            if (taggedProducts.size() < properties.getMaxProductTags()) {
+                taggedProducts.add(productId);
+                return String.valueOf(productId);
+            }
+        }
+        return OTHER_PRODUCT;
+    }
+}
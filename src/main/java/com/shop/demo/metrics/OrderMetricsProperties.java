@@ -0,0 +1,19 @@
+package com.shop.demo.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 下单业务指标配置（前缀 shop.metrics.order）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.metrics.order")
+public class OrderMetricsProperties {
+    // product 标签最多区分多少个商品（先出现的商品占用名额，其余归为 other），限制 Prometheus 时间序列数量
+    private int maxProductTags = 50;
+    // 始终单独打标签的热门商品 ID（不占用 max-product-tags 名额）
+    private List<Long> hotProducts = new ArrayList<>();
+}
@@ -0,0 +1,145 @@
+package com.shop.demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis 拦截器：记录每条语句的执行时间与行数，并输出慢查询 / 抽样日志（替代 StdOutImpl 打印全部 SQL）
+ * <p>
+ * 1. shop.sql.duration：执行耗时，按 statement（Mapper 方法全名）、type（select / insert / update / delete）区分，带直方图
+ * 2. shop.sql.rows：查询返回行数 / 更新影响行数（通过 ResultHandler 流式读取的查询不计行数）
+ * 慢查询与抽样日志写入 shop.sql 日志器，经 logback-spring.xml 中的异步 appender 输出，不阻塞请求线程。
+ * statement 标签取值即 Mapper 方法数量，有上限，不需要额外限制。
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class SqlMetricsInterceptor implements Interceptor {
+
+    private static final Logger SQL_LOG = LoggerFactory.getLogger("shop.sql");
+
+    private record Meters(Timer duration, DistributionSummary rows) {
+    }
+
+    private final MeterRegistry registry;
+    private final SqlMetricsProperties properties;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public SqlMetricsInterceptor(MeterRegistry registry, SqlMetricsProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            // 传入 ResultHandler 的查询逐行交给调用方处理，返回的是空列表，行数未知
+            boolean streamed = invocation.getArgs().length > 3 && invocation.getArgs()[3] != Executor.NO_RESULT_HANDLER;
+            long rows = streamed ? -1 : rows(result);
+            Meters m = meters(statement);
+            m.duration().record(elapsed, TimeUnit.NANOSECONDS);
+            if (rows >= 0) {
+                m.rows().record(rows);
+            }
+            log(statement, invocation.getArgs()[1], elapsed, rows);
+        }
+    }
+
+    private void log(MappedStatement statement, Object parameter, long elapsedNanos, long rows) {
+        boolean slow = elapsedNanos >= properties.getSlowThreshold().toNanos();
+        if (slow ? !SQL_LOG.isWarnEnabled() : !sampled()) {
+            return;
+        }
+        // 只输出 SQL 文本，不输出参数值（可能包含用户数据）
+        String sql = sql(statement, parameter);
+        double millis = elapsedNanos / 1_000_000.0;
+        if (slow) {
+            SQL_LOG.warn("慢查询：{} 耗时 {}ms，行数 {}，SQL：{}", statement.getId(), String.format("%.1f", millis), rows, sql);
+        } else {
+            SQL_LOG.info("SQL 抽样：{} 耗时 {}ms，行数 {}，SQL：{}", statement.getId(), String.format("%.1f", millis), rows, sql);
+        }
+    }
+
+    private boolean sampled() {
+        double rate = properties.getSampleRate();
+        return rate > 0 && SQL_LOG.isInfoEnabled() && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private Meters meters(MappedStatement statement) {
+        return meters.computeIfAbsent(statement.getId(), id -> {
+            String type = statement.getSqlCommandType().name().toLowerCase(Locale.ROOT);
+            return new Meters(
+                    Timer.builder("shop.sql.duration")
+                            .description("SQL 语句执行耗时（含获取连接）")
+                            .tag("statement", id)
+                            .tag("type", type)
+                            .publishPercentileHistogram()
+                            .minimumExpectedValue(Duration.ofNanos(100_000))
+                            .maximumExpectedValue(Duration.ofSeconds(10))
+                            .register(registry),
+                    DistributionSummary.builder("shop.sql.rows")
+                            .description("查询返回行数 / 更新影响行数")
+                            .tag("statement", id)
+                            .tag("type", type)
+                            .publishPercentileHistogram()
+                            .minimumExpectedValue(1.0)
+                            .maximumExpectedValue(100_000.0)
+                            .register(registry));
+        });
+    }
+
+    /**
+     * 结果行数：查询为结果集大小，更新为影响行数，未知（异常、流式查询）返回 -1
+     */
+    private static long rows(Object result) {
+        if (result instanceof Collection<?> list) {
+            return list.size();
+        }
+        if (result instanceof Number count) {
+            return count.longValue();
+        }
+        return -1;
+    }
+
+    private static String sql(MappedStatement statement, Object parameter) {
+        try {
+            return statement.getBoundSql(parameter).getSql().replaceAll("\\s+", " ").trim();
+        } catch (RuntimeException e) {
+            return "<" + e.getClass().getSimpleName() + ">";
+        }
+    }
+}
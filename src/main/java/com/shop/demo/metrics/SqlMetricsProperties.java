@@ -0,0 +1,18 @@
+package com.shop.demo.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * SQL 执行指标与慢查询日志配置（前缀 shop.metrics.sql）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.metrics.sql")
+public class SqlMetricsProperties {
+    // 执行时间超过该值的语句记入慢查询日志（WARN）
+    private Duration slowThreshold = Duration.ofMillis(200);
+    // 未超过阈值的语句按此比例抽样记录（INFO），0 为不抽样，1 为全部记录
+    private double sampleRate = 0.0;
+}
@@ -0,0 +1,192 @@
+package com.shop.demo.outbox;
+
+import com.shop.demo.event.OrderCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 应用内订单事件总线：有界队列 + 分发线程，依次调用所有 OrderEventListener
+ * <p>
+ * 1. 背压：只有 OrderOutboxRelay 往队列里放事件，放之前按 remainingCapacity() 限制取数，队列满时事件留在 order_outbox 中
+ * 2. 某个订阅方抛异常只记日志和 shop.order.events.failures 指标，不影响其他订阅方
+ * 3. 一批事件全部分发完（所有订阅方都已调用）后执行该批的确认回调，转发线程在回调中把这批事件从发件箱删除
+ * 4. shop.order.events.lag：订单创建到分发的延迟
+ */
+@Slf4j
+@Component
+public class OrderEventBus {
+
+    private final ObjectProvider<OrderEventListener> listenerProvider;
+    private final OrderOutboxProperties properties;
+    private final MeterRegistry registry;
+    private final BlockingQueue<Delivery> queue;
+    private final Counter dispatched;
+    private final Timer lag;
+    private final Map<String, Counter> failures = new ConcurrentHashMap<>();
+
+    private List<OrderEventListener> listeners;
+    private ExecutorService dispatchers;
+    private volatile boolean running = true;
+
+    /**
+     * 队列中的一个事件及其所属批次
+     */
+    private record Delivery(OrderCreatedEvent event, Batch batch) {
+    }
+
+    /**
+     * 一批事件：剩余未分发数减到 0 时执行确认回调
+     */
+    private static final class Batch {
+        final AtomicInteger remaining;
+        final Runnable onDispatched;
+
+        Batch(int size, Runnable onDispatched) {
+            this.remaining = new AtomicInteger(size);
+            this.onDispatched = onDispatched;
+        }
+    }
+
+    public OrderEventBus(ObjectProvider<OrderEventListener> listenerProvider, OrderOutboxProperties properties,
+                         MeterRegistry registry) {
+        this.listenerProvider = listenerProvider;
+        this.properties = properties;
+        this.registry = registry;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.dispatched = Counter.builder("shop.order.events.dispatched")
+                .description("已分发给订阅方的订单事件数")
+                .register(registry);
+        this.lag = Timer.builder("shop.order.events.lag")
+                .description("订单创建到事件分发的延迟")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry);
+        Gauge.builder("shop.order.events.queue", queue, BlockingQueue::size)
+                .description("事件总线中等待分发的事件数")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void startDispatchers() {
+        listeners = listenerProvider.orderedStream().toList();
+        int threads = Math.max(1, properties.getDispatchThreads());
+        AtomicInteger threadNo = new AtomicInteger();
+        dispatchers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "order-event-dispatcher-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            dispatchers.execute(this::dispatchLoop);
+        }
+        log.info("订单事件总线已启动：订阅方={}", listeners.stream().map(l -> ClassUtils.getUserClass(l).getSimpleName()).toList());
+    }
+
+    /**
+     * 停止前分发完队列中剩余的事件（OrderOutboxRelay 关闭时先调用，此时还能删除发件箱；重复调用无副作用）
+     * 10 秒内没有分发完的事件留在发件箱中，取出超时后重新投递
+     */
+    @PreDestroy
+    void stopDispatchers() throws InterruptedException {
+        running = false;
+        dispatchers.shutdown();
+        if (!dispatchers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("订单事件分发线程未在 10 秒内结束，剩余事件数：{}（留在发件箱中，取出超时后重新投递）", queue.size());
+        }
+    }
+
+    /**
+     * 队列剩余容量，转发线程按它限制一次取出的事件数
+     */
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    /**
+     * 放入一批事件（不阻塞），返回放入的个数；调用方已按 remainingCapacity() 取数，正常情况下全部放入
+     * 全部放入时，这批事件都分发完后在分发线程上执行 onDispatched；没有全部放入时不会执行
+     */
+    public int publish(List<OrderCreatedEvent> events, Runnable onDispatched) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // 多占一个计数，全部放入后再释放，避免部分放入的批次被确认
+        Batch batch = new Batch(events.size() + 1, onDispatched);
+        int published = 0;
+        for (OrderCreatedEvent event : events) {
+            if (!queue.offer(new Delivery(event, batch))) {
+                break;
+            }
+            published++;
+        }
+        if (published == events.size()) {
+            completeOne(batch);
+        }
+        return published;
+    }
+
+    private void dispatchLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Delivery delivery = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (delivery != null) {
+                    dispatch(delivery.event());
+                    completeOne(delivery.batch());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(OrderCreatedEvent event) {
+        if (event.createTime() != null) {
+            lag.record(Duration.between(event.createTime(), LocalDateTime.now()));
+        }
+        for (OrderEventListener listener : listeners) {
+            try {
+                listener.onOrderCreated(event);
+            } catch (Exception e) {
+                String name = ClassUtils.getUserClass(listener).getSimpleName();
+                failures.computeIfAbsent(name, n -> Counter.builder("shop.order.events.failures")
+                                .description("订阅方处理订单事件失败的次数")
+                                .tag("listener", n)
+                                .register(registry))
+                        .increment();
+                log.error("订单事件处理失败：订阅方={}, 订单ID={}", name, event.orderId(), e);
+            }
+        }
+        dispatched.increment();
+    }
+
+    private static void completeOne(Batch batch) {
+        if (batch.remaining.decrementAndGet() == 0 && batch.onDispatched != null) {
+            try {
+                batch.onDispatched.run();
+            } catch (Exception e) {
+                log.warn("订单事件批次确认失败，事件将在取出超时后重新投递：{}", e.getMessage());
+            }
+        }
+    }
+}
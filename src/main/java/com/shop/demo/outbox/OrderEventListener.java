@@ -0,0 +1,11 @@
+package com.shop.demo.outbox;
+
+import com.shop.demo.event.OrderCreatedEvent;
+
+/**
+ * OrderEventBus 的订阅方：实现该接口的 Spring Bean 自动订阅，在事件分发线程上调用（不在下单事务中）
+ */
+public interface OrderEventListener {
+
+    void onOrderCreated(OrderCreatedEvent event);
+}
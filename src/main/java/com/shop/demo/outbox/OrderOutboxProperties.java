@@ -0,0 +1,26 @@
+package com.shop.demo.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 订单事件发件箱配置（前缀 shop.order.outbox）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.order.outbox")
+public class OrderOutboxProperties {
+    // 是否运行转发线程（关闭后 order_outbox 中的事件保留在库中，重新开启后继续投递）
+    private boolean relayEnabled = true;
+    // 转发线程一次从 order_outbox 取出的最大行数
+    private int batchSize = 500;
+    // 发件箱为空时的轮询间隔
+    private Duration pollInterval = Duration.ofMillis(100);
+    // 事件总线队列容量：队列满时转发线程暂停取数（事件留在库中）
+    private int queueCapacity = 10000;
+    // 事件分发线程数（大于 1 时事件的处理顺序不保证）
+    private int dispatchThreads = 1;
+    // 取出后超过该时间仍未分发完（未从发件箱删除）的事件重新取出；应大于一整队事件的分发时间，否则会重复投递
+    private Duration claimTimeout = Duration.ofMinutes(5);
+}
@@ -0,0 +1,109 @@
+package com.shop.demo.outbox;
+
+import com.shop.demo.event.OrderCreatedEvent;
+import com.shop.demo.mapper.OrderOutboxMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单事件转发：把 order_outbox 中的事件批量取出放入 OrderEventBus
+ * <p>
+ * 订单与发件箱行在同一事务中写入（OrderMapper 的 INSERT 语句同时写 order_outbox），
+ * 下单事务只多一次索引插入，订阅方（统计、缓存、支付等）在事务提交后异步处理，不延长商品行锁的持有时间。
+ * 1. 轮询：取满一批立即继续，否则等待 poll-interval
+ * 2. 取出时只给这批行打上批次标记（UPDATE ... RETURNING），总线把整批事件分发给所有订阅方之后才删除这批行；
+ * 进程崩溃或关闭时没有分发完的事件留在库中，超过 claim-timeout 后重新取出（至少一次，订阅方需按 orderId 幂等）
+ * 3. 总线队列满时暂停取数，事件留在库中（背压）
+ * 多实例部署时各实例的转发线程用 SKIP LOCKED 分摊发件箱。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderOutboxRelay {
+
+    private final OrderOutboxMapper outboxMapper;
+    private final OrderEventBus eventBus;
+    private final OrderOutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Thread relayThread;
+    private volatile boolean running = true;
+
+    /**
+     * 应用就绪后启动转发线程（数据源可用之前不轮询）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isRelayEnabled()) {
+            log.info("订单事件转发未开启（shop.order.outbox.relay-enabled=false）");
+            return;
+        }
+        relayThread = Thread.ofPlatform().name("order-outbox-relay").daemon().start(this::relayLoop);
+    }
+
+    /**
+     * 停止取数后等总线分发完已取出的事件：本 Bean 先于 Mapper / 数据源销毁，分发完的批次此时还能从发件箱删除
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        Thread thread = relayThread;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        eventBus.stopDispatchers();
+    }
+
+    /**
+     * 转发一批事件，返回转发的个数
+     */
+    public int relayOnce() {
+        int limit = Math.min(Math.max(1, properties.getBatchSize()), eventBus.remainingCapacity());
+        if (limit == 0) {
+            return 0;
+        }
+        // 标记与删除都是写操作，在（读写）事务中执行，走主库和 JDBC 闸门的写名额
+        String claimId = UUID.randomUUID().toString();
+        List<OrderCreatedEvent> events = transactionTemplate.execute(
+                status -> outboxMapper.claim(claimId, limit, properties.getClaimTimeout().toMillis()));
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+        Runnable delete = () -> transactionTemplate.executeWithoutResult(status -> outboxMapper.deleteClaimed(claimId));
+        if (eventBus.publish(events, delete) != events.size()) {
+            // 只有本线程往总线放事件，不应发生；这批事件不会被删除，取出超时后重新投递
+            throw new IllegalStateException("订单事件总线已满");
+        }
+        return events.size();
+    }
+
+    private void relayLoop() {
+        long pollMillis = Math.max(1, properties.getPollInterval().toMillis());
+        while (running) {
+            try {
+                if (relayOnce() < properties.getBatchSize()) {
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.warn("订单事件转发失败，{}ms 后重试：{}", pollMillis * 10, e.getMessage());
+                try {
+                    Thread.sleep(pollMillis * 10);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
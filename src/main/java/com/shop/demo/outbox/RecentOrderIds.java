@@ -0,0 +1,49 @@
+package com.shop.demo.outbox;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 最近处理过的订单 ID（有界，先进先出淘汰），订阅方用它丢弃至少一次投递产生的重复事件
+ * <p>
+ * 只记住最近 capacity 个订单：取出超时后重新投递的批次一般在 claim-timeout 内，
+ * 容量应覆盖这段时间分发的事件数。不持久化，进程重启后重新取出的事件无法去重。
+ */
+public final class RecentOrderIds {
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private final long[] ring;
+    private final Set<Long> ids;
+    private int next;
+    private int size;
+
+    public RecentOrderIds() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RecentOrderIds(int capacity) {
+        this.ring = new long[Math.max(1, capacity)];
+        this.ids = new HashSet<>(ring.length * 4 / 3 + 1);
+    }
+
+    /**
+     * 记录订单 ID，返回是否第一次出现（orderId 为 null 时无法去重，总是返回 true）
+     */
+    public synchronized boolean add(Long orderId) {
+        if (orderId == null) {
+            return true;
+        }
+        if (!ids.add(orderId)) {
+            return false;
+        }
+        if (size == ring.length) {
+            ids.remove(ring[next]);
+        } else {
+            size++;
+        }
+        ring[next] = orderId;
+        next = (next + 1) % ring.length;
+        return true;
+    }
+}
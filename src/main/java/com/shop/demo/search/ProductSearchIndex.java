@@ -0,0 +1,253 @@
+package com.shop.demo.search;
+
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
+import com.shop.demo.exception.ServiceBusyException;
+import com.shop.demo.mapper.ProductMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品搜索索引（进程内倒排索引，见 {@link SearchSegment}）
+ * <p>
+ * 1. 应用就绪后在后台线程按键集分页读取全部商品建索引，完成前搜索返回 503；批量导入后同样在后台全量重建，
+ * 重建期间继续使用旧索引
+ * 2. 新增商品、下单扣库存在事务提交后通过 {@link ProductChangedEvent} 增量更新（新增 / 整体变更时按 ID 重新查询）
+ * 3. 重建期间发生变更的商品记下 ID，新索引发布前按 ID 重新查询一次，避免分页读取与事件交错导致的库存偏差
+ * 所有写操作（事件、发布新索引）在写锁内执行，查询不加锁。
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    // 重建失败后，搜索请求最早多久之后再次触发重建
+    private static final long RETRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // 重建结束时按 ID 回查的批大小
+    private static final int RELOAD_BATCH_SIZE = 1000;
+
+    private final ProductMapper productMapper;
+    private final ProductSearchProperties properties;
+    private final Timer searchTimer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    // 重建期间发生变更的商品 ID（重建未进行时为空）
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    private volatile long lastFailureNanos;
+    private volatile SearchSegment segment;
+
+    public ProductSearchIndex(ProductMapper productMapper, ProductSearchProperties properties, MeterRegistry meterRegistry) {
+        this.productMapper = productMapper;
+        this.properties = properties;
+        this.searchTimer = Timer.builder("shop.product.search")
+                .description("商品搜索耗时")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("shop.product.search.products", this, index -> {
+                    SearchSegment current = index.segment;
+                    return current == null ? 0 : current.size();
+                })
+                .description("搜索索引中的商品数")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return segment != null;
+    }
+
+    /**
+     * 应用就绪后在后台建索引（不阻塞启动，数据库不可用时只记录日志，首次搜索时重试）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!properties.isEnabled()) {
+            log.info("商品搜索未开启（shop.product-search.enabled=false）");
+            return;
+        }
+        rebuildAsync();
+    }
+
+    /**
+     * 在后台全量重建（已有重建在进行时，结束后再重建一次）
+     */
+    public void rebuildAsync() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildRequested.set(true);
+        if (rebuildRunning.compareAndSet(false, true)) {
+            Thread.ofPlatform().name("product-search-index").daemon().start(this::rebuildLoop);
+        }
+    }
+
+    private void rebuildLoop() {
+        try {
+            while (rebuildRequested.getAndSet(false)) {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    lastFailureNanos = System.nanoTime();
+                    log.error("商品搜索索引重建失败", e);
+                    return;
+                }
+            }
+        } finally {
+            rebuildRunning.set(false);
+            // 结束前又有重建请求（与上面的 getAndSet 交错）时补一次
+            if (rebuildRequested.get() && lastFailureNanos == 0) {
+                rebuildAsync();
+            }
+        }
+    }
+
+    /**
+     * 全量重建：按键集分页读取全部商品建新索引，回查重建期间变更的商品后替换旧索引
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        writeLock.lock();
+        try {
+            changedDuringRebuild.clear();
+            rebuilding = true;
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            SearchSegment next = new SearchSegment(properties);
+            int pageSize = Math.max(1, properties.getLoadPageSize());
+            long afterId = 0;
+            List<Product> page;
+            do {
+                page = productMapper.selectPage(afterId, pageSize);
+                for (Product product : page) {
+                    next.add(product);
+                    afterId = product.getId();
+                }
+            } while (page.size() == pageSize);
+            writeLock.lock();
+            try {
+                reload(next, new ArrayList<>(changedDuringRebuild));
+                segment = next;
+                lastFailureNanos = 0;
+            } finally {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+                writeLock.unlock();
+            }
+            log.info("商品搜索索引重建完成：{} 个商品，耗时 {}ms", next.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    /**
+     * 按 ID 回查商品写入索引，已不存在的商品从索引中删除
+     */
+    private void reload(SearchSegment target, List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH_SIZE, ids.size()));
+            Set<Long> missing = new HashSet<>(batch);
+            for (Product product : productMapper.selectByIds(batch)) {
+                target.add(product);
+                missing.remove(product.getId());
+            }
+            missing.forEach(target::remove);
+        }
+    }
+
+    /**
+     * 写入单个商品（新增或整体变更）
+     */
+    public void index(Product product) {
+        writeLock.lock();
+        try {
+            SearchSegment current = segment;
+            if (current == null) {
+                current = new SearchSegment(properties);
+            }
+            current.add(product);
+            segment = current;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 事务提交后增量更新：扣库存只改库存，新增 / 整体变更时重新查询该商品（查询在写锁外）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!properties.isEnabled() || event.productId() == null) {
+            return;
+        }
+        Product product = event.isStockChange() ? null : productMapper.selectById(event.productId());
+        writeLock.lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(event.productId());
+            }
+            SearchSegment current = segment;
+            if (current == null) {
+                return;
+            }
+            if (event.isStockChange()) {
+                current.adjustStock(event.productId(), event.stockDelta());
+            } else if (product != null) {
+                current.add(product);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 搜索商品
+     *
+     * @param query       关键词（名称 / 描述，多个词之间为“且”）
+     * @param page        页码（从 1 开始）
+     * @param size        每页条数（不超过 max-page-size）
+     * @param inStockOnly 只返回有库存的商品
+     * @throws ServiceBusyException 索引尚未建好（启动中 / 数据库不可用）
+     */
+    public ProductSearchResult search(String query, int page, int size, boolean inStockOnly) {
+        SearchSegment current = segment;
+        if (current == null) {
+            if (properties.isEnabled() && System.nanoTime() - lastFailureNanos > RETRY_INTERVAL_NANOS) {
+                rebuildAsync();
+            }
+            throw new ServiceBusyException(properties.isEnabled() ? "商品搜索索引构建中，请稍后重试" : "商品搜索未开启");
+        }
+        long start = System.nanoTime();
+        int pageSize = Math.max(1, Math.min(size, properties.getMaxPageSize()));
+        int pageNo = Math.max(1, page);
+        long offset = (long) (pageNo - 1) * pageSize;
+        // 超出最大结果窗口只统计总数，不返回条目
+        int window = (int) Math.max(0, Math.min(offset + pageSize, properties.getMaxResultWindow()) - offset);
+        ProductSearchResult result = current.search(Tokenizer.forQuery(query),
+                (int) Math.min(offset, properties.getMaxResultWindow()), window, inStockOnly);
+        result.setPage(pageNo);
+        result.setSize(pageSize);
+        long elapsed = System.nanoTime() - start;
+        result.setTookMicros(TimeUnit.NANOSECONDS.toMicros(elapsed));
+        searchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        return result;
+    }
+}
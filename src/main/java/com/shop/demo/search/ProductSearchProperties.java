@@ -0,0 +1,26 @@
+package com.shop.demo.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 商品搜索配置（前缀 shop.product-search）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.product-search")
+public class ProductSearchProperties {
+    // 是否启用商品搜索（关闭后不建索引，/product/search 返回 503）
+    private boolean enabled = true;
+    // 是否索引商品描述（关闭可减少约一半以上的索引内存，只按名称搜索）
+    private boolean indexDescription = true;
+    // 建索引时每次键集分页读取的商品数
+    private int loadPageSize = 1000;
+    // 每个查询词最多展开的前缀词数
+    private int maxExpansions = 50;
+    // 拉丁词长度达到该值才做编辑距离为 1 的模糊匹配
+    private int fuzzyMinLength = 4;
+    // 每页最大条数
+    private int maxPageSize = 100;
+    // 可翻到的最大结果位置（page * size），超出返回空页
+    private int maxResultWindow = 1000;
+}
@@ -0,0 +1,551 @@
+package com.shop.demo.search;
+
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 一份完整的商品倒排索引（单写多读）
+ * <p>
+ * 1. 每个商品分配递增的文档序号，倒排表是只追加的有序序号数组，读线程不加锁，
+ * 写线程先发布数组再发布长度，读线程先读长度再读数组，总能读到一致的前缀
+ * 2. 名称、描述各一份有序词典（跳表），前缀匹配取 [词, 词 + U+FFFF) 区间
+ * 3. 拉丁词另建删一个字符的邻域表（SymSpell），编辑距离为 1 的模糊匹配只做哈希查找，不遍历词典
+ * 4. 商品名称 / 描述变化时旧文档标记删除、追加新文档，倒排表中的旧序号在查询时跳过；全量重建时清理
+ * 写方法只能由持有写锁的线程（或尚未发布的新索引的构建线程）调用。
+ */
+final class SearchSegment {
+
+    // 字段权重：名称命中高于描述
+    static final float NAME_WEIGHT = 2f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+    // 匹配方式权重：完整词 > 前缀 > 模糊
+    static final float EXACT = 1f;
+    static final float PREFIX = 0.7f;
+    static final float FUZZY = 0.5f;
+    // 倒排表总长度低于文档数的 1/8 时归并，否则用稠密数组累加
+    private static final int DENSE_RATIO = 8;
+
+    /**
+     * 文档（一个商品的一个版本），库存随下单事件增量维护
+     */
+    static final class Doc {
+        private static final AtomicIntegerFieldUpdater<Doc> STOCK =
+                AtomicIntegerFieldUpdater.newUpdater(Doc.class, "stock");
+
+        final long productId;
+        final String productName;
+        final int contentHash;
+        volatile BigDecimal price;
+        volatile int stock;
+        volatile boolean live = true;
+
+        Doc(Product product) {
+            this.productId = product.getId();
+            this.productName = product.getProductName();
+            this.contentHash = contentHash(product);
+            this.price = product.getPrice();
+            this.stock = product.getStock() == null ? 0 : product.getStock();
+        }
+    }
+
+    /**
+     * 倒排表：按文档序号升序，只在尾部追加
+     */
+    static final class Postings {
+        private volatile int[] ordinals = new int[2];
+        private volatile int size;
+
+        void add(int ordinal) {
+            int n = size;
+            int[] current = ordinals;
+            if (n > 0 && current[n - 1] == ordinal) {
+                return;
+            }
+            if (n == current.length) {
+                current = Arrays.copyOf(current, n * 2);
+                ordinals = current;
+            }
+            current[n] = ordinal;
+            size = n + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * 当前内容（不复制）：先读长度再读数组，数组中前 size 个有效
+         */
+        View view() {
+            int n = size;
+            return new View(ordinals, n);
+        }
+    }
+
+    record View(int[] ordinals, int size) {
+    }
+
+    /**
+     * 一个查询词展开出的一个索引词（倒排表 + 权重）
+     */
+    private record Expansion(Postings postings, float weight) {
+    }
+
+    /**
+     * 候选文档（按序号升序）及累计得分
+     */
+    private record Candidates(int[] ordinals, float[] scores, int size) {
+    }
+
+    private final boolean indexDescription;
+    private final int maxExpansions;
+    private final int fuzzyMinLength;
+    private final ConcurrentSkipListMap<String, Postings> nameTerms = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Postings> descriptionTerms = new ConcurrentSkipListMap<>();
+    // 删一个字符后的变体 → 原词（只收录拉丁词）
+    private final ConcurrentHashMap<String, Set<String>> deletions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Doc> byProductId = new ConcurrentHashMap<>();
+    private volatile Doc[] docs = new Doc[1024];
+    private volatile int docCount;
+
+    SearchSegment(ProductSearchProperties properties) {
+        this.indexDescription = properties.isIndexDescription();
+        this.maxExpansions = Math.max(0, properties.getMaxExpansions());
+        this.fuzzyMinLength = Math.max(2, properties.getFuzzyMinLength());
+    }
+
+    /**
+     * 商品数（不含已删除的旧版本）
+     */
+    int size() {
+        return byProductId.size();
+    }
+
+    /**
+     * 新增或更新商品：名称、描述未变时只更新价格和库存
+     */
+    void add(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        Doc existing = byProductId.get(product.getId());
+        if (existing != null && existing.contentHash == contentHash(product)
+                && Objects.equals(existing.productName, product.getProductName())) {
+            existing.price = product.getPrice();
+            existing.stock = product.getStock() == null ? 0 : product.getStock();
+            return;
+        }
+        Doc doc = new Doc(product);
+        int ordinal = append(doc);
+        for (String term : Tokenizer.forIndex(product.getProductName())) {
+            addTerm(nameTerms, term, ordinal);
+        }
+        if (indexDescription) {
+            for (String term : Tokenizer.forIndex(product.getDescription())) {
+                addTerm(descriptionTerms, term, ordinal);
+            }
+        }
+        byProductId.put(doc.productId, doc);
+        if (existing != null) {
+            existing.live = false;
+        }
+    }
+
+    void remove(long productId) {
+        Doc existing = byProductId.remove(productId);
+        if (existing != null) {
+            existing.live = false;
+        }
+    }
+
+    /**
+     * 库存增量（下单扣减为负数），商品不在索引中返回 false
+     */
+    boolean adjustStock(long productId, int delta) {
+        Doc doc = byProductId.get(productId);
+        if (doc == null) {
+            return false;
+        }
+        Doc.STOCK.addAndGet(doc, delta);
+        return true;
+    }
+
+    /**
+     * 查询：所有查询词都要命中（名称或描述，完整词 / 前缀 / 模糊均可），每个词取最高权重累加
+     *
+     * @param tokens      查询分词结果
+     * @param offset      跳过的条数
+     * @param limit       返回的条数
+     * @param inStockOnly 只返回有库存的商品
+     */
+    ProductSearchResult search(List<String> tokens, int offset, int limit, boolean inStockOnly) {
+        ProductSearchResult result = new ProductSearchResult();
+        if (tokens.isEmpty()) {
+            return result;
+        }
+        // 先读文档数再读数组：之后追加的文档序号一律跳过
+        int docLimit = docCount;
+        Doc[] docSnapshot = docs;
+        List<List<Expansion>> expanded = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            List<Expansion> expansions = expand(token);
+            if (expansions.isEmpty()) {
+                return result;
+            }
+            expanded.add(expansions);
+        }
+        // 从命中文档最少的词开始，其余词只在候选集上二分查找
+        expanded.sort(Comparator.comparingLong(SearchSegment::cost));
+        Candidates candidates = collect(expanded.get(0), docLimit);
+        for (int i = 1; i < expanded.size() && candidates.size() > 0; i++) {
+            candidates = intersect(candidates, expanded.get(i));
+        }
+        rank(candidates, docSnapshot, offset, limit, inStockOnly, result);
+        return result;
+    }
+
+    private List<Expansion> expand(String token) {
+        Map<Postings, Float> weights = new HashMap<>();
+        expandField(nameTerms, token, NAME_WEIGHT, weights);
+        if (indexDescription) {
+            expandField(descriptionTerms, token, DESCRIPTION_WEIGHT, weights);
+        }
+        List<Expansion> expansions = new ArrayList<>(weights.size());
+        weights.forEach((postings, weight) -> expansions.add(new Expansion(postings, weight)));
+        return expansions;
+    }
+
+    private void expandField(ConcurrentSkipListMap<String, Postings> terms, String token, float fieldWeight,
+                             Map<Postings, Float> weights) {
+        Postings exact = terms.get(token);
+        if (exact != null) {
+            weights.merge(exact, fieldWeight * EXACT, Math::max);
+        }
+        int expansions = 0;
+        for (Postings postings : terms.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (expansions++ >= maxExpansions) {
+                break;
+            }
+            weights.merge(postings, fieldWeight * PREFIX, Math::max);
+        }
+        if (token.length() < fuzzyMinLength || Tokenizer.isCjk(token.codePointAt(0))) {
+            return;
+        }
+        for (String term : fuzzyTerms(token)) {
+            Postings postings = terms.get(term);
+            if (postings != null) {
+                weights.merge(postings, fieldWeight * FUZZY, Math::max);
+            }
+        }
+    }
+
+    /**
+     * 与 token 编辑距离恰为 1 的索引词（插入 / 删除 / 替换一个字符）
+     */
+    private List<String> fuzzyTerms(String token) {
+        List<String> terms = new ArrayList<>();
+        addWithinOneEdit(token, deletions.get(token), terms);
+        for (int i = 0; i < token.length(); i++) {
+            String deleted = token.substring(0, i) + token.substring(i + 1);
+            addWithinOneEdit(token, Set.of(deleted), terms);
+            addWithinOneEdit(token, deletions.get(deleted), terms);
+        }
+        return terms;
+    }
+
+    private static void addWithinOneEdit(String token, Set<String> candidates, List<String> out) {
+        if (candidates == null) {
+            return;
+        }
+        for (String candidate : candidates) {
+            if (!out.contains(candidate) && editDistanceIsOne(token, candidate)) {
+                out.add(candidate);
+            }
+        }
+    }
+
+    static boolean editDistanceIsOne(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1 || a.equals(b)) {
+            return false;
+        }
+        if (la < lb) {
+            return editDistanceIsOne(b, a);
+        }
+        int i = 0;
+        while (i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // 等长：跳过一个替换；a 更长：跳过 a 中多出的一个字符
+        int j = la == lb ? i + 1 : i;
+        return a.regionMatches(i + 1, b, j, lb - j);
+    }
+
+    private static long cost(List<Expansion> expansions) {
+        long cost = 0;
+        for (Expansion expansion : expansions) {
+            cost += expansion.postings().size();
+        }
+        return cost;
+    }
+
+    /**
+     * 第一个词的候选集：各展开词倒排表的并集，同一文档取最高权重
+     * 倒排表总长度较小时两两归并（各表已按序号有序），否则按文档序号在稠密数组中累加
+     */
+    private static Candidates collect(List<Expansion> expansions, int docLimit) {
+        long cost = cost(expansions);
+        if (cost * DENSE_RATIO < docLimit) {
+            List<Candidates> lists = new ArrayList<>(expansions.size());
+            for (Expansion expansion : expansions) {
+                View view = expansion.postings().view();
+                // 复制一份：候选集在求交时原地压缩
+                int size = advance(view, 0, docLimit);
+                float[] scores = new float[size];
+                Arrays.fill(scores, expansion.weight());
+                lists.add(new Candidates(Arrays.copyOf(view.ordinals(), size), scores, size));
+            }
+            return union(lists, 0, lists.size());
+        }
+        float[] dense = new float[docLimit];
+        int size = 0;
+        for (Expansion expansion : expansions) {
+            float weight = expansion.weight();
+            View view = expansion.postings().view();
+            for (int k = 0; k < view.size(); k++) {
+                int ordinal = view.ordinals()[k];
+                if (ordinal < docLimit && dense[ordinal] < weight) {
+                    if (dense[ordinal] == 0) {
+                        size++;
+                    }
+                    dense[ordinal] = weight;
+                }
+            }
+        }
+        int[] ordinals = new int[size];
+        float[] scores = new float[size];
+        int n = 0;
+        for (int ordinal = 0; ordinal < docLimit && n < size; ordinal++) {
+            if (dense[ordinal] > 0) {
+                ordinals[n] = ordinal;
+                scores[n++] = dense[ordinal];
+            }
+        }
+        return new Candidates(ordinals, scores, n);
+    }
+
+    /**
+     * 分治归并 lists[from, to)，总代价 O(n log k)
+     */
+    private static Candidates union(List<Candidates> lists, int from, int to) {
+        if (to - from == 1) {
+            return lists.get(from);
+        }
+        int mid = (from + to) >>> 1;
+        Candidates a = union(lists, from, mid);
+        Candidates b = union(lists, mid, to);
+        int[] ordinals = new int[a.size() + b.size()];
+        float[] scores = new float[ordinals.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.size() || j < b.size()) {
+            int oa = i < a.size() ? a.ordinals()[i] : Integer.MAX_VALUE;
+            int ob = j < b.size() ? b.ordinals()[j] : Integer.MAX_VALUE;
+            if (oa < ob) {
+                ordinals[n] = oa;
+                scores[n++] = a.scores()[i++];
+            } else if (ob < oa) {
+                ordinals[n] = ob;
+                scores[n++] = b.scores()[j++];
+            } else {
+                ordinals[n] = oa;
+                scores[n++] = Math.max(a.scores()[i++], b.scores()[j++]);
+            }
+        }
+        return new Candidates(ordinals, scores, n);
+    }
+
+    /**
+     * 用后续查询词过滤候选集：候选集与各展开词的倒排表都有序，每个表维护一个游标向后跳跃查找，
+     * 命中则累加最高权重，否则剔除
+     */
+    private static Candidates intersect(Candidates candidates, List<Expansion> expansions) {
+        View[] lists = new View[expansions.size()];
+        int[] cursors = new int[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = expansions.get(i).postings().view();
+        }
+        int[] ordinals = candidates.ordinals();
+        float[] scores = candidates.scores();
+        int size = 0;
+        for (int c = 0; c < candidates.size(); c++) {
+            int ordinal = ordinals[c];
+            float best = 0;
+            for (int i = 0; i < lists.length; i++) {
+                cursors[i] = advance(lists[i], cursors[i], ordinal);
+                float weight = expansions.get(i).weight();
+                if (weight > best && cursors[i] < lists[i].size() && lists[i].ordinals()[cursors[i]] == ordinal) {
+                    best = weight;
+                }
+            }
+            if (best > 0) {
+                ordinals[size] = ordinal;
+                scores[size++] = scores[c] + best;
+            }
+        }
+        return new Candidates(ordinals, scores, size);
+    }
+
+    /**
+     * 从 from 开始查找第一个 >= target 的位置：先按 1、2、4… 倍步长跳跃，再在最后一段内二分
+     */
+    private static int advance(View list, int from, int target) {
+        int[] a = list.ordinals();
+        int size = list.size();
+        if (from >= size || a[from] >= target) {
+            return from;
+        }
+        int step = 1;
+        int low = from;
+        int high = from + 1;
+        while (high < size && a[high] < target) {
+            low = high;
+            step <<= 1;
+            high = low + step;
+        }
+        int index = Arrays.binarySearch(a, low + 1, Math.min(high, size), target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * 过滤已删除 / 无库存的文档，统计总数，并用大小为 offset + limit 的小顶堆（存候选下标）取出当前页
+     */
+    private static void rank(Candidates candidates, Doc[] docSnapshot, int offset, int limit, boolean inStockOnly,
+                             ProductSearchResult result) {
+        int window = offset + limit;
+        int[] heap = new int[Math.max(1, Math.min(window, candidates.size()))];
+        int heapSize = 0;
+        long total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Doc doc = docSnapshot[candidates.ordinals()[i]];
+            if (!doc.live || (inStockOnly && doc.stock <= 0)) {
+                continue;
+            }
+            total++;
+            if (window == 0) {
+                continue;
+            }
+            if (heapSize < window) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, candidates, docSnapshot);
+            } else if (better(i, heap[0], candidates, docSnapshot)) {
+                heap[0] = i;
+                siftDown(heap, heapSize, candidates, docSnapshot);
+            }
+        }
+        result.setTotal(total);
+        // 依次弹出最差的，倒序填入即为从好到差
+        int[] sorted = new int[heapSize];
+        for (int n = heapSize; n > 0; n--) {
+            sorted[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, n - 1, candidates, docSnapshot);
+        }
+        for (int i = offset; i < sorted.length; i++) {
+            Doc doc = docSnapshot[candidates.ordinals()[sorted[i]]];
+            double score = Math.round(candidates.scores()[sorted[i]] * 100) / 100.0;
+            result.getItems().add(new ProductSearchResult.Hit(doc.productId, doc.productName, doc.price, doc.stock, score));
+        }
+    }
+
+    /**
+     * 排序规则：得分高者在前，得分相同时商品 ID 小者在前
+     */
+    private static boolean better(int a, int b, Candidates candidates, Doc[] docSnapshot) {
+        float sa = candidates.scores()[a];
+        float sb = candidates.scores()[b];
+        if (sa != sb) {
+            return sa > sb;
+        }
+        return docSnapshot[candidates.ordinals()[a]].productId < docSnapshot[candidates.ordinals()[b]].productId;
+    }
+
+    private static void siftUp(int[] heap, int index, Candidates candidates, Doc[] docSnapshot) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(heap[parent], value, candidates, docSnapshot)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, Candidates candidates, Doc[] docSnapshot) {
+        int index = 0;
+        int value = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], candidates, docSnapshot)) {
+                child++;
+            }
+            if (!better(value, heap[child], candidates, docSnapshot)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    private int append(Doc doc) {
+        int n = docCount;
+        Doc[] current = docs;
+        if (n == current.length) {
+            current = Arrays.copyOf(current, n * 2);
+            docs = current;
+        }
+        current[n] = doc;
+        docCount = n + 1;
+        return n;
+    }
+
+    private void addTerm(ConcurrentSkipListMap<String, Postings> terms, String term, int ordinal) {
+        Postings postings = terms.get(term);
+        if (postings == null) {
+            postings = new Postings();
+            terms.put(term, postings);
+            if (term.length() >= fuzzyMinLength && !Tokenizer.isCjk(term.codePointAt(0))) {
+                for (int i = 0; i < term.length(); i++) {
+                    String deleted = term.substring(0, i) + term.substring(i + 1);
+                    deletions.computeIfAbsent(deleted, key -> ConcurrentHashMap.newKeySet()).add(term);
+                }
+            }
+        }
+        postings.add(ordinal);
+    }
+
+    private static int contentHash(Product product) {
+        return Objects.hash(product.getProductName(), product.getDescription());
+    }
+}
@@ -0,0 +1,91 @@
+package com.shop.demo.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 商品名称 / 描述分词
+ * <p>
+ * 1. 先做 NFKC 归一化并转小写（全角字母数字转半角）
+ * 2. 连续的字母 / 数字（拉丁、西里尔等）为一个词，如 "iphone15"
+ * 3. 连续的中日韩文字按相邻两字切分（二元组），如 "苹果手机" → 苹果、果手、手机；
+ * 索引时额外收录每段的最后一个字，查询单字时用前缀匹配二元组 + 末字即可覆盖任意位置
+ * 4. 其余字符（空格、标点、符号）为分隔符
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * 索引分词（去重，保持出现顺序）
+     */
+    static List<String> forIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * 查询分词（去重，保持出现顺序）
+     */
+    static List<String> forQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static List<String> tokenize(String text, boolean index) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        Set<String> tokens = new LinkedHashSet<>();
+        int length = normalized.length();
+        int i = 0;
+        while (i < length) {
+            int cp = normalized.codePointAt(i);
+            if (!Character.isLetterOrDigit(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            boolean cjk = isCjk(cp);
+            int start = i;
+            while (i < length) {
+                int next = normalized.codePointAt(i);
+                if (!Character.isLetterOrDigit(next) || isCjk(next) != cjk) {
+                    break;
+                }
+                i += Character.charCount(next);
+            }
+            if (cjk) {
+                addCjk(normalized.substring(start, i), index, tokens);
+            } else {
+                tokens.add(normalized.substring(start, i));
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private static void addCjk(String run, boolean index, Set<String> tokens) {
+        int[] cps = run.codePoints().toArray();
+        if (cps.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int k = 0; k + 1 < cps.length; k++) {
+            tokens.add(new String(cps, k, 2));
+        }
+        if (index) {
+            tokens.add(new String(cps, cps.length - 1, 1));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.shop.demo.service;
+
+import com.shop.demo.dto.FlashSaleTicket;
+import com.shop.demo.entity.Order;
+
+public interface FlashSaleService {
+    // 开启秒杀：把库存令牌加载到内存（quantity 为空时使用商品当前库存），返回令牌数
+    int start(Long productId, Integer quantity);
+
+    // 结束秒杀：剩余令牌作废（排队中的订单仍会落库），返回剩余令牌数
+    int stop(Long productId);
+
+    // 商品是否处于秒杀中
+    boolean isActive(Long productId);
+
+    // 秒杀下单：拿到令牌则进入队列并返回排队凭证，没有令牌直接拒绝（不访问数据库）
+    FlashSaleTicket submit(Order order);
+
+    // 查询排队凭证状态
+    FlashSaleTicket getTicket(String ticketId);
+}
@@ -1,6 +1,7 @@
 package com.shop.demo.service;
 
 import com.shop.demo.dto.BatchOrderRequest;
+import com.shop.demo.dto.OrderDetail;
 import com.shop.demo.entity.Order;
 import java.util.List;
 
@@ -8,8 +9,20 @@ public interface OrderService {
     // 单个下单
     int addOrder(Order order);
 
+    // 带幂等键的单个下单：幂等键已被使用过时不再下单，回填原订单 ID 后返回
+    int addOrder(Order order, String idempotencyKey);
+
+    // 同一商品的多个下单请求合并到一个事务（一次加锁、一次扣库存、一次批量插入）
+    // idempotencyKeys 与 orders 一一对应（可为 null 或包含 null），重复提交的请求回填原订单 ID，不参与本批次
+    // 返回传入的同一批 Order：成功的已回填 id，库存不足未能满足的 id 为 null
+    List<Order> addOrderGroup(Long productId, List<Order> orders, List<String> idempotencyKeys);
+
     //  批量下单接口
     List<Long> createBatchOrder(BatchOrderRequest request);
 
-    List<Order> getOrdersByUserId(Long userId);
+    // 带幂等键的批量下单：幂等键已被使用过时直接返回原订单 ID
+    List<Long> createBatchOrder(BatchOrderRequest request, String idempotencyKey);
+
+    // 分页查询用户订单（按创建时间倒序，beforeId 为上一页最后一个订单 ID）
+    List<OrderDetail> getOrdersByUserId(Long userId, Long beforeId, int limit);
 }
\ No newline at end of file
@@ -1,13 +1,39 @@
 package com.shop.demo.service;
 
+import com.shop.demo.dto.CartQuote;
+import com.shop.demo.dto.CartQuoteRequest;
+import com.shop.demo.dto.ProductImportResult;
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.dto.ResourceVersion;
 import com.shop.demo.entity.Product;
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface ProductService {
     List<Product> getAllProducts();
+
+    // 键集分页查询：返回 id > afterId 的前 limit 个商品
+    List<Product> getProductPage(Long afterId, int limit);
+
+    // 流式导出全部商品（ndjson=true 时每行一个 JSON，否则输出 JSON 数组）
+    void exportProducts(OutputStream out, boolean ndjson);
+
+    // 全量商品的版本（用于 /product/all 的条件 GET）
+    ResourceVersion getCatalogVersion();
+
     Product getProductById(Long id);
 
+    // 按名称 / 描述搜索商品（相关度排序、分页，inStockOnly=true 时只返回有库存的商品）
+    ProductSearchResult searchProducts(String query, int page, int size, boolean inStockOnly);
+
+    // 购物车报价：按当前价格和库存计算每行金额、可购买状态和合计
+    CartQuote quoteCart(List<CartQuoteRequest.Item> items);
+
     int addProduct(Product product);
-}
\ No newline at end of file
+
+    // 批量导入商品（ndjson=true 时每行一个 JSON，否则为 CSV），逐行校验，返回导入统计与拒绝明细
+    ProductImportResult importProducts(InputStream in, boolean ndjson);
+}
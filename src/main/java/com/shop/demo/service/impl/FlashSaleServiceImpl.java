@@ -0,0 +1,325 @@
+package com.shop.demo.service.impl;
+
+import com.shop.demo.config.FlashSaleProperties;
+import com.shop.demo.dto.FlashSaleTicket;
+import com.shop.demo.entity.Order;
+import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
+import com.shop.demo.exception.InsufficientStockException;
+import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.exception.ServiceBusyException;
+import com.shop.demo.id.OrderIdGenerator;
+import com.shop.demo.jdbc.ReadYourWrites;
+import com.shop.demo.mapper.OrderMapper;
+import com.shop.demo.mapper.ProductMapper;
+import com.shop.demo.metrics.OrderMetrics;
+import com.shop.demo.metrics.OrderMetrics.Endpoint;
+import com.shop.demo.metrics.OrderMetrics.Failure;
+import com.shop.demo.metrics.OrderMetrics.Phase;
+import com.shop.demo.service.FlashSaleService;
+import com.shop.demo.stock.StockBuckets;
+import com.shop.demo.stock.StockDelta;
+import com.shop.demo.stock.StockReservationEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 秒杀服务实现
+ * <p>
+ * 开启秒杀时把库存加载为内存令牌，下单请求 CAS 扣令牌：拿不到直接拒绝，不访问数据库；
+ * 拿到令牌的请求进入有界队列，由少量工作线程批量取出，在一个事务里一次扣减库存、一次插入全部订单，
+ * 客户端凭排队凭证轮询结果。令牌只在本实例内存中，多实例部署时需按商品路由到同一实例。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    private final ProductMapper productMapper;
+    private final OrderMapper orderMapper;
+    private final ObjectProvider<StockReservationEngine> stockEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final FlashSaleProperties properties;
+    private final OrderMetrics orderMetrics;
+    private final ReadYourWrites readYourWrites;
+    private final OrderIdGenerator orderIdGenerator;
+
+    // 秒杀中的商品 -> 剩余库存令牌
+    private final Map<Long, AtomicInteger> tokens = new ConcurrentHashMap<>();
+    // 排队凭证（终态凭证保留 ticketTtl 后清理）
+    private final Map<String, FlashSaleTicket> tickets = new ConcurrentHashMap<>();
+
+    private BlockingQueue<FlashSaleTicket> queue;
+    private ExecutorService workers;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void startWorkers() {
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        int workerCount = Math.max(1, properties.getWorkers());
+        AtomicInteger threadNo = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "flash-sale-worker-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::drainLoop);
+        }
+    }
+
+    @PreDestroy
+    void stopWorkers() throws InterruptedException {
+        // 停止接收后把队列中剩余的订单落库再退出
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("秒杀落库线程未在 10 秒内结束，剩余排队数：{}", queue.size());
+        }
+    }
+
+    @Override
+    public int start(Long productId, Integer quantity) {
+        Product product = productMapper.selectById(productId);
+        if (product == null) {
+            throw new ProductNotFoundException("商品不存在（productId=" + productId + "）");
+        }
+        // 秒杀落库按商品行批量扣减库存，分桶商品需先合并
+        if (StockBuckets.isBucketed(product)) {
+            throw new IllegalStateException("商品库存已分桶，请先合并后再开启秒杀（productId=" + productId + "）");
+        }
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        int stock = engine != null ? engine.available(productId) : (product.getStock() == null ? 0 : product.getStock());
+        int amount = quantity != null ? quantity : stock;
+        if (amount <= 0 || amount > stock) {
+            throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，无法开启秒杀，当前库存：" + stock);
+        }
+        // 开启内存库存引擎时，令牌对应的库存先从引擎整批预留，避免被普通下单卖掉
+        if (engine != null && !engine.tryReserve(productId, amount)) {
+            throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，无法开启秒杀，当前库存：" + engine.available(productId));
+        }
+        if (tokens.putIfAbsent(productId, new AtomicInteger(amount)) != null) {
+            if (engine != null) {
+                engine.release(productId, amount);
+            }
+            throw new IllegalStateException("商品已在秒杀中（productId=" + productId + "）");
+        }
+        log.info("秒杀开始：商品={}, 令牌数={}", product.getProductName(), amount);
+        return amount;
+    }
+
+    @Override
+    public int stop(Long productId) {
+        AtomicInteger remaining = tokens.remove(productId);
+        if (remaining == null) {
+            return 0;
+        }
+        int left = remaining.getAndSet(0);
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        if (engine != null && left > 0) {
+            engine.release(productId, left);
+        }
+        log.info("秒杀结束：productId={}, 剩余令牌={}", productId, left);
+        return left;
+    }
+
+    @Override
+    public boolean isActive(Long productId) {
+        return productId != null && tokens.containsKey(productId);
+    }
+
+    @Override
+    public FlashSaleTicket submit(Order order) {
+        AtomicInteger remaining = tokens.get(order.getProductId());
+        if (remaining == null) {
+            throw new IllegalStateException("商品未在秒杀中（productId=" + order.getProductId() + "）");
+        }
+        int num = order.getNum();
+        while (true) {
+            int current = remaining.get();
+            if (current < num) {
+                orderMetrics.failure(Endpoint.FLASH_SALE, Failure.INSUFFICIENT_STOCK, order.getProductId());
+                throw new InsufficientStockException("商品已售罄");
+            }
+            if (remaining.compareAndSet(current, current - num)) {
+                break;
+            }
+        }
+
+        FlashSaleTicket ticket = new FlashSaleTicket();
+        ticket.setTicketId(UUID.randomUUID().toString().replace("-", ""));
+        ticket.setUserId(order.getUserId());
+        ticket.setProductId(order.getProductId());
+        ticket.setNum(num);
+        ticket.setStatus(FlashSaleTicket.QUEUED);
+        ticket.setCreateTime(LocalDateTime.now());
+        tickets.put(ticket.getTicketId(), ticket);
+
+        if (!running || !queue.offer(ticket)) {
+            tickets.remove(ticket.getTicketId());
+            returnTokens(order.getProductId(), num);
+            throw new ServiceBusyException("排队人数过多，请稍后重试");
+        }
+        return ticket;
+    }
+
+    @Override
+    public FlashSaleTicket getTicket(String ticketId) {
+        return ticketId == null ? null : tickets.get(ticketId);
+    }
+
+    /**
+     * 清理过期的终态凭证
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictFinishedTickets() {
+        long deadline = System.currentTimeMillis() - properties.getTicketTtl().toMillis();
+        tickets.values().removeIf(t -> !FlashSaleTicket.QUEUED.equals(t.getStatus()) && t.getFinishedAt() < deadline);
+    }
+
+    private void drainLoop() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<FlashSaleTicket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                FlashSaleTicket first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("秒杀订单落库线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 一批订单在一个事务内落库；整批失败时逐个重试，只让真正失败的订单失败
+     */
+    private void persist(List<FlashSaleTicket> batch) {
+        try {
+            List<Order> orders = transactionTemplate.execute(status -> persistInTransaction(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).succeed(orders.get(i).getId());
+            }
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                log.warn("秒杀订单批量落库失败，逐个重试（数量={}）：{}", batch.size(), e.getMessage());
+                for (FlashSaleTicket ticket : batch) {
+                    persist(List.of(ticket));
+                }
+                return;
+            }
+            FlashSaleTicket ticket = batch.get(0);
+            if (e instanceof InsufficientStockException || e instanceof ProductNotFoundException) {
+                // 数据库库存已被其他途径扣减，令牌多于实际库存，不再归还
+                ticket.fail(e.getMessage());
+            } else {
+                log.error("秒杀订单落库失败（ticketId={}）", ticket.getTicketId(), e);
+                returnTokens(ticket.getProductId(), ticket.getNum());
+                ticket.fail("系统繁忙，请重试");
+            }
+        }
+    }
+
+    private List<Order> persistInTransaction(List<FlashSaleTicket> batch) {
+        // 1. 按商品合并扣减量
+        Map<Long, Integer> totals = new TreeMap<>();
+        for (FlashSaleTicket ticket : batch) {
+            totals.merge(ticket.getProductId(), ticket.getNum(), Integer::sum);
+        }
+        orderMetrics.batch(Endpoint.FLASH_SALE, batch.size(), totals.size());
+
+        // 2. 扣减库存：令牌已保证不超卖，一条 SQL 扣减本批次所有商品（SQL 中仍校验 stock >= num）
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        long start = System.nanoTime();
+        List<StockDelta> deltas = new ArrayList<>(totals.size());
+        totals.forEach((productId, num) -> deltas.add(new StockDelta(productId, num)));
+        if (engine != null) {
+            // 引擎模式下库存在秒杀开始时已整批预留，提交后确认扣减即可
+            for (StockDelta delta : deltas) {
+                engine.confirmAfterCommit(delta.getProductId(), delta.getNum());
+            }
+        } else if (productMapper.decrementStockBatch(deltas) != deltas.size()) {
+            orderMetrics.failure(Endpoint.FLASH_SALE, Failure.CONFLICT, null);
+            throw new InsufficientStockException("商品库存不足");
+        }
+        start = orderMetrics.phase(Endpoint.FLASH_SALE, Phase.UPDATE, start);
+        for (StockDelta delta : deltas) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(delta.getProductId(), -delta.getNum()));
+        }
+
+        // 3. 按本事务中读到的商品行计算价格（扣减之后读取：行锁已持有，价格在提交前不会再变；不使用可能过期的商品缓存）
+        Map<Long, Product> products = new TreeMap<>();
+        for (Product product : productMapper.selectByIds(new ArrayList<>(totals.keySet()))) {
+            products.put(product.getId(), product);
+        }
+        for (Long productId : totals.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new ProductNotFoundException("商品不存在（productId=" + productId + "）");
+            }
+        }
+
+        // 4. 一条多行 INSERT 插入本批次全部订单
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(batch.size());
+        for (FlashSaleTicket ticket : batch) {
+            Order order = new Order();
+            order.setId(orderIdGenerator.nextId());
+            order.setUserId(ticket.getUserId());
+            order.setProductId(ticket.getProductId());
+            order.setNum(ticket.getNum());
+            order.setTotalPrice(products.get(ticket.getProductId()).lineTotal(ticket.getNum()));
+            order.setCreateTime(now);
+            orders.add(order);
+        }
+        orderMapper.insertOrderBatch(orders);
+        orderMetrics.phase(Endpoint.FLASH_SALE, Phase.INSERT, start);
+        for (Order order : orders) {
+            readYourWrites.recordWrite(order.getUserId());
+        }
+        return orders;
+    }
+
+    private void returnTokens(Long productId, int num) {
+        AtomicInteger remaining = tokens.get(productId);
+        if (remaining != null) {
+            remaining.addAndGet(num);
+            return;
+        }
+        // 秒杀已结束：引擎模式下把预留的库存还给引擎
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        if (engine != null) {
+            engine.release(productId, num);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.shop.demo.service.impl;
+
+import com.shop.demo.config.OrderCoalescingProperties;
+import com.shop.demo.entity.Order;
+import com.shop.demo.exception.InsufficientStockException;
+import com.shop.demo.exception.ServiceBusyException;
+import com.shop.demo.service.OrderService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 下单请求合并器（group commit），位于 OrderService.addOrder 之前
+ * <p>
+ * 同一商品的请求在合并窗口内（或达到批次上限时）收集为一组，交给 {@link OrderService#addOrderGroup}
+ * 在一个事务里一次加锁、一次扣库存、一次批量插入，然后逐个唤醒调用方：
+ * 成功的拿到各自的订单 ID，库存放不下的收到库存不足异常。
+ */
+@Slf4j
+@Component
+public class OrderCoalescer {
+
+    private final OrderService orderService;
+    private final OrderCoalescingProperties properties;
+    // 正在收集中的批次（每个商品最多一个）
+    private final Map<Long, Group> openGroups = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService flushExecutor;
+
+    private record Pending(Order order, String idempotencyKey, CompletableFuture<Order> future) {
+    }
+
+    private static final class Group {
+        final Long productId;
+        final List<Pending> members = new ArrayList<>();
+        boolean closed;
+
+        Group(Long productId) {
+            this.productId = productId;
+        }
+    }
+
+    public OrderCoalescer(OrderService orderService, OrderCoalescingProperties properties) {
+        this.orderService = orderService;
+        this.properties = properties;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-coalescer-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNo = new AtomicInteger();
+        this.flushExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getFlushThreads()), r -> {
+            Thread thread = new Thread(r, "order-coalescer-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 合并下单并等待结果（阻塞调用方线程），语义与 OrderService.addOrder 一致：
+     * 成功时回填 order 的 id / totalPrice / createTime 并返回 1，失败时抛出原异常
+     */
+    public int placeOrder(Order order) {
+        return placeOrder(order, null);
+    }
+
+    /**
+     * 带幂等键的合并下单：重复提交时回填原订单 ID，不会再次扣库存
+     */
+    public int placeOrder(Order order, String idempotencyKey) {
+        try {
+            submit(order, idempotencyKey).get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return 1;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            log.error("合并下单等待超时（productId={}）", order.getProductId());
+            throw new ServiceBusyException("系统繁忙，请稍后在订单列表中确认下单结果");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("系统繁忙，请重试");
+        }
+    }
+
+    /**
+     * 加入对应商品的收集批次，返回该请求的结果
+     */
+    public CompletableFuture<Order> submit(Order order) {
+        return submit(order, null);
+    }
+
+    public CompletableFuture<Order> submit(Order order, String idempotencyKey) {
+        if (order.getUserId() == null || order.getProductId() == null || order.getNum() == null || order.getNum() <= 0) {
+            throw new IllegalArgumentException("订单参数不完整");
+        }
+        Pending pending = new Pending(order, idempotencyKey, new CompletableFuture<>());
+        while (true) {
+            Group group = openGroups.computeIfAbsent(order.getProductId(), this::openGroup);
+            boolean full;
+            synchronized (group) {
+                if (group.closed) {
+                    // 批次刚好被提交，重新获取新批次
+                    continue;
+                }
+                group.members.add(pending);
+                full = group.members.size() >= properties.getMaxBatchSize();
+            }
+            if (full) {
+                flush(group);
+            }
+            return pending.future();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        timer.shutdownNow();
+        for (Group group : List.copyOf(openGroups.values())) {
+            flush(group);
+        }
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private Group openGroup(Long productId) {
+        Group group = new Group(productId);
+        timer.schedule(() -> flush(group), properties.getWindow().toNanos(), TimeUnit.NANOSECONDS);
+        return group;
+    }
+
+    /**
+     * 关闭批次（窗口到期或批次已满，先到者生效）并提交到事务线程池
+     */
+    private void flush(Group group) {
+        synchronized (group) {
+            if (group.closed) {
+                return;
+            }
+            group.closed = true;
+            openGroups.remove(group.productId, group);
+        }
+        flushExecutor.execute(() -> execute(group));
+    }
+
+    private void execute(Group group) {
+        List<Order> orders = new ArrayList<>(group.members.size());
+        List<String> idempotencyKeys = new ArrayList<>(group.members.size());
+        for (Pending pending : group.members) {
+            orders.add(pending.order());
+            idempotencyKeys.add(pending.idempotencyKey());
+        }
+        try {
+            orderService.addOrderGroup(group.productId, orders, idempotencyKeys);
+            for (Pending pending : group.members) {
+                if (pending.order().getId() != null) {
+                    pending.future().complete(pending.order());
+                } else {
+                    pending.future().completeExceptionally(
+                            new InsufficientStockException("商品库存不足（productId=" + group.productId + "）"));
+                }
+            }
+        } catch (Exception e) {
+            for (Pending pending : group.members) {
+                pending.future().completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,23 +1,45 @@
 package com.shop.demo.service.impl;
 
 import com.shop.demo.dto.BatchOrderRequest;
+import com.shop.demo.dto.OrderDetail;
 import com.shop.demo.entity.Order;
 import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
 import com.shop.demo.exception.InsufficientStockException;
 import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.exception.ServiceBusyException;
+import com.shop.demo.id.OrderIdGenerator;
+import com.shop.demo.idempotency.IdempotencyKey;
+import com.shop.demo.jdbc.ReadYourWrites;
+import com.shop.demo.mapper.IdempotencyKeyMapper;
 import com.shop.demo.mapper.OrderMapper;
 import com.shop.demo.mapper.ProductMapper;
+import com.shop.demo.metrics.OrderMetrics;
+import com.shop.demo.metrics.OrderMetrics.Endpoint;
+import com.shop.demo.metrics.OrderMetrics.Failure;
+import com.shop.demo.metrics.OrderMetrics.Phase;
+import com.shop.demo.service.FlashSaleService;
 import com.shop.demo.service.OrderService;
+import com.shop.demo.stock.StockBuckets;
+import com.shop.demo.stock.StockDelta;
+import com.shop.demo.stock.StockReservationEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -26,6 +48,21 @@ public class OrderServiceImpl implements OrderService {
 
     private final OrderMapper orderMapper;
     private final ProductMapper productMapper;
+    // 下单幂等键（与订单同一事务写入，跨重启 / 跨节点去重）
+    private final IdempotencyKeyMapper idempotencyKeyMapper;
+    // 内存库存引擎（shop.stock.reservation.enabled=true 时存在）
+    private final ObjectProvider<StockReservationEngine> stockEngine;
+    // 发布商品库存变更事件（事务提交后更新商品缓存）
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlashSaleService flashSaleService;
+    // 下单阶段耗时、失败次数、批次大小指标
+    private final OrderMetrics orderMetrics;
+    // 读己之写：下单用户随后的订单查询走主库
+    private final ReadYourWrites readYourWrites;
+    // 热门商品的库存分桶（分桶商品只锁一个桶行，不锁商品行）
+    private final StockBuckets stockBuckets;
+    // 订单 ID 在插入前由应用分配
+    private final OrderIdGenerator orderIdGenerator;
 
     /**
      * 单个下单接口
@@ -38,40 +75,276 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * 批量下单接口：原子性事务
-     * 循环处理每一个商品，只要有一个失败（库存不足等），整个方法抛出异常，事务全部回滚
+     * 带幂等键的单个下单：先在同一事务中占用幂等键（重复提交不会再加锁扣库存），下单成功后记录订单 ID
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int addOrder(Order order, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            List<Long> existing = claimIdempotencyKey(idempotencyKey, order.getUserId());
+            if (existing != null) {
+                order.setId(existing.get(0));
+                return 1;
+            }
+        }
+        int result = processSingleOrder(order);
+        if (idempotencyKey != null) {
+            idempotencyKeyMapper.complete(idempotencyKey, order.getUserId(), String.valueOf(order.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * 合并下单（group commit）：同一商品的一组请求在一个事务内处理
+     * 1. 只加一次行锁（引擎模式下逐个无锁预留）
+     * 2. 按到达顺序分配库存，放不下的请求跳过（id 保持 null），不影响其他请求
+     * 3. 一次扣减库存、一条多行 INSERT 插入全部成功的订单
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Order> addOrderGroup(Long productId, List<Order> orders, List<String> idempotencyKeys) {
+        // 0. 占用幂等键：重复提交的请求回填原订单 ID，不参与本批次
+        Map<Order, String> keys = new IdentityHashMap<>();
+        List<Order> pending = orders;
+        if (idempotencyKeys != null) {
+            pending = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                String key = i < idempotencyKeys.size() ? idempotencyKeys.get(i) : null;
+                if (key != null) {
+                    List<Long> existing = claimIdempotencyKey(key, order.getUserId());
+                    if (existing != null) {
+                        order.setId(existing.get(0));
+                        continue;
+                    }
+                    keys.put(order, key);
+                }
+                pending.add(order);
+            }
+            if (pending.isEmpty()) {
+                return orders;
+            }
+        }
+
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        orderMetrics.batch(Endpoint.COALESCED, pending.size(), 1);
+        long start = System.nanoTime();
+
+        // 1. 锁查询（同一批请求只锁一次）
+        Product product = engine != null
+                ? productMapper.selectById(productId)
+                : productMapper.selectByIdForUpdate(productId);
+        start = orderMetrics.phase(Endpoint.COALESCED, Phase.LOCK, start);
+        if (product == null) {
+            orderMetrics.failure(Endpoint.COALESCED, Failure.NOT_FOUND, productId);
+            throw new ProductNotFoundException("商品不存在（productId=" + productId + "）");
+        }
+
+        // 2. 按到达顺序分配库存（分桶商品逐个从桶扣减，商品行锁保证分桶不会被并发合并）
+        int stock = product.getStock() == null ? 0 : product.getStock();
+        boolean bucketed = engine == null && StockBuckets.isBucketed(product);
+        int total = 0;
+        List<Order> accepted = new ArrayList<>(pending.size());
+        for (Order order : pending) {
+            boolean fits = engine != null
+                    ? engine.reserve(productId, order.getNum())
+                    : bucketed
+                    ? stockBuckets.take(product, order.getNum()) == StockBuckets.Take.TAKEN
+                    : order.getNum() <= stock - total; // 不写成 total + num，避免 int 溢出
+            if (fits) {
+                total += order.getNum();
+                accepted.add(order);
+            } else {
+                orderMetrics.failure(Endpoint.COALESCED, Failure.INSUFFICIENT_STOCK, productId);
+            }
+        }
+        start = orderMetrics.phase(Endpoint.COALESCED, Phase.CHECK, start);
+        releaseIdempotencyKeys(pending, accepted, keys);
+        if (accepted.isEmpty()) {
+            return orders;
+        }
+
+        // 3. 一次扣减库存 (双重保险：SQL 中再次判断 stock >= total)
+        if (engine == null && !bucketed && productMapper.updateStock(productId, stock - total, total) <= 0) {
+            orderMetrics.failure(Endpoint.COALESCED, Failure.CONFLICT, productId);
+            log.error("合并下单扣减库存失败，并发冲突（productId={}）", productId);
+            throw new RuntimeException("系统繁忙，请重试");
+        }
+        start = orderMetrics.phase(Endpoint.COALESCED, Phase.UPDATE, start);
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(productId, -total));
+
+        // 4. 计算价格并批量插入订单
+        LocalDateTime now = LocalDateTime.now();
+        for (Order order : accepted) {
+            order.setId(orderIdGenerator.nextId());
+            order.setTotalPrice(product.lineTotal(order.getNum()));
+            order.setCreateTime(now);
+        }
+        orderMapper.insertOrderBatch(accepted);
+        orderMetrics.phase(Endpoint.COALESCED, Phase.INSERT, start);
+        for (Order order : accepted) {
+            readYourWrites.recordWrite(order.getUserId());
+            String key = keys.get(order);
+            if (key != null) {
+                idempotencyKeyMapper.complete(key, order.getUserId(), String.valueOf(order.getId()));
+            }
+        }
+        log.debug("合并下单成功：商品={}, 请求数={}, 成功数={}, 扣减库存={}", product.getProductName(), pending.size(), accepted.size(), total);
+        return orders;
+    }
+
+    /**
+     * 批量下单接口：原子性事务（集合式执行）
+     * 1. 合并重复商品，按 productId 升序一次性加锁，多个购物车并发时加锁顺序一致，避免死锁
+     * 2. 一条 UPDATE ... FROM (VALUES ...) 扣减所有商品库存，每行都校验库存充足
+     * 3. 一条多行 INSERT 插入所有订单并取回 ID（每个请求项一条订单，顺序与请求一致）
+     * 任意商品失败（不存在、库存不足等）都会抛出异常，事务全部回滚
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
     public List<Long> createBatchOrder(BatchOrderRequest request) {
+        return createBatchOrder(request, null);
+    }
+
+    /**
+     * 带幂等键的批量下单：幂等键在加锁前占用，重复提交直接返回原订单 ID（幂等键为 null 时即普通批量下单）
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> createBatchOrder(BatchOrderRequest request, String idempotencyKey) {
         if (request == null || request.getItems() == null || request.getItems().isEmpty()) {
             throw new IllegalArgumentException("订单列表不能为空");
         }
 
-        log.info("开始处理用户 {} 的批量订单，包含 {} 个商品", request.getUserId(), request.getItems().size());
+        log.debug("开始处理用户 {} 的批量订单，包含 {} 个商品", request.getUserId(), request.getItems().size());
+
+        // 0. 基础防守校验 + 合并重复商品（TreeMap 保证按 productId 升序）
+        Map<Long, Integer> mergedNums = new TreeMap<>();
+        for (BatchOrderRequest.OrderItemRequest item : request.getItems()) {
+            if (request.getUserId() == null || item.getProductId() == null || item.getNum() == null || item.getNum() <= 0) {
+                throw new IllegalArgumentException("订单参数不完整");
+            }
+            if (flashSaleService.isActive(item.getProductId())) {
+                throw new IllegalArgumentException("秒杀商品请单独下单（productId=" + item.getProductId() + "）");
+            }
+            try {
+                mergedNums.merge(item.getProductId(), item.getNum(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("商品购买数量过大（productId=" + item.getProductId() + "）");
+            }
+        }
+        if (idempotencyKey != null) {
+            List<Long> existing = claimIdempotencyKey(idempotencyKey, request.getUserId());
+            if (existing != null) {
+                log.info("重复的批量下单请求，返回原订单：用户={}, 订单ID={}", request.getUserId(), existing);
+                return existing;
+            }
+        }
+        List<Long> productIds = new ArrayList<>(mergedNums.keySet());
+        orderMetrics.batch(Endpoint.BATCH, request.getItems().size(), productIds.size());
 
-        List<Long> createdOrderIds = new ArrayList<>();
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        long start = System.nanoTime();
+
+        // 1. 按 id 顺序一次性锁定所有商品（引擎模式下不加锁）
+        List<Product> products = engine != null
+                ? productMapper.selectByIds(productIds)
+                : productMapper.selectByIdsForUpdate(productIds);
+        start = orderMetrics.phase(Endpoint.BATCH, Phase.LOCK, start);
+        Map<Long, Product> productMap = new HashMap<>();
+        for (Product product : products) {
+            productMap.put(product.getId(), product);
+        }
+
+        // 2. 库存检查
+        List<StockDelta> deltas = new ArrayList<>(mergedNums.size());
+        for (Map.Entry<Long, Integer> entry : mergedNums.entrySet()) {
+            Product product = productMap.get(entry.getKey());
+            if (product == null) {
+                orderMetrics.failure(Endpoint.BATCH, Failure.NOT_FOUND, entry.getKey());
+                throw new ProductNotFoundException("商品不存在（productId=" + entry.getKey() + "）");
+            }
+            if (engine == null && (product.getStock() == null || product.getStock() < entry.getValue())) {
+                orderMetrics.failure(Endpoint.BATCH, Failure.INSUFFICIENT_STOCK, entry.getKey());
+                throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，当前库存：" + product.getStock());
+            }
+            deltas.add(new StockDelta(entry.getKey(), entry.getValue()));
+        }
+        start = orderMetrics.phase(Endpoint.BATCH, Phase.CHECK, start);
 
-        // 遍历请求中的每一个商品项
+        // 3. 扣减库存
+        if (engine != null) {
+            // 内存无锁预留，任一失败时已预留的部分随事务回滚归还
+            for (StockDelta delta : deltas) {
+                if (!engine.reserve(delta.getProductId(), delta.getNum())) {
+                    orderMetrics.failure(Endpoint.BATCH, Failure.INSUFFICIENT_STOCK, delta.getProductId());
+                    Product product = productMap.get(delta.getProductId());
+                    throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，当前库存：" + engine.available(delta.getProductId()));
+                }
+            }
+        } else {
+            // 分桶商品从桶扣减（商品行已锁，分桶不会被并发合并）
+            List<StockDelta> rows = new ArrayList<>(deltas.size());
+            for (StockDelta delta : deltas) {
+                Product product = productMap.get(delta.getProductId());
+                if (!StockBuckets.isBucketed(product)) {
+                    rows.add(delta);
+                } else if (stockBuckets.take(product, delta.getNum()) != StockBuckets.Take.TAKEN) {
+                    orderMetrics.failure(Endpoint.BATCH, Failure.INSUFFICIENT_STOCK, delta.getProductId());
+                    throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，当前库存：" + product.getStock());
+                }
+            }
+            // 其余商品一条 SQL 扣减库存 (双重保险：SQL 中再次判断 stock >= num)
+            int updated = rows.isEmpty() ? 0 : productMapper.decrementStockBatch(rows);
+            if (updated != rows.size()) {
+                orderMetrics.failure(Endpoint.BATCH, Failure.CONFLICT, null);
+                log.error("批量扣减库存失败，并发冲突（期望 {} 行，实际 {} 行）", rows.size(), updated);
+                throw new RuntimeException("系统繁忙，请重试");
+            }
+        }
+        start = orderMetrics.phase(Endpoint.BATCH, Phase.UPDATE, start);
+
+        for (StockDelta delta : deltas) {
+            eventPublisher.publishEvent(ProductChangedEvent.stockChanged(delta.getProductId(), -delta.getNum()));
+        }
+
+        // 4. 计算价格并构造订单（后端计算，防止前端篡改）
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(request.getItems().size());
         for (BatchOrderRequest.OrderItemRequest item : request.getItems()) {
+            Product product = productMap.get(item.getProductId());
             Order order = new Order();
+            order.setId(orderIdGenerator.nextId());
             order.setUserId(request.getUserId());
             order.setProductId(item.getProductId());
             order.setNum(item.getNum());
+            order.setTotalPrice(product.lineTotal(item.getNum()));
+            order.setCreateTime(now);
+            orders.add(order);
+        }
 
-            // 调用核心逻辑（复用代码）
-            processSingleOrder(order);
+        // 5. 一条多行 INSERT 插入全部订单
+        orderMapper.insertOrderBatch(orders);
+        orderMetrics.phase(Endpoint.BATCH, Phase.INSERT, start);
+        readYourWrites.recordWrite(request.getUserId());
 
-            // 收集生成的订单 ID
+        List<Long> createdOrderIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
             createdOrderIds.add(order.getId());
         }
-
+        if (idempotencyKey != null) {
+            idempotencyKeyMapper.complete(idempotencyKey, request.getUserId(),
+                    createdOrderIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        log.debug("批量下单成功：用户={}, 订单ID={}", request.getUserId(), createdOrderIds);
         return createdOrderIds;
     }
 
     /**
      * 核心下单逻辑（提取公用方法）
      * 包含：参数校验 -> 悲观锁查询 -> 库存校验 -> 价格计算 -> 扣库存 -> 插入订单
+     * 开启内存库存引擎时，不再加行锁，库存校验 + 扣库存 由引擎的无锁预留一步完成
+     * 分桶商品只锁一个库存桶（见 {@link StockBuckets}）
      */
     private int processSingleOrder(Order order) {
         // 0. 基础防守校验
@@ -79,24 +352,67 @@ public class OrderServiceImpl implements OrderService {
             throw new IllegalArgumentException("订单参数不完整");
         }
 
+        StockReservationEngine engine = stockEngine.getIfAvailable();
+        long start = System.nanoTime();
+
+        // 0.5 库存分桶模式：先无锁读取，分桶商品只锁其中一个桶，不锁商品行
+        if (engine == null && stockBuckets.isEnabled()) {
+            Product snapshot = productMapper.selectById(order.getProductId());
+            if (snapshot != null && StockBuckets.isBucketed(snapshot)) {
+                start = orderMetrics.phase(Endpoint.SINGLE, Phase.LOCK, start);
+                Integer result = processBucketOrder(order, snapshot, start);
+                if (result != null) {
+                    return result;
+                }
+                // 分桶已被并发合并：回退到商品行锁
+                start = System.nanoTime();
+            }
+        }
+
         // 1. 锁查询 (SELECT ... FOR UPDATE)
         // 这一步会锁住该商品的数据库行，直到事务结束。防止并发超卖。
-        Product product = productMapper.selectByIdForUpdate(order.getProductId());
+        // 开启内存库存引擎时库存不走数据库行锁，普通查询拿到名称和价格即可
+        Product product = engine != null
+                ? productMapper.selectById(order.getProductId())
+                : productMapper.selectByIdForUpdate(order.getProductId());
+        start = orderMetrics.phase(Endpoint.SINGLE, Phase.LOCK, start);
         if (product == null) {
+            orderMetrics.failure(Endpoint.SINGLE, Failure.NOT_FOUND, order.getProductId());
             throw new ProductNotFoundException("商品不存在（productId=" + order.getProductId() + "）");
         }
 
-        // 2. 库存检查
-        if (product.getStock() == null || product.getStock() < order.getNum()) {
+        // 已分桶的商品（未开启分桶模式，或加锁期间刚完成分桶）：持有商品行锁从桶扣减
+        if (engine == null && StockBuckets.isBucketed(product)) {
+            Integer result = processBucketOrder(order, product, start);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        // 2. 库存检查（引擎模式下在第 4 步预留时原子校验）
+        if (engine == null && (product.getStock() == null || product.getStock() < order.getNum())) {
+            orderMetrics.failure(Endpoint.SINGLE, Failure.INSUFFICIENT_STOCK, order.getProductId());
             throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，当前库存：" + product.getStock());
         }
+        start = orderMetrics.phase(Endpoint.SINGLE, Phase.CHECK, start);
 
         // 3. 计算价格 (后端计算，防止前端篡改)
         // 使用 BigDecimal 进行精确计算
-        BigDecimal actualTotalPrice = product.getPrice().multiply(BigDecimal.valueOf(order.getNum()));
+        BigDecimal actualTotalPrice = product.lineTotal(order.getNum());
         order.setTotalPrice(actualTotalPrice);
 
-        // 4. 扣减库存 (双重保险：SQL 中再次判断 stock >= num)
+        // 4. 扣减库存
+        if (engine != null) {
+            // 内存无锁预留：事务提交后确认并批量回写数据库，回滚则自动归还
+            if (!engine.reserve(order.getProductId(), order.getNum())) {
+                orderMetrics.failure(Endpoint.SINGLE, Failure.INSUFFICIENT_STOCK, order.getProductId());
+                throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，当前库存：" + engine.available(order.getProductId()));
+            }
+            orderMetrics.phase(Endpoint.SINGLE, Phase.UPDATE, start);
+            return insertOrder(order, product);
+        }
+
+        // (双重保险：SQL 中再次判断 stock >= num)
         int newStock = product.getStock() - order.getNum();
         int updateResult = productMapper.updateStock(
                 order.getProductId(),
@@ -106,24 +422,100 @@ public class OrderServiceImpl implements OrderService {
 
         if (updateResult <= 0) {
             // 如果 update 返回 0，说明在锁获取之后到更新之间数据发生了意料之外的变化，或者 SQL 条件未满足
+            orderMetrics.failure(Endpoint.SINGLE, Failure.CONFLICT, order.getProductId());
             log.error("库存扣减失败，并发冲突（productId={}）", order.getProductId());
             throw new RuntimeException("系统繁忙，请重试");
         }
+        orderMetrics.phase(Endpoint.SINGLE, Phase.UPDATE, start);
+
+        return insertOrder(order, product);
+    }
 
-        // 5. 插入订单
+    /**
+     * 分桶商品下单：从库存桶扣减后插入订单，返回 null 表示商品已不再分桶
+     */
+    private Integer processBucketOrder(Order order, Product product, long start) {
+        StockBuckets.Take take = stockBuckets.take(product, order.getNum());
+        if (take == StockBuckets.Take.NOT_BUCKETED) {
+            return null;
+        }
+        if (take == StockBuckets.Take.INSUFFICIENT) {
+            orderMetrics.failure(Endpoint.SINGLE, Failure.INSUFFICIENT_STOCK, order.getProductId());
+            throw new InsufficientStockException("商品 [" + product.getProductName() + "] 库存不足，当前库存：" + product.getStock());
+        }
+        orderMetrics.phase(Endpoint.SINGLE, Phase.UPDATE, start);
+        order.setTotalPrice(product.lineTotal(order.getNum()));
+        return insertOrder(order, product);
+    }
+
+    /**
+     * 5. 插入订单（库存已扣减，同时发布库存变更事件）
+     */
+    private int insertOrder(Order order, Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.stockChanged(order.getProductId(), -order.getNum()));
+        order.setId(orderIdGenerator.nextId());
         order.setCreateTime(LocalDateTime.now());
+        long start = System.nanoTime();
         int result = orderMapper.insertOrder(order);
+        orderMetrics.phase(Endpoint.SINGLE, Phase.INSERT, start);
+        readYourWrites.recordWrite(order.getUserId());
 
-        log.info("下单成功：订单ID={}, 商品={}, 数量={}", order.getId(), product.getProductName(), order.getNum());
+        log.debug("下单成功：订单ID={}, 商品={}, 数量={}", order.getId(), product.getProductName(), order.getNum());
         return result;
     }
 
+    /**
+     * 占用幂等键（按用户唯一）：首次提交返回 null；同一用户重复提交返回原请求创建的订单 ID
+     * 另一个事务正持有同一用户的同一个键时，INSERT 会等待它提交或回滚
+     */
+    private List<Long> claimIdempotencyKey(String key, Long userId) {
+        if (idempotencyKeyMapper.claim(key, userId) > 0) {
+            return null;
+        }
+        String orderIds = idempotencyKeyMapper.selectOrderIds(key, userId);
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new ServiceBusyException("相同的请求正在处理中，请稍后查询订单");
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : orderIds.split(",")) {
+            ids.add(Long.valueOf(id));
+        }
+        return ids;
+    }
+
+    /**
+     * 合并下单中库存不足的请求释放幂等键（本事务会提交），允许客户端用同一个键重试
+     */
+    private void releaseIdempotencyKeys(List<Order> pending, List<Order> accepted, Map<Order, String> keys) {
+        if (keys.isEmpty() || accepted.size() == pending.size()) {
+            return;
+        }
+        Map<Order, Boolean> acceptedSet = new IdentityHashMap<>();
+        for (Order order : accepted) {
+            acceptedSet.put(order, Boolean.TRUE);
+        }
+        List<IdempotencyKey> rejected = new ArrayList<>();
+        for (Order order : pending) {
+            String key = keys.get(order);
+            if (key != null && !acceptedSet.containsKey(order)) {
+                rejected.add(new IdempotencyKey(order.getUserId(), key));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            idempotencyKeyMapper.deleteKeys(rejected);
+        }
+    }
+
+    /**
+     * 查询用户订单：启用读写分离时在副本上查询，用户刚下过单时（读己之写窗口内）改在主库查询
+     */
     @Override
-    public List<Order> getOrdersByUserId(Long userId) {
+    public List<OrderDetail> getOrdersByUserId(Long userId, Long beforeId, int limit) {
         if (userId == null || userId <= 0) {
             return List.of();
         }
-        List<Order> orders = orderMapper.selectByUserId(userId);
+        List<OrderDetail> orders = readYourWrites.read(userId,
+                () -> orderMapper.selectByUserId(userId, beforeId, Math.max(1, limit)));
         return Optional.ofNullable(orders).orElse(List.of());
     }
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.shop.demo.service.impl;
+
+import com.shop.demo.entity.Product;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 商品导入文件的流式读取器：逐行解析 CSV 或 NDJSON，不把整个文件读入内存
+ * <p>
+ * CSV：RFC 4180 格式（字段可用双引号包裹，引号内可含逗号 / 换行），列顺序为 name,price,stock,description；
+ * 首行含 price 列名时视为表头，按表头列名取值（名称列可写作 name / productName / product_name）。
+ * NDJSON：每行一个 JSON 对象，字段与 /product/add、/product/export 一致（productName 或 name、price、stock、description）。
+ * 格式错误的行返回带错误原因的 {@link Row}，由调用方记入拒绝明细，不中断读取。
+ */
+class ProductImportReader implements AutoCloseable {
+
+    /**
+     * 读取到的一行：product 与 error 二选一
+     */
+    record Row(long line, Product product, String error) {
+    }
+
+    private static final List<String> DEFAULT_COLUMNS = List.of("name", "price", "stock", "description");
+
+    private final BufferedReader reader;
+    private final boolean ndjson;
+    private final JsonMapper jsonMapper;
+    // CSV 列名 -> 列下标
+    private Map<String, Integer> columns;
+    // 已读取的物理行数，recordLine 为当前记录起始行号
+    private long physicalLine;
+    private long recordLine;
+
+    ProductImportReader(InputStream in, boolean ndjson, JsonMapper jsonMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        this.ndjson = ndjson;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * 读取下一行数据，文件结束时返回 null（空行跳过）
+     */
+    Row next() throws IOException {
+        return ndjson ? nextJson() : nextCsv();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Row nextJson() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            physicalLine++;
+            line = stripBom(line).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                JsonNode node = jsonMapper.readTree(line);
+                if (node == null || !node.isObject()) {
+                    return new Row(physicalLine, null, "不是 JSON 对象");
+                }
+                String name = text(node, "productName");
+                return toRow(physicalLine, name != null ? name : text(node, "name"),
+                        text(node, "price"), text(node, "stock"), text(node, "description"));
+            } catch (JacksonException e) {
+                return new Row(physicalLine, null, "JSON 格式错误");
+            }
+        }
+        return null;
+    }
+
+    private Row nextCsv() throws IOException {
+        List<String> fields;
+        while ((fields = readRecord()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            if (columns == null) {
+                columns = new HashMap<>();
+                boolean header = fields.stream().anyMatch(f -> f.trim().equalsIgnoreCase("price"));
+                List<String> names = header ? fields : DEFAULT_COLUMNS;
+                for (int i = 0; i < names.size(); i++) {
+                    String column = names.get(i).trim().toLowerCase(Locale.ROOT);
+                    columns.put(column.equals("productname") || column.equals("product_name") ? "name" : column, i);
+                }
+                if (header) {
+                    continue;
+                }
+            }
+            return toRow(recordLine, field(fields, "name"), field(fields, "price"),
+                    field(fields, "stock"), field(fields, "description"));
+        }
+        return null;
+    }
+
+    /**
+     * 读取一条 CSV 记录（引号内的换行属于字段内容），文件结束返回 null
+     */
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        recordLine = physicalLine + 1;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        physicalLine++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                physicalLine++;
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        if (c == -1) {
+            physicalLine++;
+        }
+        fields.add(field.toString());
+        fields.set(0, stripBom(fields.get(0)));
+        return fields;
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asString();
+    }
+
+    /**
+     * 转换为商品对象（只做类型转换，业务规则由 ProductServiceImpl.validate 校验）
+     */
+    private static Row toRow(long line, String name, String price, String stock, String description) {
+        Product product = new Product();
+        product.setProductName(name == null ? null : name.trim());
+        try {
+            product.setPrice(price == null || price.isBlank() ? null : new BigDecimal(price.trim()));
+        } catch (NumberFormatException e) {
+            return new Row(line, null, "价格格式错误：" + price);
+        }
+        try {
+            product.setStock(stock == null || stock.isBlank() ? null : Integer.valueOf(stock.trim()));
+        } catch (NumberFormatException e) {
+            return new Row(line, null, "库存格式错误：" + stock);
+        }
+        product.setDescription(description == null || description.isBlank() ? null : description.trim());
+        return new Row(line, product, null);
+    }
+
+    private static String stripBom(String s) {
+        return !s.isEmpty() && s.charAt(0) == '\uFEFF' ? s.substring(1) : s;
+    }
+}
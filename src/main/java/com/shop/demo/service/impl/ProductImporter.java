@@ -0,0 +1,142 @@
+package com.shop.demo.service.impl;
+
+import com.shop.demo.cache.ProductCache;
+import com.shop.demo.config.ProductImportProperties;
+import com.shop.demo.dto.ProductImportResult;
+import com.shop.demo.entity.Product;
+import com.shop.demo.search.ProductSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品批量导入：边读取上传流边校验，按块通过 PostgreSQL COPY 写入
+ * <p>
+ * 每块（shop.product-import.chunk-size 行）在单独的事务中提交：某一块写入失败只拒绝该块，
+ * 已提交的块不回滚。校验规则与 {@link ProductServiceImpl#addProduct} 相同。
+ * 不在请求主路径上：延迟到第一次导入时才创建，缩短启动时间。
+ */
+@Slf4j
+@Lazy
+@Component
+@RequiredArgsConstructor
+public class ProductImporter {
+
+    private static final String COPY_SQL =
+            "COPY \"product\" (name, price, stock, description) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCache productCache;
+    private final JsonMapper jsonMapper;
+    private final ProductImportProperties properties;
+    private final ProductSearchIndex productSearchIndex;
+
+    public ProductImportResult importProducts(InputStream in, boolean ndjson) {
+        ProductImportResult result = new ProductImportResult();
+        long start = System.nanoTime();
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        List<ProductImportReader.Row> chunk = new ArrayList<>(chunkSize);
+        try (ProductImportReader reader = new ProductImportReader(in, ndjson, jsonMapper)) {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                result.setTotal(result.getTotal() + 1);
+                String error = row.error() != null ? row.error() : ProductServiceImpl.validate(row.product());
+                if (error != null) {
+                    reject(result, row.line(), error, 1);
+                    continue;
+                }
+                if (row.product().getStock() == null) {
+                    row.product().setStock(0);
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    copy(chunk, result);
+                    chunk.clear();
+                }
+            }
+            copy(chunk, result);
+        } catch (IOException e) {
+            // 读取上传流失败（如客户端中途断开）：已提交的块保留
+            log.error("商品导入读取上传内容失败，已导入 {} 行", result.getImported(), e);
+            throw new UncheckedIOException(e);
+        } finally {
+            if (result.getImported() > 0) {
+                productCache.invalidateAll();
+                // COPY 写入不逐行发布变更事件，搜索索引在后台全量重建
+                productSearchIndex.rebuildAsync();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        result.setElapsedMillis(elapsedNanos / 1_000_000);
+        result.setRowsPerSecond(elapsedNanos == 0 ? 0 : Math.round(result.getImported() * 1e10 / elapsedNanos) / 10.0);
+        log.info("商品导入完成：读取 {} 行，导入 {} 行，拒绝 {} 行，耗时 {}ms，{} 行/秒", result.getTotal(),
+                result.getImported(), result.getRejected(), result.getElapsedMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * 一块数据编码为 CSV 后在一个事务中 COPY 写入
+     */
+    private void copy(List<ProductImportReader.Row> chunk, ProductImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        StringBuilder csv = new StringBuilder(chunk.size() * 64);
+        for (ProductImportReader.Row row : chunk) {
+            Product product = row.product();
+            appendCsv(csv, product.getProductName()).append(',')
+                    .append(product.getPrice().toPlainString()).append(',')
+                    .append(product.getStock()).append(',');
+            appendCsv(csv, product.getDescription()).append('\n');
+        }
+        try {
+            Long copied = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+                } catch (IOException e) {
+                    throw new SQLException("COPY 写入失败", e);
+                }
+            }));
+            result.setImported(result.getImported() + (copied == null ? 0 : copied));
+        } catch (Exception e) {
+            long first = chunk.get(0).line();
+            long last = chunk.get(chunk.size() - 1).line();
+            log.error("商品导入第 {}~{} 行写入数据库失败", first, last, e);
+            reject(result, first, "第 " + first + "~" + last + " 行写入数据库失败，本块 " + chunk.size() + " 行均未导入", chunk.size());
+        }
+    }
+
+    private void reject(ProductImportResult result, long line, String reason, int rows) {
+        result.setRejected(result.getRejected() + rows);
+        if (result.getRejections().size() < properties.getMaxReportedRejections()) {
+            result.getRejections().add(new ProductImportResult.Rejection(line, reason));
+        } else {
+            result.setTruncated(true);
+        }
+    }
+
+    /**
+     * CSV 字段：null 输出为空（COPY 视为 NULL），其余加双引号并转义内部的双引号
+     */
+    private static StringBuilder appendCsv(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
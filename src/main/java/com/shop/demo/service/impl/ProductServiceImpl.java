@@ -1,16 +1,36 @@
 package com.shop.demo.service.impl;
 
+import com.shop.demo.cache.ProductCache;
+import com.shop.demo.dto.CartQuote;
+import com.shop.demo.dto.CartQuoteRequest;
+import com.shop.demo.dto.ProductImportResult;
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.dto.ResourceVersion;
 import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
 import com.shop.demo.mapper.ProductMapper;
+import com.shop.demo.search.ProductSearchIndex;
 import com.shop.demo.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 /**
  * 商品服务实现类（适配 Spring Boot 3.x + JDK 17）
@@ -22,22 +42,84 @@ public class ProductServiceImpl implements ProductService {
 
     // 构造函数注入（无 @Resource 注解，避免字段注入的耦合问题）
     private final ProductMapper productMapper;
+    // 商品读缓存（读穿透，未启用时直接查库）
+    private final ProductCache productCache;
+    private final ApplicationEventPublisher eventPublisher;
+    // 与 Spring MVC 共用的 JSON 序列化器（保证导出格式与接口一致）
+    private final JsonMapper jsonMapper;
+    // 批量导入（COPY 分块写入，延迟创建，第一次导入时才实例化）
+    private final ObjectProvider<ProductImporter> productImporter;
+    // 商品搜索（进程内倒排索引）
+    private final ProductSearchIndex productSearchIndex;
+
+    // 商品名称最大长度（与表结构 VARCHAR(100) 一致）
+    private static final int MAX_NAME_LENGTH = 100;
+    // 价格上限（NUMERIC(10, 2) 最大 99999999.99）
+    private static final BigDecimal MAX_PRICE = new BigDecimal("100000000");
 
     /**
      * 查询所有商品（新增日志打印、空集合防护）
+     * 优先读取缓存的全量快照，缓存内部已做空集合防护
+     * 查询方法均为只读事务：启用读写分离时回源查询走副本（事务内未执行 SQL 时不占用连接）
      */
     @Override
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
-        log.info("开始查询所有商品");
-        List<Product> products = productMapper.selectAll();
-        // 避免返回 null，空结果返回空集合（前端处理更友好）
-        return Optional.ofNullable(products).orElse(List.of());
+        log.debug("开始查询所有商品");
+        return productCache.getAll();
+    }
+
+    /**
+     * 键集分页查询（afterId 为上一页最后一个商品 ID，首页传 null / 0）
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Product> getProductPage(Long afterId, int limit) {
+        long cursor = afterId == null || afterId < 0 ? 0 : afterId;
+        return productCache.getPage(cursor, Math.max(1, limit));
+    }
+
+    /**
+     * 流式导出全部商品：游标逐行读取并直接写入输出流，内存占用与商品总数无关
+     * 只读事务用于让 Postgres 驱动按 fetchSize 分批拉取
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream out, boolean ndjson) {
+        log.info("开始流式导出商品，格式：{}", ndjson ? "ndjson" : "json");
+        // 不在每个对象后 flush（由容器缓冲区批量写出），也不关闭响应流（由容器负责）
+        ObjectWriter writer = jsonMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        try (SequenceWriter sequence = ndjson
+                ? writer.withRootValueSeparator("\n").writeValues(out)
+                : writer.writeValuesAsArray(out)) {
+            productMapper.streamAll(context -> sequence.write(context.getResultObject()));
+        }
+        try {
+            if (ndjson) {
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 全量商品版本：启用缓存时取快照版本号，不查库
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ResourceVersion getCatalogVersion() {
+        return productCache.catalogVersion();
     }
 
     /**
      * 根据 ID 查询商品（新增参数校验、日志打印）
      */
     @Override
+    @Transactional(readOnly = true)
     public Product getProductById(Long id) {
         // 参数校验（JDK 17 可结合 jakarta.validation 做更复杂校验）
         if (id == null || id <= 0) {
@@ -45,8 +127,58 @@ public class ProductServiceImpl implements ProductService {
             return null;
         }
 
-        log.info("开始查询 ID 为 {} 的商品", id);
-        return productMapper.selectById(id);
+        log.debug("开始查询 ID 为 {} 的商品", id);
+        return productCache.get(id);
+    }
+
+    /**
+     * 搜索商品：查询进程内索引，不查库
+     */
+    @Override
+    public ProductSearchResult searchProducts(String query, int page, int size, boolean inStockOnly) {
+        log.debug("搜索商品：{}，第 {} 页", query, page);
+        return productSearchIndex.search(query, page, size, inStockOnly);
+    }
+
+    /**
+     * 购物车报价：全部商品一次取回（优先商品缓存，未命中的合并为一次 selectByIds），
+     * 行金额与下单使用同一个 {@link Product#lineTotal(int)}；同一商品出现多行时按合计件数判断库存，与批量下单的合并一致
+     * （合计件数超出 int 范围时同样拒绝）
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CartQuote quoteCart(List<CartQuoteRequest.Item> items) {
+        Map<Long, Integer> requestedNums = new LinkedHashMap<>();
+        for (CartQuoteRequest.Item item : items) {
+            try {
+                requestedNums.merge(item.getProductId(), item.getNum(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("商品购买数量过大（productId=" + item.getProductId() + "）");
+            }
+        }
+        Map<Long, Product> products = productCache.getByIds(requestedNums.keySet());
+        CartQuote quote = new CartQuote();
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartQuoteRequest.Item item : items) {
+            Product product = products.get(item.getProductId());
+            if (product == null) {
+                quote.getItems().add(new CartQuote.Line(item.getProductId(), null, null, item.getNum(), null, null,
+                        CartQuote.Availability.NOT_FOUND));
+                quote.setAvailable(false);
+                continue;
+            }
+            BigDecimal lineTotal = product.lineTotal(item.getNum());
+            total = total.add(lineTotal);
+            boolean inStock = product.getStock() != null && product.getStock() >= requestedNums.get(product.getId());
+            quote.getItems().add(new CartQuote.Line(product.getId(), product.getProductName(), product.getPrice(),
+                    item.getNum(), lineTotal, product.getStock(),
+                    inStock ? CartQuote.Availability.AVAILABLE : CartQuote.Availability.INSUFFICIENT_STOCK));
+            if (!inStock) {
+                quote.setAvailable(false);
+            }
+        }
+        quote.setTotal(total);
+        return quote;
     }
 
     /**
@@ -60,12 +192,9 @@ public class ProductServiceImpl implements ProductService {
             log.warn("添加商品失败：商品对象为空");
             return 0;
         }
-        if (product.getProductName() == null || product.getProductName().trim().isEmpty() || product.getProductName().length() > 100) {
-            log.warn("添加商品失败：商品名称非法（名称={}）", product.getProductName());
-            return 0;
-        }
-        if (product.getPrice() == null || product.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
-            log.warn("添加商品失败：商品价格非法（价格={}）", product.getPrice());
+        String invalid = validate(product);
+        if (invalid != null) {
+            log.warn("添加商品失败：{}", invalid);
             return 0;
         }
         // 库存默认值（避免库存为 null）
@@ -80,10 +209,38 @@ public class ProductServiceImpl implements ProductService {
         try {
             productMapper.insertProduct(product);
             log.info("商品添加成功，生成商品 ID：{}", product.getId());  // 能获取到数据库自增 ID（useGeneratedKeys=true）
+            // 事务提交后刷新商品缓存
+            eventPublisher.publishEvent(ProductChangedEvent.saved(product.getId()));
             return 1;  // 返回 1 表示成功（与 XML 中 insert 实际影响行数一致）
         } catch (Exception e) {
             log.error("添加商品失败", e);
             return 0;  // 返回 0 表示失败
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量导入商品（CSV / NDJSON 流式读取，COPY 分块写入）
+     */
+    @Override
+    public ProductImportResult importProducts(InputStream in, boolean ndjson) {
+        log.info("开始批量导入商品，格式：{}", ndjson ? "ndjson" : "csv");
+        return productImporter.getObject().importProducts(in, ndjson);
+    }
+
+    /**
+     * 商品校验规则（单个添加与批量导入共用）：名称非空且不超过 100 字符、价格大于 0 且不超出字段范围
+     *
+     * @return 不合法时返回原因，合法返回 null
+     */
+    static String validate(Product product) {
+        String name = product.getProductName();
+        if (name == null || name.trim().isEmpty() || name.length() > MAX_NAME_LENGTH) {
+            return "商品名称非法（名称=" + name + "）";
+        }
+        if (product.getPrice() == null || product.getPrice().compareTo(BigDecimal.ZERO) <= 0
+                || product.getPrice().compareTo(MAX_PRICE) >= 0) {
+            return "商品价格非法（价格=" + product.getPrice() + "）";
+        }
+        return null;
+    }
+}
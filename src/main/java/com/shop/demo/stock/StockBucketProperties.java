@@ -0,0 +1,16 @@
+package com.shop.demo.stock;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 库存分桶配置（前缀 shop.stock.buckets）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.stock.buckets")
+public class StockBucketProperties {
+    // 是否启用分桶模式：开启后单个下单先无锁读取商品，分桶商品只锁一个桶（未分桶商品多一次查询）
+    private boolean enabled = false;
+    // 单个商品最多拆成的桶数
+    private int maxBuckets = 64;
+}
@@ -0,0 +1,214 @@
+package com.shop.demo.stock;
+
+import com.shop.demo.entity.Product;
+import com.shop.demo.entity.StockBucket;
+import com.shop.demo.event.ProductChangedEvent;
+import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.mapper.ProductMapper;
+import com.shop.demo.mapper.StockBucketMapper;
+import com.shop.demo.service.FlashSaleService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 热门商品的库存分桶
+ * <p>
+ * 一个商品的库存拆成 N 行（product_stock_bucket），下单随机选一个桶只锁该行，
+ * 同一商品的并发下单分散到 N 个行锁上；商品查询返回的库存为各桶之和。
+ * 扣减顺序：
+ * 1. 跳过被锁住的桶（SKIP LOCKED），找一个库存充足的空闲桶，不等待
+ * 2. 没有空闲桶时等待随机选中的那个桶（在保存点中执行，见 {@link #takeWaiting}）
+ * 3. 该桶库存不足时按桶编号顺序锁住全部桶，跨桶扣减（接近售罄时）
+ * 分桶 / 合并 / 重新均衡先锁商品行再锁全部桶，与批量下单的加锁顺序一致。
+ * 与内存库存引擎（shop.stock.reservation）互斥，秒杀中的商品不能分桶。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockBuckets {
+
+    /**
+     * 扣减结果
+     */
+    public enum Take {
+        TAKEN,
+        INSUFFICIENT,
+        // 商品已不再分桶（并发合并），调用方改用商品行锁扣减
+        NOT_BUCKETED
+    }
+
+    private final StockBucketMapper stockBucketMapper;
+    private final ProductMapper productMapper;
+    private final StockBucketProperties properties;
+    private final ObjectProvider<StockReservationEngine> stockEngine;
+    private final FlashSaleService flashSaleService;
+    // 发布商品变更事件（事务提交后刷新商品缓存）
+    private final ApplicationEventPublisher eventPublisher;
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public static boolean isBucketed(Product product) {
+        return product.getStockBuckets() != null && product.getStockBuckets() > 0;
+    }
+
+    /**
+     * 在当前事务（@Transactional 方法内）中从商品的库存桶扣减 num（不锁商品行）
+     */
+    public Take take(Product product, int num) {
+        Long productId = product.getId();
+        int preferred = ThreadLocalRandom.current().nextInt(Math.max(1, product.getStockBuckets()));
+        if (stockBucketMapper.takeFromFreeBucket(productId, num, preferred) != null || takeWaiting(productId, preferred, num)) {
+            return Take.TAKEN;
+        }
+        // 选中的桶已不够扣：锁住全部桶，从各桶凑齐
+        List<StockBucket> buckets = stockBucketMapper.selectForUpdate(productId);
+        if (buckets.isEmpty()) {
+            return Take.NOT_BUCKETED;
+        }
+        int total = buckets.stream().mapToInt(StockBucket::getStock).sum();
+        if (total < num) {
+            return Take.INSUFFICIENT;
+        }
+        int remaining = num;
+        List<StockBucket> changed = new ArrayList<>();
+        for (StockBucket bucket : buckets) {
+            int taken = Math.min(bucket.getStock(), remaining);
+            if (taken > 0) {
+                bucket.setStock(bucket.getStock() - taken);
+                changed.add(bucket);
+                remaining -= taken;
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        stockBucketMapper.updateStocks(productId, changed);
+        log.debug("库存分桶跨桶扣减：productId={}, 数量={}, 涉及桶数={}", productId, num, changed.size());
+        return Take.TAKEN;
+    }
+
+    /**
+     * 等待并从指定的桶扣减。READ COMMITTED 下 UPDATE 等到行锁后即使重新判断库存不足也会保留行锁，
+     * 随后按编号顺序锁全部桶时就可能与其他事务互相等待（死锁），所以放在保存点中执行，扣减失败时回滚到保存点释放该行锁
+     */
+    private boolean takeWaiting(Long productId, int bucket, int num) {
+        TransactionStatus status = TransactionAspectSupport.currentTransactionStatus();
+        Object savepoint = status.createSavepoint();
+        if (stockBucketMapper.takeFromBucket(productId, bucket, num) > 0) {
+            status.releaseSavepoint(savepoint);
+            return true;
+        }
+        status.rollbackToSavepoint(savepoint);
+        status.releaseSavepoint(savepoint);
+        return false;
+    }
+
+    /**
+     * 把商品的全部库存（商品行 + 已有的桶）平均拆到 buckets 个桶中（已分桶的商品按新桶数重新拆分）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<StockBucket> split(Long productId, int buckets) {
+        if (!properties.isEnabled()) {
+            throw new IllegalStateException("未开启库存分桶模式（shop.stock.buckets.enabled）");
+        }
+        if (stockEngine.getIfAvailable() != null) {
+            throw new IllegalStateException("内存库存引擎开启时不支持库存分桶");
+        }
+        if (buckets < 1 || buckets > properties.getMaxBuckets()) {
+            throw new IllegalArgumentException("分桶数必须在 1 ~ " + properties.getMaxBuckets() + " 之间");
+        }
+        if (flashSaleService.isActive(productId)) {
+            throw new IllegalStateException("秒杀中的商品不能分桶（productId=" + productId + "）");
+        }
+        List<StockBucket> old = lock(productId);
+        int total = totalStock(productId, old);
+        stockBucketMapper.deleteByProductId(productId);
+        List<StockBucket> fresh = distribute(productId, total, buckets);
+        stockBucketMapper.insertBuckets(fresh);
+        stockBucketMapper.updateProduct(productId, 0, buckets, versionSum(old));
+        eventPublisher.publishEvent(ProductChangedEvent.saved(productId));
+        log.info("商品库存已分桶：productId={}, 库存={}, 桶数={}", productId, total, buckets);
+        return fresh;
+    }
+
+    /**
+     * 把各桶库存平均重新分配（长时间下单后各桶余量不均时使用），返回调整后的桶
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<StockBucket> rebalance(Long productId) {
+        List<StockBucket> buckets = lock(productId);
+        if (buckets.isEmpty()) {
+            throw new IllegalStateException("商品未分桶（productId=" + productId + "）");
+        }
+        int total = buckets.stream().mapToInt(StockBucket::getStock).sum();
+        List<StockBucket> balanced = distribute(productId, total, buckets.size());
+        stockBucketMapper.updateStocks(productId, balanced);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(productId));
+        log.info("商品库存桶已重新均衡：productId={}, 库存={}, 桶数={}", productId, total, buckets.size());
+        return stockBucketMapper.selectByProductId(productId);
+    }
+
+    /**
+     * 取消分桶：各桶库存合并回商品行，返回合并后的库存
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int merge(Long productId) {
+        List<StockBucket> buckets = lock(productId);
+        int total = totalStock(productId, buckets);
+        stockBucketMapper.deleteByProductId(productId);
+        stockBucketMapper.updateProduct(productId, total, 0, versionSum(buckets));
+        eventPublisher.publishEvent(ProductChangedEvent.saved(productId));
+        log.info("商品库存分桶已合并：productId={}, 库存={}", productId, total);
+        return total;
+    }
+
+    public List<StockBucket> list(Long productId) {
+        return stockBucketMapper.selectByProductId(productId);
+    }
+
+    /**
+     * 先锁商品行再锁全部桶，返回锁住的桶
+     */
+    private List<StockBucket> lock(Long productId) {
+        if (productMapper.selectByIdForUpdate(productId) == null) {
+            throw new ProductNotFoundException("商品不存在（productId=" + productId + "）");
+        }
+        return stockBucketMapper.selectForUpdate(productId);
+    }
+
+    private int totalStock(Long productId, List<StockBucket> buckets) {
+        Integer own = stockBucketMapper.selectProductStock(productId);
+        return (own == null ? 0 : own) + buckets.stream().mapToInt(StockBucket::getStock).sum();
+    }
+
+    private static long versionSum(List<StockBucket> buckets) {
+        return buckets.stream().mapToLong(bucket -> bucket.getVersion() == null ? 0 : bucket.getVersion()).sum();
+    }
+
+    /**
+     * 平均分配库存，余数分给编号小的桶
+     */
+    static List<StockBucket> distribute(Long productId, int total, int buckets) {
+        List<StockBucket> result = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            StockBucket bucket = new StockBucket();
+            bucket.setProductId(productId);
+            bucket.setBucket(i);
+            bucket.setStock(total / buckets + (i < total % buckets ? 1 : 0));
+            result.add(bucket);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,16 @@
+package com.shop.demo.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 库存扣减量（商品 ID + 扣减数量），用于批量扣减库存 SQL
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDelta {
+    private Long productId;
+    private Integer num;
+}
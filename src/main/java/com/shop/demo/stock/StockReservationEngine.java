@@ -0,0 +1,299 @@
+package com.shop.demo.stock;
+
+import com.shop.demo.entity.Product;
+import com.shop.demo.exception.ProductNotFoundException;
+import com.shop.demo.mapper.ProductMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存库存预留引擎
+ * <p>
+ * 每个商品的可售库存保存在内存计数器中，按 productId 分段（stripe），预留/释放均为 CAS 无锁操作，
+ * 不再依赖 SELECT ... FOR UPDATE 行锁。事务提交后的扣减量先累积在待回写计数中，
+ * 由定时任务批量回写到 "product" 表；启动时（Web 服务器开始接收请求之前）从数据库重建。
+ * <p>
+ * 注意：内存计数是单节点的权威库存，多实例部署时不要开启。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shop.stock.reservation", name = "enabled", havingValue = "true")
+public class StockReservationEngine implements SmartInitializingSingleton {
+
+    private final ProductMapper productMapper;
+    private final StockReservationProperties properties;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * 一个分段：可售库存 + 已确认但尚未回写数据库的扣减量
+     */
+    private static final class Stripe {
+        final ConcurrentHashMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Long, AtomicInteger> pending = new ConcurrentHashMap<>();
+    }
+
+    public StockReservationEngine(ProductMapper productMapper, StockReservationProperties properties) {
+        this.productMapper = productMapper;
+        this.properties = properties;
+        int size = Integer.highestOneBit(Math.max(1, properties.getStripes() - 1) << 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = size - 1;
+    }
+
+    /**
+     * 所有单例创建完成后、Web 服务器启动之前加载内存库存，保证第一个下单请求到达时计数器已就绪
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * 从数据库重建内存库存
+     * <p>
+     * 先把已确认的扣减量回写数据库，再按数据库库存重置计数器；回写失败时不重建（否则这部分扣减丢失，
+     * 同一批库存会被再次售出）。与 flush 互斥，避免读到定时回写取出但尚未写入的中间状态。
+     * 运行中调用时需保证没有正在进行的下单，重建期间的预留会被数据库库存覆盖。
+     */
+    public synchronized void rebuild() {
+        flush();
+        if (hasPending()) {
+            throw new IllegalStateException("已确认的库存扣减回写数据库失败，不能从数据库重建内存库存");
+        }
+        List<Product> products = productMapper.selectAll();
+        // 回写按商品行扣减库存，与库存分桶不兼容
+        if (products != null && products.stream().anyMatch(StockBuckets::isBucketed)) {
+            throw new IllegalStateException("存在库存已分桶的商品，开启内存库存引擎前请先合并（/product/{id}/stock-buckets）");
+        }
+        for (Stripe stripe : stripes) {
+            stripe.available.clear();
+        }
+        if (products != null) {
+            for (Product product : products) {
+                load(product.getId(), product.getStock());
+            }
+        }
+        log.info("内存库存引擎已从数据库重建，商品数：{}", products == null ? 0 : products.size());
+    }
+
+    /**
+     * 设置某个商品的可售库存（重建或新商品上架时使用）
+     */
+    public void load(Long productId, Integer stock) {
+        stripeOf(productId).available.put(productId, new AtomicInteger(stock == null ? 0 : stock));
+    }
+
+    /**
+     * 尝试预留库存（CAS 循环，绝不会把库存扣成负数）
+     *
+     * @return true 预留成功；false 库存不足
+     */
+    public boolean tryReserve(Long productId, int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("预留数量必须大于 0");
+        }
+        AtomicInteger counter = counterOf(productId);
+        while (true) {
+            int current = counter.get();
+            if (current < num) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - num)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 预留库存并绑定到当前事务：提交后确认扣减（等待回写），回滚后归还库存。
+     * 没有事务时直接确认。
+     */
+    public boolean reserve(Long productId, int num) {
+        if (!tryReserve(productId, num)) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        confirm(productId, num);
+                    } else {
+                        release(productId, num);
+                    }
+                }
+            });
+        } else {
+            confirm(productId, num);
+        }
+        return true;
+    }
+
+    /**
+     * 已预留（如秒杀开始时整批预留）的库存在当前事务提交后确认扣减；没有事务时直接确认
+     */
+    public void confirmAfterCommit(Long productId, int num) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    confirm(productId, num);
+                }
+            });
+        } else {
+            confirm(productId, num);
+        }
+    }
+
+    /**
+     * 归还预留的库存（事务回滚 / 订单取消）
+     */
+    public void release(Long productId, int num) {
+        counterOf(productId).addAndGet(num);
+    }
+
+    /**
+     * 确认扣减：记入待回写数据库的扣减量
+     */
+    public void confirm(Long productId, int num) {
+        stripeOf(productId).pending
+                .computeIfAbsent(productId, id -> new AtomicInteger())
+                .addAndGet(num);
+    }
+
+    /**
+     * 当前可售库存
+     */
+    public int available(Long productId) {
+        return counterOf(productId).get();
+    }
+
+    /**
+     * 把已确认的扣减量批量回写数据库，失败时放回待回写计数，下次重试；数据库库存不够扣减的商品扣到 0
+     */
+    @Scheduled(fixedDelayString = "${shop.stock.reservation.flush-interval-ms:200}")
+    public synchronized void flush() {
+        List<StockDelta> deltas = drainPending();
+        int batchSize = Math.max(1, properties.getFlushBatchSize());
+        for (int from = 0; from < deltas.size(); from += batchSize) {
+            List<StockDelta> batch = deltas.subList(from, Math.min(from + batchSize, deltas.size()));
+            List<Long> updated;
+            try {
+                updated = productMapper.decrementStockBatchReturningIds(batch);
+            } catch (Exception e) {
+                log.error("库存回写数据库失败，将在下次重试（商品数={}）", batch.size(), e);
+                requeue(batch);
+                continue;
+            }
+            if (updated.size() < batch.size()) {
+                clampUnmatched(batch, updated);
+            }
+        }
+    }
+
+    /**
+     * 数据库库存被外部改小（不够扣减）的商品：内存计数为准，扣到 0 为止。
+     * 这些库存已经售出，不能丢弃，否则重建或重启后从数据库读回偏大的库存会被再次售出
+     */
+    private void clampUnmatched(List<StockDelta> batch, List<Long> updated) {
+        Set<Long> matched = new HashSet<>(updated);
+        List<StockDelta> unmatched = new ArrayList<>();
+        for (StockDelta delta : batch) {
+            if (!matched.contains(delta.getProductId())) {
+                unmatched.add(delta);
+            }
+        }
+        try {
+            int clamped = productMapper.clampStockBatch(unmatched);
+            // 仍未更新的行对应的商品已被删除，无库存可回写
+            log.warn("数据库库存少于内存扣减量，已扣减至 0：扣减明细={}，更新 {} 行", unmatched, clamped);
+        } catch (Exception e) {
+            // 只放回未匹配的部分，已扣减成功的行不能重复扣减
+            log.error("库存回写数据库失败，将在下次重试（商品数={}）", unmatched.size(), e);
+            requeue(unmatched);
+        }
+    }
+
+    private void requeue(List<StockDelta> deltas) {
+        for (StockDelta delta : deltas) {
+            confirm(delta.getProductId(), delta.getNum());
+        }
+    }
+
+    /**
+     * 应用关闭前把剩余扣减量回写数据库
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 取出所有待回写的扣减量（取出后计数清零）
+     */
+    List<StockDelta> drainPending() {
+        List<StockDelta> deltas = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            for (Map.Entry<Long, AtomicInteger> entry : stripe.pending.entrySet()) {
+                int num = entry.getValue().getAndSet(0);
+                if (num > 0) {
+                    deltas.add(new StockDelta(entry.getKey(), num));
+                }
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 是否还有已确认但未回写数据库的扣减量
+     */
+    boolean hasPending() {
+        for (Stripe stripe : stripes) {
+            for (AtomicInteger num : stripe.pending.values()) {
+                if (num.get() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private AtomicInteger counterOf(Long productId) {
+        Stripe stripe = stripeOf(productId);
+        AtomicInteger counter = stripe.available.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        // 启动后新上架的商品：首次访问时从数据库加载
+        return stripe.available.computeIfAbsent(productId, id -> {
+            Product product = productMapper.selectById(id);
+            if (product == null) {
+                throw new ProductNotFoundException("商品不存在（productId=" + id + "）");
+            }
+            return new AtomicInteger(product.getStock() == null ? 0 : product.getStock());
+        });
+    }
+
+    private Stripe stripeOf(Long productId) {
+        long h = productId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h ^ (h >>> 32)) & stripeMask];
+    }
+}
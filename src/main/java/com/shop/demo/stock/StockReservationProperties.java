@@ -0,0 +1,20 @@
+package com.shop.demo.stock;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 内存库存预留引擎配置（前缀 shop.stock.reservation）
+ */
+@Data
+@ConfigurationProperties(prefix = "shop.stock.reservation")
+public class StockReservationProperties {
+    // 是否启用内存库存引擎（默认关闭，走数据库行锁）
+    private boolean enabled = false;
+    // 分段数量（必须为 2 的幂，不是则向上取整）
+    private int stripes = 64;
+    // 已确认扣减量回写数据库的间隔（毫秒）
+    private long flushIntervalMs = 200;
+    // 单条批量 UPDATE 最多包含的商品数
+    private int flushBatchSize = 500;
+}
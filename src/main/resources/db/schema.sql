@@ -0,0 +1,102 @@
+-- shop-demo 数据库结构（PostgreSQL）
+-- 可重复执行：所有语句都带 IF NOT EXISTS，既可用于初始化新库，也可作为已有库的增量迁移脚本
+-- 执行方式：psql "$DATABASE_URL" -f src/main/resources/db/schema.sql
+
+-- 商品表
+CREATE TABLE IF NOT EXISTS "product" (
+    id          BIGSERIAL PRIMARY KEY,
+    name        VARCHAR(100)   NOT NULL,
+    price       NUMERIC(10, 2) NOT NULL,
+    stock       INTEGER        NOT NULL DEFAULT 0,
+    description TEXT,
+    create_time TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version     BIGINT         NOT NULL DEFAULT 0,
+    update_time TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 商品版本号 / 最后修改时间（已有库增量添加）：每次改库存都 version + 1，用于接口的 ETag / Last-Modified
+ALTER TABLE "product" ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE "product" ADD COLUMN IF NOT EXISTS update_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- 库存分桶数（0 为未分桶）：分桶后 product.stock 为 0，库存全部在 product_stock_bucket 中
+ALTER TABLE "product" ADD COLUMN IF NOT EXISTS stock_buckets INTEGER NOT NULL DEFAULT 0;
+
+-- 热门商品的库存分桶：一个商品的库存拆成多行，下单只锁其中一行，分散行锁竞争。
+-- 商品的实际库存 = product.stock + 各桶 stock 之和；version / update_time 同样计入商品的版本号与修改时间
+CREATE TABLE IF NOT EXISTS "product_stock_bucket" (
+    product_id  BIGINT    NOT NULL,
+    bucket      INTEGER   NOT NULL,
+    stock       INTEGER   NOT NULL DEFAULT 0,
+    version     BIGINT    NOT NULL DEFAULT 0,
+    update_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (product_id, bucket)
+);
+
+-- 订单表（order 是关键字，必须加双引号）
+-- id 由应用在插入前分配（OrderIdGenerator，Snowflake 格式），BIGSERIAL 默认值只用于手工插入
+CREATE TABLE IF NOT EXISTS "order" (
+    id          BIGSERIAL PRIMARY KEY,
+    user_id     BIGINT         NOT NULL,
+    product_id  BIGINT         NOT NULL,
+    num         INTEGER        NOT NULL,
+    total_price NUMERIC(12, 2) NOT NULL,
+    create_time TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 用户表（user 是关键字，必须加双引号）
+CREATE TABLE IF NOT EXISTS "user" (
+    id          BIGSERIAL PRIMARY KEY,
+    username    VARCHAR(50)  NOT NULL UNIQUE,
+    password    VARCHAR(100) NOT NULL,
+    phone       VARCHAR(20),
+    create_time TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 用户订单分页：WHERE user_id = ? ORDER BY create_time DESC, id DESC 走索引范围扫描，不需要排序
+CREATE INDEX IF NOT EXISTS idx_order_user_time
+    ON "order" (user_id, create_time DESC, id DESC);
+
+-- 订单事件发件箱：与订单在同一条 INSERT 语句中写入，OrderOutboxRelay 取出（标记 claim_id / claimed_at）后投递到应用内事件总线，
+-- 整批事件分发完才删除；claimed_at 超过 claim-timeout 仍未删除的行（进程崩溃 / 关闭时未分发完）会被重新取出
+CREATE TABLE IF NOT EXISTS "order_outbox" (
+    id          BIGSERIAL PRIMARY KEY,
+    order_id    BIGINT         NOT NULL,
+    user_id     BIGINT         NOT NULL,
+    product_id  BIGINT         NOT NULL,
+    num         INTEGER        NOT NULL,
+    total_price NUMERIC(12, 2) NOT NULL,
+    create_time TIMESTAMP      NOT NULL,
+    claim_id    VARCHAR(36),
+    claimed_at  TIMESTAMP
+);
+
+-- 发件箱取出标记（已有库增量添加）
+ALTER TABLE "order_outbox" ADD COLUMN IF NOT EXISTS claim_id VARCHAR(36);
+ALTER TABLE "order_outbox" ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMP;
+
+-- 销售统计检查点（SalesAnalytics 定期覆盖写入，启动时恢复）：scope 为 total / product / minute / hour，
+-- bucket 为商品 ID 或分钟 / 小时序号（Unix 时间 / 桶宽度），buyers 为去重买家的 HyperLogLog 寄存器
+CREATE TABLE IF NOT EXISTS "sales_summary" (
+    scope       VARCHAR(8)     NOT NULL,
+    bucket      BIGINT         NOT NULL,
+    units       BIGINT         NOT NULL DEFAULT 0,
+    revenue     NUMERIC(16, 2) NOT NULL DEFAULT 0,
+    buyers      BYTEA,
+    update_time TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (scope, bucket)
+);
+
+-- 下单幂等键（请求头 Idempotency-Key）：与订单在同一事务中写入，(user_id, idem_key) 冲突即为同一用户重复提交，
+-- 跨重启、跨节点都能识别；不同用户使用相同的键互不影响。order_ids 为该请求创建的订单 ID（逗号分隔），超过保留期后定时清理
+CREATE TABLE IF NOT EXISTS "order_idempotency_key" (
+    idem_key    VARCHAR(128) NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    order_ids   TEXT,
+    create_time TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 已有库增量迁移：幂等键由全局唯一改为按用户唯一（去掉旧的 idem_key 主键）
+ALTER TABLE "order_idempotency_key" DROP CONSTRAINT IF EXISTS order_idempotency_key_pkey;
+ALTER TABLE "order_idempotency_key" ALTER COLUMN user_id SET NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_order_idempotency_key_user
+    ON "order_idempotency_key" (user_id, idem_key);
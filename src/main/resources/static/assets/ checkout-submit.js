@@ -73,6 +73,9 @@
         return json; // 期望 { paymentNo, paymentUrl }
     }
 
+    // 本次结算尝试的幂等键：网络失败后再次点击沿用同一个，避免重复下单；收到业务结果后重新生成
+    let checkoutIdempotencyKey = null;
+
     async function handleCheckoutClick(e) {
         e.preventDefault();
         const btn = document.getElementById('btn-pay');
@@ -105,7 +108,9 @@
             const toCheckout = items.map(it => ({ productId: it.productId, qty: it.qty }));
 
             // 调用新版 app.js 中的 checkoutItems，它现在只会发一次网络请求
-            const orderResult = await api.checkoutItems(userId, toCheckout);
+            if (!checkoutIdempotencyKey) checkoutIdempotencyKey = api.newIdempotencyKey();
+            const orderResult = await api.checkoutItems(userId, toCheckout, checkoutIdempotencyKey);
+            if (!orderResult || !orderResult.networkError) checkoutIdempotencyKey = null;
 
             // 检查结果：因为是原子事务，如果 success 为空，说明整个事务回滚了
             if (!orderResult || !orderResult.success || orderResult.success.length === 0) {
@@ -12,11 +12,19 @@ class ApiClient {
     // ---------------------
     async request(path, opts = {}) {
         const url = this.base + path;
+        // 带幂等键的请求可以安全重试（网络错误 / 503），服务端保证同一个键只下单一次
+        const retries = opts.headers && opts.headers['Idempotency-Key'] ? 2 : 0;
         let res;
-        try {
-            res = await fetch(url, opts);
-        } catch (networkErr) {
-            throw new Error('网络错误或无法连接到后端: ' + networkErr.message);
+        for (let attempt = 0; ; attempt++) {
+            try {
+                res = await fetch(url, opts);
+                if (res.status !== 503 || attempt >= retries) break;
+            } catch (networkErr) {
+                if (attempt >= retries) {
+                    throw new Error('网络错误或无法连接到后端: ' + networkErr.message);
+                }
+            }
+            await new Promise(resolve => setTimeout(resolve, 300 * (attempt + 1)));
         }
 
         const text = await res.text().catch(() => '');
@@ -46,6 +54,12 @@ class ApiClient {
         return this.request('/product/all', { method: 'GET' });
     }
 
+    // 搜索商品（按名称 / 描述，相关度排序分页）
+    async searchProducts(q, page = 1, size = 20, inStock = true) {
+        const query = new URLSearchParams({ q, page, size, inStock }).toString();
+        return this.request('/product/search?' + query, { method: 'GET' });
+    }
+
     async getProductById(id) {
         return this.request('/product/' + encodeURIComponent(id), { method: 'GET' });
     }
@@ -58,16 +72,91 @@ class ApiClient {
         });
     }
 
-    async createOrder(orderPayload) {
-        return this.request('/order/add', {
+    // 购物车报价：一次返回每个商品的当前单价、行金额、库存、可购买状态和合计
+    // items: [{ productId, qty }]
+    async quoteCart(items) {
+        return this.request('/product/quote', {
             method: 'POST',
             headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ items: items.map(it => ({ productId: it.productId, num: it.qty })) })
+        });
+    }
+
+    // 批量导入商品：请求体直接是文件内容（CSV 或 NDJSON），服务端边读边写入数据库
+    async importProducts(file, format) {
+        return this.request('/product/import?format=' + encodeURIComponent(format), {
+            method: 'POST',
+            headers: { 'Content-Type': format === 'ndjson' ? 'application/x-ndjson' : 'text/csv' },
+            body: file
+        });
+    }
+
+    // 库存分桶管理：action 为 list / split / rebalance / merge
+    async stockBuckets(productId, action, buckets) {
+        const path = '/product/' + encodeURIComponent(productId) + '/stock-buckets';
+        switch (action) {
+            case 'split':
+                return this.request(path + '?buckets=' + encodeURIComponent(buckets), { method: 'POST' });
+            case 'rebalance':
+                return this.request(path + '/rebalance', { method: 'POST' });
+            case 'merge':
+                return this.request(path, { method: 'DELETE' });
+            default:
+                return this.request(path, { method: 'GET' });
+        }
+    }
+
+    // 销售统计：overview / top-products / series，params 为查询参数对象
+    async analytics(report, params = {}) {
+        const query = new URLSearchParams(params).toString();
+        return this.request('/admin/analytics/' + report + (query ? '?' + query : ''), { method: 'GET' });
+    }
+
+    // 生成幂等键：每次下单尝试一个，重试 / 重复提交时复用同一个
+    newIdempotencyKey() {
+        if (window.crypto && typeof window.crypto.randomUUID === 'function') {
+            return window.crypto.randomUUID();
+        }
+        return Date.now().toString(36) + '-' + Math.random().toString(36).slice(2) + Math.random().toString(36).slice(2);
+    }
+
+    async createOrder(orderPayload, idempotencyKey = this.newIdempotencyKey()) {
+        const res = await this.request('/order/add', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json', 'Idempotency-Key': idempotencyKey },
             body: JSON.stringify(orderPayload)
         });
+        // 秒杀商品返回 202 + 排队凭证，轮询到订单落库后再按普通下单结果返回
+        if (res && res.code === 202) {
+            return this.waitFlashSaleTicket(res.data);
+        }
+        return res;
+    }
+
+    // 轮询秒杀排队凭证，返回与普通下单一致的 {code, msg, data: orderId}
+    async waitFlashSaleTicket(ticketId, timeoutMs = 30000) {
+        const deadline = Date.now() + timeoutMs;
+        while (Date.now() < deadline) {
+            await new Promise(resolve => setTimeout(resolve, 500));
+            const r = await this.request('/flash-sale/ticket/' + encodeURIComponent(ticketId), { method: 'GET' });
+            const ticket = r && r.data;
+            if (ticket && ticket.status === 'SUCCESS') {
+                return { code: 200, msg: '订单创建成功', data: ticket.orderId };
+            }
+            if (ticket && ticket.status === 'FAILED') {
+                return { code: 400, msg: ticket.reason || '下单失败' };
+            }
+        }
+        return { code: 202, msg: '订单仍在排队处理中，请稍后在订单列表中查看', data: ticketId };
     }
 
-    async getOrdersByUserId(userId) {
-        return this.request('/order/user/' + encodeURIComponent(userId), { method: 'GET' });
+    // 分页查询用户订单：beforeId 传上一页返回的 nextCursor（首页不传）
+    async getOrdersByUserId(userId, beforeId, limit) {
+        const params = new URLSearchParams();
+        if (beforeId) params.set('beforeId', beforeId);
+        if (limit) params.set('limit', limit);
+        const qs = params.toString();
+        return this.request('/order/user/' + encodeURIComponent(userId) + (qs ? '?' + qs : ''), { method: 'GET' });
     }
 
     // ---------------------
@@ -143,6 +232,25 @@ class ApiClient {
         }
     }
 
+    // 用报价结果更新本地购物车中的名称、单价和库存（不触发 cart:updated，避免页面重复渲染 / 重复报价）
+    applyQuote(quote) {
+        if (!quote || !quote.items) return;
+        const lines = new Map(quote.items.map(line => [String(line.productId), line]));
+        const cart = this._readCart();
+        cart.forEach(ci => {
+            const line = lines.get(String(ci.productId));
+            if (!line || line.availability === 'NOT_FOUND') return;
+            ci.productName = line.productName;
+            ci.price = line.unitPrice;
+            ci.stock = line.stock ?? 0;
+        });
+        try {
+            localStorage.setItem(this.cartKey, JSON.stringify(cart));
+        } catch (e) {
+            console.error('写入购物车失败', e);
+        }
+    }
+
     cartTotalCount() {
         const cart = this._readCart();
         return cart.reduce((s, it) => s + (it.qty || 0), 0);
@@ -157,9 +265,10 @@ class ApiClient {
     // 批量下单逻辑（原子操作，调用后端 /order/add/batch）
     // items: [{ productId, qty }]
     // userId: number
-    // 返回：{ success: [], failed: [] }
+    // idempotencyKey: 本次结算尝试的幂等键（重复点击 / 网络重试时传同一个，不传则每次新生成）
+    // 返回：{ success: [], failed: [], networkError?: true }
     // ---------------------
-    async checkoutItems(userId, items) {
+    async checkoutItems(userId, items, idempotencyKey = this.newIdempotencyKey()) {
         if (!items || items.length === 0) {
             return { success: [], failed: [] };
         }
@@ -178,7 +287,7 @@ class ApiClient {
             // 调用后端新增的批量接口
             const res = await this.request('/order/add/batch', {
                 method: 'POST',
-                headers: { 'Content-Type': 'application/json' },
+                headers: { 'Content-Type': 'application/json', 'Idempotency-Key': idempotencyKey },
                 body: JSON.stringify(payload)
             });
 
@@ -201,12 +310,12 @@ class ApiClient {
             return { success: [], failed: failedList };
 
         } catch (e) {
-            // 网络或其他异常，标记所有商品失败
+            // 网络或其他异常，标记所有商品失败（未收到业务响应时，调用方可用同一个幂等键重试）
             const failedList = items.map(it => ({
                 productId: it.productId,
                 reason: e.message || '网络异常'
             }));
-            return { success: [], failed: failedList };
+            return { success: [], failed: failedList, networkError: !e.status || e.status >= 500 };
         }
     }
 }
@@ -224,6 +333,14 @@ function escapeHtml(s) {
         .replaceAll("'","&#39;");
 }
 
+// 报价行的状态说明（库存不足 / 商品不存在），可购买时为空
+function quoteLineNote(line) {
+    if (!line) return '';
+    if (line.availability === 'NOT_FOUND') return '商品不存在或已下架';
+    if (line.availability === 'INSUFFICIENT_STOCK') return `库存不足，剩余 ${line.stock ?? 0}`;
+    return '';
+}
+
 // 更新页面所有 .cart-badge 显示数量
 function updateCartBadges(apiClient) {
     const count = apiClient.cartTotalCount();
@@ -0,0 +1,118 @@
+package com.shop.demo.admission;
+
+import com.shop.demo.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderAdmissionTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void tokenBucketAllowsBurstThenReportsWait() {
+        TokenBucket bucket = new TokenBucket(2, 3, 0);
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(0)).isZero();
+        }
+        // 下一个令牌在 0.5s 后
+        assertThat(bucket.tryAcquire(0)).isEqualTo(SECOND / 2);
+        assertThat(bucket.tryAcquire(SECOND / 2)).isZero();
+        // 空闲足够久后回满，但不超过 burst
+        long later = 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(later)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    @Test
+    void slowRequestsShrinkLimitAndFastOnesGrowIt() throws Exception {
+        AdmissionProperties properties = properties(10, 4);
+        AdaptiveLimit limit = new AdaptiveLimit(properties);
+        long now = System.nanoTime();
+        long slow = properties.getLatencyThreshold().toNanos() * 2;
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.acquire(0)).isEqualTo(AdaptiveLimit.Outcome.ACQUIRED);
+        }
+        // 同一批慢请求只减一次
+        for (int i = 0; i < 10; i++) {
+            limit.release(slow, now);
+        }
+        assertThat(limit.limit()).isEqualTo(9);
+        // 下一个周期再慢一次继续减
+        limit.acquire(0);
+        limit.release(slow, now + slow);
+        assertThat(limit.limit()).isEqualTo(8);
+
+        // 快速且并发打满时逐步增加
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < limit.limit(); i++) {
+                limit.acquire(0);
+            }
+            int inflight = limit.inflight();
+            for (int i = 0; i < inflight; i++) {
+                limit.release(0, now);
+            }
+        }
+        assertThat(limit.limit()).isGreaterThan(8);
+        assertThat(limit.inflight()).isZero();
+    }
+
+    @Test
+    void overloadFailsFastWithRetryAfter() {
+        AdmissionProperties properties = properties(2, 0);
+        properties.setUserRate(0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderAdmission admission = new OrderAdmission(properties, registry);
+
+        OrderAdmission.Permit first = admission.admit(1L);
+        OrderAdmission.Permit second = admission.admit(2L);
+        assertThatThrownBy(() -> admission.admit(3L))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(503);
+                    assertThat(e.getRetryAfterSeconds()).isPositive();
+                });
+        assertThat(registry.get("shop.admission.rejected").tag("reason", "queue_full").counter().count()).isEqualTo(1);
+        assertThat(registry.get("shop.admission.inflight").gauge().value()).isEqualTo(2);
+
+        first.close();
+        second.close();
+        admission.admit(3L).close();
+        assertThat(registry.get("shop.admission.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void userRateLimitReturns429() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setUserRate(1);
+        properties.setUserBurst(2);
+        OrderAdmission admission = new OrderAdmission(properties, new SimpleMeterRegistry());
+
+        admission.admit(1L).close();
+        admission.admit(1L).close();
+        assertThatThrownBy(() -> admission.admit(1L))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(429);
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(1);
+                });
+        // 其他用户不受影响
+        admission.admit(2L).close();
+    }
+
+    private static AdmissionProperties properties(int initialLimit, int queueSize) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(100);
+        properties.setLatencyThreshold(Duration.ofMillis(100));
+        properties.setQueueSize(queueSize);
+        return properties;
+    }
+}
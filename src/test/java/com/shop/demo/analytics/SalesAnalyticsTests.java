@@ -0,0 +1,98 @@
+package com.shop.demo.analytics;
+
+import com.shop.demo.cache.ProductCache;
+import com.shop.demo.dto.ProductSales;
+import com.shop.demo.dto.SalesPoint;
+import com.shop.demo.entity.SalesSummary;
+import com.shop.demo.event.OrderCreatedEvent;
+import com.shop.demo.mapper.SalesSummaryMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SalesAnalyticsTests {
+
+    @Test
+    void hyperLogLogEstimatesDistinctBuyers() {
+        HyperLogLog hll = new HyperLogLog();
+        for (long userId = 1; userId <= 10_000; userId++) {
+            hll.add(userId);
+            hll.add(userId);
+        }
+        assertThat(hll.estimate()).isBetween(9_000L, 11_000L);
+        assertThat(HyperLogLog.fromBytes(hll.toBytes()).estimate()).isEqualTo(hll.estimate());
+    }
+
+    @Test
+    void ranksProductsAndBuildsTimeSeries() {
+        SalesAnalytics analytics = new SalesAnalytics(mock(SalesSummaryMapper.class), mock(ProductCache.class), new AnalyticsProperties());
+        LocalDateTime now = LocalDateTime.now();
+        analytics.onOrderCreated(order(1L, 10L, 5, "5.00", now));
+        analytics.onOrderCreated(order(2L, 11L, 1, "99.00", now));
+        analytics.onOrderCreated(order(2L, 12L, 1, "99.00", now));
+        // 超出 24 小时的分钟桶，只计入累计值
+        analytics.onOrderCreated(order(3L, 10L, 1, "1.00", now.minusDays(2)));
+
+        assertThat(analytics.topProducts(2, SalesAnalytics.Metric.UNITS)).extracting(ProductSales::productId).containsExactly(1L, 2L);
+        assertThat(analytics.topProducts(10, SalesAnalytics.Metric.REVENUE)).extracting(ProductSales::productId).containsExactly(2L, 1L, 3L);
+        ProductSales overview = analytics.overview();
+        assertThat(overview.units()).isEqualTo(8);
+        assertThat(overview.revenue()).isEqualByComparingTo("204.00");
+        assertThat(overview.buyers()).isEqualTo(3);
+
+        List<SalesPoint> series = analytics.series(SalesAnalytics.Granularity.MINUTE, 60);
+        assertThat(series).hasSize(60);
+        assertThat(series.stream().mapToLong(SalesPoint::units).sum()).isEqualTo(7);
+    }
+
+    @Test
+    void ignoresRedeliveredOrders() {
+        SalesAnalytics analytics = new SalesAnalytics(mock(SalesSummaryMapper.class), mock(ProductCache.class), new AnalyticsProperties());
+        OrderCreatedEvent event = order(1L, 10L, 2, "20.00", LocalDateTime.now());
+        // 取出超时后整批重新投递
+        analytics.onOrderCreated(event);
+        analytics.onOrderCreated(event);
+
+        ProductSales overview = analytics.overview();
+        assertThat(overview.units()).isEqualTo(2);
+        assertThat(overview.revenue()).isEqualByComparingTo("20.00");
+        assertThat(analytics.series(SalesAnalytics.Granularity.MINUTE, 60).stream().mapToLong(SalesPoint::units).sum()).isEqualTo(2);
+    }
+
+    @Test
+    void checkpointRestoresIntoNewInstance() {
+        List<SalesSummary> stored = new ArrayList<>();
+        SalesSummaryMapper mapper = mock(SalesSummaryMapper.class);
+        doAnswer(invocation -> {
+            stored.addAll(invocation.getArgument(0));
+            return stored.size();
+        }).when(mapper).upsert(anyList());
+        when(mapper.selectForRestore(anyLong(), anyLong())).thenReturn(List.of()).thenAnswer(invocation -> stored);
+
+        SalesAnalytics first = new SalesAnalytics(mapper, mock(ProductCache.class), new AnalyticsProperties());
+        first.onOrderCreated(order(1L, 10L, 2, "20.00", LocalDateTime.now()));
+        first.checkpoint();
+        assertThat(stored).extracting(SalesSummary::getScope).containsExactlyInAnyOrder("total", "product", "minute", "hour");
+
+        SalesAnalytics second = new SalesAnalytics(mapper, mock(ProductCache.class), new AnalyticsProperties());
+        // 恢复前收到的事件与恢复的值合并
+        second.onOrderCreated(order(1L, 11L, 1, "10.00", LocalDateTime.now()));
+        second.restoreOnStartup();
+        assertThat(second.overview().units()).isEqualTo(3);
+        assertThat(second.topProducts(1, SalesAnalytics.Metric.BUYERS).get(0).buyers()).isEqualTo(2);
+    }
+
+    private static OrderCreatedEvent order(Long productId, Long userId, int num, String totalPrice, LocalDateTime time) {
+        return new OrderCreatedEvent(System.nanoTime(), userId, productId, num, new BigDecimal(totalPrice), time);
+    }
+}
@@ -0,0 +1,48 @@
+package com.shop.demo.cache;
+
+import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
+import com.shop.demo.mapper.ProductMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductCacheTests {
+
+    @Test
+    void changesCommittedDuringRebuildReachTheNewSnapshot() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        ProductCacheProperties properties = new ProductCacheProperties();
+        properties.setCatalogRefresh(Duration.ZERO);
+        ProductCache cache = new ProductCache(productMapper, properties, new SimpleMeterRegistry());
+
+        when(productMapper.selectAll()).thenReturn(List.of(product(1L, 10, 0), product(2L, 5, 0)));
+        assertThat(cache.getAll()).extracting(Product::getStock).containsExactly(10, 5);
+        String before = cache.catalogVersion().etag();
+
+        // 重建时 selectAll 读到行之后、新快照替换之前，商品 1 的扣库存事务提交
+        when(productMapper.selectAll()).thenAnswer(invocation -> {
+            cache.onProductChanged(ProductChangedEvent.stockChanged(1L, -2));
+            return List.of(product(1L, 10, 0), product(2L, 5, 0));
+        }).thenReturn(List.of(product(1L, 8, 1), product(2L, 5, 0)));
+        when(productMapper.selectByIds(List.of(1L))).thenReturn(List.of(product(1L, 8, 1)));
+
+        assertThat(cache.getAll()).extracting(Product::getStock).containsExactly(8, 5);
+        // 版本号按回查到的行计算，与直接读到新数据时一致（商品 1：1 + 1，商品 2：0 + 1）
+        assertThat(cache.catalogVersion().etag()).isNotEqualTo(before).isEqualTo("W/\"c3\"");
+    }
+
+    private static Product product(Long id, int stock, long version) {
+        Product product = new Product();
+        product.setId(id);
+        product.setStock(stock);
+        product.setVersion(version);
+        return product;
+    }
+}
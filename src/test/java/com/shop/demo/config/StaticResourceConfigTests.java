@@ -0,0 +1,65 @@
+package com.shop.demo.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 依赖 Maven 构建期资源流水线生成的 static/asset-manifest.properties
+ */
+@SpringBootTest
+class StaticResourceConfigTests {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+    private Properties manifest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+        manifest = PropertiesLoaderUtils.loadProperties(new ClassPathResource("static/asset-manifest.properties"));
+    }
+
+    @Test
+    void fingerprintedAssetsArePrecompressedAndImmutable() throws Exception {
+        String script = manifest.stringPropertyNames().stream()
+                .filter(path -> path.matches("assets/app\\.[0-9a-f]{10}\\.js"))
+                .findFirst().orElseThrow();
+        String etag = "\"" + manifest.getProperty(script + ".gz") + "\"";
+
+        mockMvc.perform(get("/" + script).header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+
+        mockMvc.perform(get("/" + script).header("Accept-Encoding", "gzip").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void htmlReferencesFingerprintedAssetsAndRevalidates() throws Exception {
+        String html = mockMvc.perform(get("/index.html"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(header().string("ETag", "\"" + manifest.getProperty("index.html") + "\""))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(html).containsPattern("assets/app\\.[0-9a-f]{10}\\.js").doesNotContain("\"assets/app.js\"");
+    }
+}
@@ -0,0 +1,51 @@
+package com.shop.demo.entity;
+
+import com.shop.demo.dto.FlashSaleTicket;
+import com.shop.demo.dto.OrderDetail;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 订单 ID 超出 JS Number 安全整数范围（2^53），JSON 中必须是字符串（与 Spring MVC 相同的 Jackson 3 JsonMapper）
+ */
+class OrderJsonTests {
+
+    private static final long ORDER_ID = 123_456_789_012_345_678L;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @Test
+    void orderIdsAreWrittenAsStrings() {
+        Order order = new Order();
+        order.setId(ORDER_ID);
+        order.setUserId(7L);
+        order.setProductId(42L);
+        order.setNum(2);
+        order.setTotalPrice(new BigDecimal("39.80"));
+        order.setCreateTime(LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+        assertThat(jsonMapper.writeValueAsString(order)).contains(
+                "\"id\":\"123456789012345678\"",
+                "\"userId\":7",
+                "\"productId\":42",
+                "\"createTime\":\"2026-01-02 03:04:05\"");
+
+        OrderDetail detail = new OrderDetail();
+        detail.setId(ORDER_ID);
+        detail.setProductName("商品");
+        assertThat(jsonMapper.writeValueAsString(detail)).contains("\"id\":\"123456789012345678\"", "\"productName\":\"商品\"");
+
+        FlashSaleTicket ticket = new FlashSaleTicket();
+        ticket.succeed(ORDER_ID);
+        assertThat(jsonMapper.writeValueAsString(ticket)).contains("\"orderId\":\"123456789012345678\"", "\"status\":\"SUCCESS\"");
+
+        order.setId(null);
+        ticket.setOrderId(null);
+        assertThat(jsonMapper.writeValueAsString(order)).contains("\"id\":null");
+        assertThat(jsonMapper.writeValueAsString(ticket)).contains("\"orderId\":null");
+    }
+}
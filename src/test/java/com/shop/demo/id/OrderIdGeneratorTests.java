@@ -0,0 +1,78 @@
+package com.shop.demo.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderIdGeneratorTests {
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        OrderIdGenerator generator = new OrderIdGenerator(new OrderIdProperties());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                long previous = 0;
+                for (int i = 0; i < 50_000; i++) {
+                    long id = generator.nextId();
+                    // 同一线程内严格递增
+                    assertThat(id).isGreaterThan(previous);
+                    previous = id;
+                    ids.add(id);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(ids).hasSize(8 * 50_000);
+    }
+
+    @Test
+    void encodesTimestampAndNodeAndWaitsForNextMillisecondWhenSequenceRunsOut() {
+        OrderIdProperties properties = new OrderIdProperties();
+        properties.setNodeId(5);
+        long now = properties.getEpoch().toEpochMilli() + 1_000;
+        // 前 4096 次读时钟停在同一毫秒，之后走到下一毫秒
+        AtomicLong reads = new AtomicLong();
+        OrderIdGenerator generator = new OrderIdGenerator(properties,
+                () -> reads.incrementAndGet() <= OrderIdGenerator.SEQUENCE_MASK + 1 ? now : now + 1);
+
+        long first = generator.nextId();
+        assertThat(generator.timestampOf(first)).isEqualTo(now);
+        assertThat((first >>> OrderIdGenerator.SEQUENCE_BITS) & OrderIdGenerator.MAX_NODE_ID).isEqualTo(5);
+
+        long last = first;
+        for (int i = 0; i < OrderIdGenerator.SEQUENCE_MASK + 1; i++) {
+            last = generator.nextId();
+        }
+        assertThat(generator.timestampOf(last)).isEqualTo(now + 1);
+        assertThat(last & OrderIdGenerator.SEQUENCE_MASK).isZero();
+    }
+
+    @Test
+    void toleratesSmallClockRollbackAndRejectsLargeOne() {
+        OrderIdProperties properties = new OrderIdProperties();
+        properties.setMaxClockBackward(Duration.ofMillis(100));
+        AtomicLong clock = new AtomicLong(properties.getEpoch().toEpochMilli() + 10_000);
+        OrderIdGenerator generator = new OrderIdGenerator(properties, clock::get);
+
+        long before = generator.nextId();
+        clock.addAndGet(-50);
+        long during = generator.nextId();
+        assertThat(during).isGreaterThan(before);
+        assertThat(generator.timestampOf(during)).isEqualTo(generator.timestampOf(before));
+
+        clock.addAndGet(-100);
+        assertThatThrownBy(generator::nextId).isInstanceOf(IllegalStateException.class);
+    }
+}
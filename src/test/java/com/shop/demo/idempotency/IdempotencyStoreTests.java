@@ -0,0 +1,80 @@
+package com.shop.demo.idempotency;
+
+import com.shop.demo.mapper.IdempotencyKeyMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class IdempotencyStoreTests {
+
+    private final IdempotencyStore store = new IdempotencyStore(new IdempotencyProperties(), mock(IdempotencyKeyMapper.class), new SimpleMeterRegistry());
+
+    @Test
+    void concurrentDuplicatesWaitForFirstResult() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<ResponseEntity<Map<String, Object>>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> store.execute("add:k1", "1:1:1", () -> {
+                executions.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ResponseEntity.ok(Map.<String, Object>of("code", 200, "data", 42L));
+            })));
+        }
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<ResponseEntity<Map<String, Object>>> result : results) {
+            assertThat(result.get().getBody()).containsEntry("data", 42L);
+        }
+        pool.shutdown();
+
+        assertThat(executions.get()).isEqualTo(1);
+        // 之后的重复请求直接返回缓存结果
+        store.execute("add:k1", "1:1:1", () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(Map.of());
+        });
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorsAreNotCachedAndReusedKeysAreRejected() {
+        AtomicInteger executions = new AtomicInteger();
+        ResponseEntity<Map<String, Object>> first = store.execute("add:k2", "1:1:1", () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("code", 503));
+        });
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        // 5xx 不缓存：同一个键重试会重新执行
+        store.execute("add:k2", "1:1:1", () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(Map.of("code", 200));
+        });
+        assertThat(executions.get()).isEqualTo(2);
+
+        // 同一个键用于不同的请求内容
+        ResponseEntity<Map<String, Object>> reused = store.execute("add:k2", "1:2:1", () -> {
+            throw new AssertionError("不应再次执行");
+        });
+        assertThat(reused.getStatusCode().value()).isEqualTo(422);
+    }
+}
@@ -0,0 +1,30 @@
+package com.shop.demo.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderMetricsTests {
+
+    @Test
+    void productTagCardinalityIsBounded() {
+        OrderMetricsProperties properties = new OrderMetricsProperties();
+        properties.setMaxProductTags(2);
+        properties.setHotProducts(List.of(99L));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderMetrics metrics = new OrderMetrics(registry, properties);
+
+        for (long productId = 1; productId <= 10; productId++) {
+            metrics.failure(OrderMetrics.Endpoint.SINGLE, OrderMetrics.Failure.INSUFFICIENT_STOCK, productId);
+        }
+        metrics.failure(OrderMetrics.Endpoint.SINGLE, OrderMetrics.Failure.INSUFFICIENT_STOCK, 99L);
+
+        // 商品 1、2 占用名额，3~10 归为 other，热门商品 99 始终单独统计
+        assertThat(registry.find("shop.order.failures").counters()).hasSize(4);
+        assertThat(registry.get("shop.order.failures").tag("product", "other").counter().count()).isEqualTo(8);
+        assertThat(registry.get("shop.order.failures").tag("product", "99").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.shop.demo.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlMetricsInterceptorTests {
+
+    private final Configuration configuration = new Configuration();
+
+    @Test
+    void recordsDurationAndRowsPerStatement() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlMetricsInterceptor interceptor = new SqlMetricsInterceptor(registry, new SqlMetricsProperties());
+        Executor executor = (Executor) Plugin.wrap(stubExecutor(), interceptor);
+
+        MappedStatement select = statement("ProductMapper.selectAll", SqlCommandType.SELECT);
+        MappedStatement update = statement("ProductMapper.updateStock", SqlCommandType.UPDATE);
+        executor.query(select, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        executor.query(select, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        executor.update(update, null);
+        // 流式查询（传入 ResultHandler）只计耗时不计行数
+        executor.query(select, null, RowBounds.DEFAULT, context -> {
+        });
+
+        assertThat(registry.get("shop.sql.duration").tag("statement", "ProductMapper.selectAll").tag("type", "select")
+                .timer().count()).isEqualTo(3);
+        assertThat(registry.get("shop.sql.rows").tag("statement", "ProductMapper.selectAll").summary().totalAmount())
+                .isEqualTo(6);
+        assertThat(registry.get("shop.sql.rows").tag("statement", "ProductMapper.updateStock").tag("type", "update")
+                .summary().totalAmount()).isEqualTo(1);
+    }
+
+    private MappedStatement statement(String id, SqlCommandType type) {
+        return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "SELECT 1"), type).build();
+    }
+
+    /**
+     * 查询返回 3 行，更新影响 1 行
+     */
+    private static Executor stubExecutor() {
+        return (Executor) Proxy.newProxyInstance(Executor.class.getClassLoader(), new Class<?>[]{Executor.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "query" -> List.of(1, 2, 3);
+                    case "update" -> 1;
+                    default -> null;
+                });
+    }
+}
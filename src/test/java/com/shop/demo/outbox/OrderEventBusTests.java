@@ -0,0 +1,123 @@
+package com.shop.demo.outbox;
+
+import com.shop.demo.event.OrderCreatedEvent;
+import com.shop.demo.mapper.OrderOutboxMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderEventBusTests {
+
+    @Test
+    void failingListenerDoesNotStopOthers() throws Exception {
+        List<Long> received = new CopyOnWriteArrayList<>();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("failing", (OrderEventListener) event -> {
+            throw new IllegalStateException("boom");
+        });
+        beans.addBean("recording", (OrderEventListener) event -> received.add(event.orderId()));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderEventBus bus = new OrderEventBus(beans.getBeanProvider(OrderEventListener.class), new OrderOutboxProperties(), registry);
+        bus.startDispatchers();
+        try {
+            assertThat(bus.publish(List.of(event(1L), event(2L), event(3L)), null)).isEqualTo(3);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (registry.get("shop.order.events.dispatched").counter().count() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            bus.stopDispatchers();
+        }
+        assertThat(received).containsExactly(1L, 2L, 3L);
+        assertThat(registry.get("shop.order.events.failures").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void relayClaimsNoMoreThanBusCanHold() {
+        OrderOutboxProperties properties = new OrderOutboxProperties();
+        properties.setQueueCapacity(2);
+        // 不启动分发线程，队列只进不出
+        OrderEventBus bus = new OrderEventBus(new StaticListableBeanFactory().getBeanProvider(OrderEventListener.class),
+                properties, new SimpleMeterRegistry());
+        OrderOutboxMapper mapper = mock(OrderOutboxMapper.class);
+        when(mapper.claim(anyString(), anyInt(), anyLong())).thenReturn(List.of(event(1L), event(2L)));
+        OrderOutboxRelay relay = new OrderOutboxRelay(mapper, bus, properties, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        assertThat(relay.relayOnce()).isEqualTo(2);
+        verify(mapper).claim(anyString(), eq(2), anyLong());
+        assertThat(bus.remainingCapacity()).isZero();
+        // 队列满：不再取数，事件留在发件箱
+        assertThat(relay.relayOnce()).isZero();
+        // 事件还没分发，不能从发件箱删除
+        verify(mapper, never()).deleteClaimed(anyString());
+    }
+
+    @Test
+    void outboxRowsAreDeletedOnlyAfterTheWholeBatchIsDispatched() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> received = new CopyOnWriteArrayList<>();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("slow", (OrderEventListener) event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event.orderId());
+        });
+        OrderOutboxProperties properties = new OrderOutboxProperties();
+        OrderEventBus bus = new OrderEventBus(beans.getBeanProvider(OrderEventListener.class), properties, new SimpleMeterRegistry());
+        OrderOutboxMapper mapper = mock(OrderOutboxMapper.class);
+        when(mapper.claim(anyString(), anyInt(), anyLong())).thenReturn(List.of(event(1L), event(2L)), List.of());
+        OrderOutboxRelay relay = new OrderOutboxRelay(mapper, bus, properties, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        bus.startDispatchers();
+        try {
+            assertThat(relay.relayOnce()).isEqualTo(2);
+            Thread.sleep(100);
+            verify(mapper, never()).deleteClaimed(anyString());
+
+            release.countDown();
+            verify(mapper, timeout(5_000)).deleteClaimed(anyString());
+            assertThat(received).containsExactly(1L, 2L);
+        } finally {
+            bus.stopDispatchers();
+        }
+    }
+
+    @Test
+    void recentOrderIdsForgetsTheOldestIds() {
+        RecentOrderIds ids = new RecentOrderIds(2);
+        assertThat(ids.add(1L)).isTrue();
+        assertThat(ids.add(1L)).isFalse();
+        assertThat(ids.add(2L)).isTrue();
+        assertThat(ids.add(3L)).isTrue();
+
+        // 容量为 2：订单 1 已被淘汰，2、3 仍能去重
+        assertThat(ids.add(2L)).isFalse();
+        assertThat(ids.add(3L)).isFalse();
+        assertThat(ids.add(1L)).isTrue();
+    }
+
+    private static OrderCreatedEvent event(Long orderId) {
+        return new OrderCreatedEvent(orderId, 10L, 1L, 1, new BigDecimal("9.90"), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,101 @@
+package com.shop.demo.search;
+
+import com.shop.demo.dto.ProductSearchResult;
+import com.shop.demo.entity.Product;
+import com.shop.demo.event.ProductChangedEvent;
+import com.shop.demo.exception.ServiceBusyException;
+import com.shop.demo.mapper.ProductMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTests {
+
+    @Test
+    void tokenizesCjkIntoBigramsAndLatinIntoWords() {
+        assertThat(Tokenizer.forIndex("Apple 苹果手机 iPhone15，黑色")).containsExactly(
+                "apple", "苹果", "果手", "手机", "机", "iphone15", "黑色", "色");
+        assertThat(Tokenizer.forQuery("苹果手机")).containsExactly("苹果", "果手", "手机");
+        assertThat(Tokenizer.forQuery("ＡＢＣ 机")).containsExactly("abc", "机");
+        assertThat(SearchSegment.editDistanceIsOne("keyboard", "keybaord")).isFalse();
+        assertThat(SearchSegment.editDistanceIsOne("keyboard", "keyboad")).isTrue();
+        assertThat(SearchSegment.editDistanceIsOne("keyboard", "keyborad")).isFalse();
+        assertThat(SearchSegment.editDistanceIsOne("mouse", "mousse")).isTrue();
+    }
+
+    @Test
+    void matchesExactPrefixAndTyposAndRanksNameHitsFirst() {
+        ProductSearchIndex index = newIndex(mock(ProductMapper.class));
+        index.index(product(1L, "苹果手机 iPhone 15", "旗舰手机", 10));
+        index.index(product(2L, "手机壳", "适用于苹果手机", 10));
+        index.index(product(3L, "Mechanical Keyboard", "机械键盘", 10));
+        index.index(product(4L, "Wireless Mouse", "无线鼠标，适配 keyboard 套装", 10));
+
+        // 名称命中排在只有描述命中的前面
+        assertThat(ids(index.search("苹果手机", 1, 10, true))).containsExactly(1L, 2L);
+        // 单字：前缀匹配二元组 + 末字
+        assertThat(ids(index.search("壳", 1, 10, true))).containsExactly(2L);
+        assertThat(ids(index.search("键", 1, 10, true))).containsExactly(3L);
+        // 英文前缀、拼写错误（少一个字母 / 替换一个字母）
+        assertThat(ids(index.search("mech", 1, 10, true))).containsExactly(3L);
+        assertThat(ids(index.search("keybord", 1, 10, true))).containsExactly(3L, 4L);
+        assertThat(ids(index.search("wireless mouze", 1, 10, true))).containsExactly(4L);
+        // 所有词都要命中
+        assertThat(ids(index.search("iphone 键盘", 1, 10, true))).isEmpty();
+    }
+
+    @Test
+    void filtersOutOfStockAndPaginatesAfterIncrementalUpdates() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        ProductSearchIndex index = newIndex(productMapper);
+        for (long id = 1; id <= 25; id++) {
+            index.index(product(id, "充电器 " + id, null, 1));
+        }
+        // 下单扣完库存后不再出现在有货结果中
+        index.onProductChanged(ProductChangedEvent.stockChanged(3L, -1));
+        ProductSearchResult first = index.search("充电", 1, 10, true);
+        assertThat(first.getTotal()).isEqualTo(24);
+        assertThat(ids(first)).hasSize(10).doesNotContain(3L).startsWith(1L, 2L, 4L);
+        assertThat(ids(index.search("充电", 3, 10, true))).containsExactly(22L, 23L, 24L, 25L);
+        assertThat(index.search("充电", 1, 10, false).getTotal()).isEqualTo(25);
+
+        // 改名后按新名称可搜到，旧名称不再命中
+        when(productMapper.selectById(5L)).thenReturn(product(5L, "数据线", null, 1));
+        index.onProductChanged(ProductChangedEvent.saved(5L));
+        assertThat(ids(index.search("数据线", 1, 10, true))).containsExactly(5L);
+        assertThat(index.search("充电", 1, 10, true).getTotal()).isEqualTo(23);
+    }
+
+    @Test
+    void rejectsSearchBeforeIndexIsBuilt() {
+        ProductSearchProperties properties = new ProductSearchProperties();
+        properties.setEnabled(false);
+        ProductSearchIndex index = new ProductSearchIndex(mock(ProductMapper.class), properties, new SimpleMeterRegistry());
+        assertThatThrownBy(() -> index.search("手机", 1, 10, true)).isInstanceOf(ServiceBusyException.class);
+    }
+
+    private static ProductSearchIndex newIndex(ProductMapper productMapper) {
+        return new ProductSearchIndex(productMapper, new ProductSearchProperties(), new SimpleMeterRegistry());
+    }
+
+    private static List<Long> ids(ProductSearchResult result) {
+        return result.getItems().stream().map(ProductSearchResult.Hit::id).toList();
+    }
+
+    private static Product product(Long id, String name, String description, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setProductName(name);
+        product.setDescription(description);
+        product.setPrice(new BigDecimal("9.90"));
+        product.setStock(stock);
+        return product;
+    }
+}
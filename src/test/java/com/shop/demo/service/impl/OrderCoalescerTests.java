@@ -0,0 +1,89 @@
+package com.shop.demo.service.impl;
+
+import com.shop.demo.config.OrderCoalescingProperties;
+import com.shop.demo.entity.Order;
+import com.shop.demo.exception.InsufficientStockException;
+import com.shop.demo.service.OrderService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderCoalescerTests {
+
+    @Test
+    void coalescesSameProductAndCompletesEachCaller() throws Exception {
+        OrderService orderService = mock(OrderService.class);
+        AtomicInteger stock = new AtomicInteger(3);
+        AtomicLong ids = new AtomicLong(100);
+        // 模拟库存 3：按到达顺序分配，放不下的 id 保持 null
+        when(orderService.addOrderGroup(eq(1L), anyList(), anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(1);
+            for (Order order : orders) {
+                if (stock.get() >= order.getNum()) {
+                    stock.addAndGet(-order.getNum());
+                    order.setId(ids.incrementAndGet());
+                }
+            }
+            return orders;
+        });
+
+        OrderCoalescingProperties properties = new OrderCoalescingProperties();
+        properties.setWindow(Duration.ofMillis(200));
+        properties.setMaxBatchSize(5);
+        OrderCoalescer coalescer = new OrderCoalescer(orderService, properties);
+
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Order order = new Order();
+            order.setUserId(1L);
+            order.setProductId(1L);
+            order.setNum(1);
+            futures.add(coalescer.submit(order));
+        }
+
+        int succeeded = 0;
+        int rejected = 0;
+        for (CompletableFuture<Order> future : futures) {
+            try {
+                assertThat(future.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(InsufficientStockException.class);
+                rejected++;
+            }
+        }
+        assertThat(succeeded).isEqualTo(3);
+        assertThat(rejected).isEqualTo(2);
+        // 批次满 5 个立即提交，只执行一次事务
+        verify(orderService, times(1)).addOrderGroup(eq(1L), anyList(), anyList());
+    }
+
+    @Test
+    void failedGroupPropagatesErrorToEveryCaller() {
+        OrderService orderService = mock(OrderService.class);
+        when(orderService.addOrderGroup(eq(2L), anyList(), anyList())).thenThrow(new RuntimeException("系统繁忙，请重试"));
+        OrderCoalescer coalescer = new OrderCoalescer(orderService, new OrderCoalescingProperties());
+
+        Order order = new Order();
+        order.setUserId(1L);
+        order.setProductId(2L);
+        order.setNum(1);
+        assertThatThrownBy(() -> coalescer.placeOrder(order)).hasMessage("系统繁忙，请重试");
+    }
+}
@@ -0,0 +1,62 @@
+package com.shop.demo.service.impl;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductImportReaderTests {
+
+    @Test
+    void csvWithHeaderQuotedFieldsAndBadRows() throws Exception {
+        String csv = "\uFEFFdescription,productName,price\r\n"
+                + "\"多行\n描述, 含逗号\",苹果,3.50\r\n"
+                + "\r\n"
+                + ",香蕉,abc\r\n"
+                + "\"\"\"引号\"\"\",橙子,2";
+        List<ProductImportReader.Row> rows = readAll(csv, false);
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).line()).isEqualTo(2);
+        assertThat(rows.get(0).product().getProductName()).isEqualTo("苹果");
+        assertThat(rows.get(0).product().getDescription()).isEqualTo("多行\n描述, 含逗号");
+        assertThat(rows.get(0).product().getPrice()).isEqualByComparingTo(new BigDecimal("3.50"));
+        assertThat(rows.get(0).product().getStock()).isNull();
+        // 多行记录之后的行号仍按物理行计算
+        assertThat(rows.get(1).line()).isEqualTo(5);
+        assertThat(rows.get(1).error()).contains("价格格式错误");
+        assertThat(rows.get(2).product().getDescription()).isEqualTo("\"引号\"");
+    }
+
+    @Test
+    void ndjsonAcceptsExportFormatAndReportsMalformedLines() throws Exception {
+        String ndjson = "{\"id\":1,\"productName\":\"苹果\",\"price\":3.5,\"stock\":10,\"createTime\":\"2025-01-01 00:00:00\"}\n"
+                + "not json\n"
+                + "{\"name\":\"香蕉\",\"price\":\"2.00\"}\n";
+        List<ProductImportReader.Row> rows = readAll(ndjson, true);
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).product().getStock()).isEqualTo(10);
+        assertThat(rows.get(1).error()).isEqualTo("JSON 格式错误");
+        assertThat(rows.get(2).line()).isEqualTo(3);
+        assertThat(rows.get(2).product().getProductName()).isEqualTo("香蕉");
+    }
+
+    private static List<ProductImportReader.Row> readAll(String content, boolean ndjson) throws Exception {
+        List<ProductImportReader.Row> rows = new ArrayList<>();
+        try (ProductImportReader reader = new ProductImportReader(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), ndjson, JsonMapper.builder().build())) {
+            ProductImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
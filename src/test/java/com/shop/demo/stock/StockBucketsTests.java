@@ -0,0 +1,116 @@
+package com.shop.demo.stock;
+
+import com.shop.demo.entity.Product;
+import com.shop.demo.entity.StockBucket;
+import com.shop.demo.mapper.StockBucketMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.MockedStatic;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockBucketsTests {
+
+    private final StockBucketMapper mapper = mock(StockBucketMapper.class);
+    private final TransactionStatus status = mock(TransactionStatus.class);
+    private final StockBuckets stockBuckets = new StockBuckets(mapper, null, new StockBucketProperties(), null, null, null);
+    private MockedStatic<TransactionAspectSupport> transaction;
+
+    @BeforeEach
+    void openTransaction() {
+        transaction = mockStatic(TransactionAspectSupport.class);
+        transaction.when(TransactionAspectSupport::currentTransactionStatus).thenReturn(status);
+        when(status.createSavepoint()).thenReturn("savepoint");
+        // 默认没有空闲的桶（未打桩的 Integer 返回值是 0 而不是 null）
+        when(mapper.takeFromFreeBucket(anyLong(), anyInt(), anyInt())).thenReturn(null);
+    }
+
+    @AfterEach
+    void closeTransaction() {
+        transaction.close();
+    }
+
+    @Test
+    void distributeSpreadsRemainderOverLowBuckets() {
+        List<StockBucket> buckets = StockBuckets.distribute(7L, 10, 4);
+
+        assertThat(buckets).extracting(StockBucket::getBucket).containsExactly(0, 1, 2, 3);
+        assertThat(buckets).extracting(StockBucket::getStock).containsExactly(3, 3, 2, 2);
+        assertThat(buckets).allSatisfy(bucket -> assertThat(bucket.getProductId()).isEqualTo(7L));
+    }
+
+    @Test
+    void takePrefersAFreeBucket() {
+        when(mapper.takeFromFreeBucket(eq(7L), eq(2), anyInt())).thenReturn(1);
+
+        assertThat(stockBuckets.take(product(), 2)).isEqualTo(StockBuckets.Take.TAKEN);
+        verify(mapper, never()).takeFromBucket(anyLong(), anyInt(), anyInt());
+        verify(mapper, never()).selectForUpdate(anyLong());
+    }
+
+    @Test
+    void takeWaitsForThePreferredBucketWhenNoneIsFree() {
+        when(mapper.takeFromBucket(eq(7L), anyInt(), eq(2))).thenReturn(1);
+
+        assertThat(stockBuckets.take(product(), 2)).isEqualTo(StockBuckets.Take.TAKEN);
+        verify(status).releaseSavepoint("savepoint");
+        verify(status, never()).rollbackToSavepoint("savepoint");
+        verify(mapper, never()).selectForUpdate(anyLong());
+    }
+
+    @Test
+    void takeFallsBackToAllBucketsAfterReleasingTheWaitedBucket() {
+        when(mapper.selectForUpdate(7L)).thenReturn(List.of(bucket(0, 1), bucket(1, 2), bucket(2, 5)));
+
+        assertThat(stockBuckets.take(product(), 4)).isEqualTo(StockBuckets.Take.TAKEN);
+
+        // 先回滚到保存点释放等待的桶，再按编号顺序锁全部桶，从编号小的桶凑齐
+        InOrder order = inOrder(mapper, status);
+        order.verify(mapper).takeFromFreeBucket(eq(7L), eq(4), anyInt());
+        order.verify(mapper).takeFromBucket(eq(7L), anyInt(), eq(4));
+        order.verify(status).rollbackToSavepoint("savepoint");
+        order.verify(mapper).selectForUpdate(7L);
+        order.verify(mapper).updateStocks(7L, List.of(bucket(0, 0), bucket(1, 0), bucket(2, 4)));
+    }
+
+    @Test
+    void takeReportsInsufficientOrMergedStock() {
+        when(mapper.selectForUpdate(7L)).thenReturn(List.of(bucket(0, 1), bucket(1, 2)));
+        assertThat(stockBuckets.take(product(), 4)).isEqualTo(StockBuckets.Take.INSUFFICIENT);
+
+        when(mapper.selectForUpdate(7L)).thenReturn(List.of());
+        assertThat(stockBuckets.take(product(), 4)).isEqualTo(StockBuckets.Take.NOT_BUCKETED);
+        verify(mapper, never()).updateStocks(anyLong(), anyList());
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(7L);
+        product.setStockBuckets(3);
+        return product;
+    }
+
+    private static StockBucket bucket(int index, int stock) {
+        StockBucket bucket = new StockBucket();
+        bucket.setProductId(7L);
+        bucket.setBucket(index);
+        bucket.setStock(stock);
+        return bucket;
+    }
+}
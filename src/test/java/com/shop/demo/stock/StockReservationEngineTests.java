@@ -0,0 +1,156 @@
+package com.shop.demo.stock;
+
+import com.shop.demo.entity.Product;
+import com.shop.demo.mapper.ProductMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockReservationEngineTests {
+
+    @Test
+    void neverOversellsUnderConcurrentReservations() throws Exception {
+        StockReservationEngine engine = new StockReservationEngine(mock(ProductMapper.class), new StockReservationProperties());
+        int stock = 10_000;
+        engine.load(1L, stock);
+        engine.load(2L, stock);
+
+        int threads = 32;
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    int num = 1 + random.nextInt(3);
+                    if (engine.tryReserve(1L, num)) {
+                        // 模拟部分事务回滚：归还库存
+                        if (random.nextInt(10) == 0) {
+                            engine.release(1L, num);
+                            released.addAndGet(num);
+                        }
+                        reserved.addAndGet(num);
+                    }
+                    engine.tryReserve(2L, 1);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(engine.available(1L)).isGreaterThanOrEqualTo(0);
+        assertThat(reserved.get() - released.get()).isEqualTo(stock - engine.available(1L));
+        assertThat(engine.available(2L)).isZero();
+    }
+
+    @Test
+    void flushWritesConfirmedDecrementsAndRetriesOnFailure() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        StockReservationEngine engine = new StockReservationEngine(productMapper, new StockReservationProperties());
+        engine.load(1L, 10);
+        engine.load(2L, 10);
+
+        assertThat(engine.reserve(1L, 3)).isTrue();
+        assertThat(engine.reserve(1L, 2)).isTrue();
+        assertThat(engine.reserve(2L, 4)).isTrue();
+        assertThat(engine.reserve(2L, 7)).isFalse();
+
+        when(productMapper.decrementStockBatchReturningIds(anyList())).thenThrow(new RuntimeException("db down"));
+        engine.flush();
+
+        // 回写失败后扣减量保留，下次回写时合并提交
+        List<StockDelta> pending = engine.drainPending();
+        assertThat(pending).containsExactlyInAnyOrder(new StockDelta(1L, 5), new StockDelta(2L, 4));
+        assertThat(engine.drainPending()).isEmpty();
+        assertThat(engine.available(1L)).isEqualTo(5);
+        assertThat(engine.available(2L)).isEqualTo(6);
+    }
+
+    @Test
+    void flushClampsRowsWhoseDatabaseStockIsTooLow() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        StockReservationEngine engine = new StockReservationEngine(productMapper, new StockReservationProperties());
+        engine.load(1L, 10);
+        engine.load(2L, 10);
+        assertThat(engine.reserve(1L, 3)).isTrue();
+        assertThat(engine.reserve(2L, 4)).isTrue();
+
+        // 商品 2 的数据库库存被外部改小：条件扣减没有匹配，改为扣到 0，不丢弃已售出的数量
+        when(productMapper.decrementStockBatchReturningIds(anyList())).thenReturn(List.of(1L));
+        when(productMapper.clampStockBatch(anyList())).thenThrow(new RuntimeException("db down"));
+        engine.flush();
+
+        // 扣到 0 失败时只放回未匹配的部分，商品 1 不会被重复扣减
+        assertThat(engine.drainPending()).containsExactly(new StockDelta(2L, 4));
+
+        ProductMapper recovered = mock(ProductMapper.class);
+        when(recovered.decrementStockBatchReturningIds(anyList())).thenReturn(List.of());
+        when(recovered.clampStockBatch(anyList())).thenReturn(1);
+        StockReservationEngine flushing = new StockReservationEngine(recovered, new StockReservationProperties());
+        flushing.confirm(2L, 4);
+        flushing.flush();
+        verify(recovered).clampStockBatch(List.of(new StockDelta(2L, 4)));
+        assertThat(flushing.drainPending()).isEmpty();
+    }
+
+    @Test
+    void rebuildFlushesConfirmedDecrementsBeforeReloading() {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        StockReservationEngine engine = new StockReservationEngine(productMapper, new StockReservationProperties());
+        engine.load(1L, 10);
+        assertThat(engine.reserve(1L, 3)).isTrue();
+
+        // 回写失败：扣减量保留，不从数据库重建
+        when(productMapper.decrementStockBatchReturningIds(anyList())).thenThrow(new RuntimeException("db down"));
+        assertThatThrownBy(engine::rebuild).isInstanceOf(IllegalStateException.class);
+        verify(productMapper, never()).selectAll();
+        assertThat(engine.available(1L)).isEqualTo(7);
+
+        // 回写成功后再读数据库库存
+        ProductMapper recovered = mock(ProductMapper.class);
+        engine = new StockReservationEngine(recovered, new StockReservationProperties());
+        engine.load(1L, 10);
+        assertThat(engine.reserve(1L, 3)).isTrue();
+        when(recovered.decrementStockBatchReturningIds(anyList())).thenReturn(List.of(1L));
+        when(recovered.selectAll()).thenReturn(List.of(product(1L, 7)));
+        engine.rebuild();
+
+        InOrder order = inOrder(recovered);
+        order.verify(recovered).decrementStockBatchReturningIds(List.of(new StockDelta(1L, 3)));
+        order.verify(recovered).selectAll();
+        assertThat(engine.drainPending()).isEmpty();
+        assertThat(engine.available(1L)).isEqualTo(7);
+    }
+
+    private static Product product(Long id, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setStock(stock);
+        return product;
+    }
+}